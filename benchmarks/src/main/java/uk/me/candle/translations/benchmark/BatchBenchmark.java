@@ -0,0 +1,88 @@
+package uk.me.candle.translations.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+import uk.me.candle.translations.maker.BundleMaker;
+
+/**
+ * Formats every row of a set of columns with the batch method, compared with
+ * calling the method for each row and appending the strings.
+ *
+ * rowSummary: a concatenated pattern, a String, an integer and a number.
+ * oranges: a choice pattern, formatted with MessageFormat.
+ *
+ * @author Andrew
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+	@Param({"1000"})
+	private int rows;
+	private BenchmarkBundle bundle;
+	private String[] names;
+	private int[] counts;
+	private double[] values;
+
+	@Setup
+	public void setup() {
+		bundle = BundleMaker.load(BenchmarkBundle.class, Locale.ENGLISH, new DefaultBundleConfiguration());
+		names = new String[rows];
+		counts = new int[rows];
+		values = new double[rows];
+		for (int i = 0; i < rows; ++i) {
+			names[i] = "row" + i;
+			counts[i] = i * 37;
+			values[i] = i / 8.0;
+		}
+	}
+
+	@Benchmark
+	public StringBuilder rowSummaryEach() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < rows; ++i) {
+			if (i > 0) {
+				sb.append('\n');
+			}
+			sb.append(bundle.rowSummary(names[i], counts[i], values[i]));
+		}
+		return sb;
+	}
+
+	@Benchmark
+	public StringBuilder rowSummaryBatch() {
+		return bundle.rowSummary(new StringBuilder(), names, counts, values, "\n");
+	}
+
+	@Benchmark
+	public StringBuilder orangesEach() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < rows; ++i) {
+			if (i > 0) {
+				sb.append('\n');
+			}
+			sb.append(bundle.iHaveSomeOranges(counts[i]));
+		}
+		return sb;
+	}
+
+	@Benchmark
+	public StringBuilder orangesBatch() {
+		return bundle.iHaveSomeOranges(new StringBuilder(), counts, "\n");
+	}
+}
@@ -0,0 +1,31 @@
+package uk.me.candle.translations.benchmark;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.Locale;
+import uk.me.candle.translations.Bundle;
+
+/**
+ * The bundle from the {@link Bundle} documentation, used by the benchmarks.
+ * @author Andrew
+ */
+public abstract class BenchmarkBundle extends Bundle {
+	public BenchmarkBundle(Locale locale) {
+		super(locale);
+	}
+	public abstract String bar();
+	public abstract String pony(String s);
+	public abstract String iHaveSomeOranges(int i);
+	public abstract String countOranges(int i);
+	public abstract String iHaveAFewArguments(Object o, boolean z, byte b, char c, short s, int i, long l, float f, double d);
+	public abstract StringBuilder iHaveSomeOranges(StringBuilder out, int[] i, String separator);
+	public abstract void bar(ByteBuffer out);
+	public abstract void pony(ByteBuffer out, String s);
+	public abstract void countOranges(ByteBuffer out, int i);
+	public abstract String rowSummary(String name, int count, double value);
+	public abstract StringBuilder rowSummary(StringBuilder out, String[] names, int[] counts, double[] values, String separator);
+	public abstract String sent(Date date);
+	public abstract String due(LocalDate date);
+	public abstract String share(double d);
+}
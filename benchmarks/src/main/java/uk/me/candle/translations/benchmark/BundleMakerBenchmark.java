@@ -0,0 +1,75 @@
+package uk.me.candle.translations.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+import uk.me.candle.translations.maker.BundleMaker;
+
+/**
+ * The cost of creating a bundle.
+ *
+ * Cold: the properties are read and checked, the class is generated and is
+ * defined in a new class loader, then an instance is created. This is what
+ * the first call to BundleMaker.load for a bundle and locale does.
+ * Warm: BundleMaker.load when the class has already been defined.
+ *
+ * @author Andrew
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BundleMakerBenchmark {
+	private final Locale locale = Locale.ENGLISH;
+	private BundleConfiguration configuration;
+
+	@Setup
+	public void setup() {
+		configuration = new DefaultBundleConfiguration();
+		BundleMaker.load(BenchmarkBundle.class, locale, configuration);
+	}
+
+	@Benchmark
+	public byte[] generateClass() {
+		return BundleMaker.generateClass(BenchmarkBundle.class, locale, configuration);
+	}
+
+	@Benchmark
+	public BenchmarkBundle loadCold() throws Exception {
+		String name = BundleMaker.getClassNameFor(BenchmarkBundle.class, locale);
+		byte[] b = BundleMaker.generateClass(BenchmarkBundle.class, locale, configuration);
+		Class<? extends BenchmarkBundle> cls = new SingleClassLoader().define(name, b).asSubclass(BenchmarkBundle.class);
+		return cls.getConstructor(Locale.class).newInstance(locale);
+	}
+
+	@Benchmark
+	public BenchmarkBundle loadWarm() {
+		return BundleMaker.load(BenchmarkBundle.class, locale, configuration);
+	}
+
+	/**
+	 * A new loader for each class, so that the same class can be defined again.
+	 */
+	private static final class SingleClassLoader extends ClassLoader {
+		SingleClassLoader() {
+			super(BenchmarkBundle.class.getClassLoader());
+		}
+
+		Class<?> define(String name, byte[] b) {
+			return defineClass(name, b, 0, b.length);
+		}
+	}
+}
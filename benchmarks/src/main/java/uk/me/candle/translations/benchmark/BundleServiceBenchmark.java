@@ -0,0 +1,103 @@
+package uk.me.candle.translations.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+import uk.me.candle.translations.service.BasicBundleService;
+import uk.me.candle.translations.service.BundleService;
+import uk.me.candle.translations.service.TlsBundleService;
+
+/**
+ * Throughput of fetching an already cached bundle from a single shared
+ * BundleService, with 1 to 64 threads. The throughput reported is the
+ * total for all of the threads, so it should scale with the thread count
+ * up to the number of cores.
+ *
+ * BasicBundleService is not thread-safe, but only reads its cache once the
+ * bundles are loaded; it is included to show the cost of the locking-free
+ * TlsBundleService compared with an unsynchronized table.
+ *
+ * @author Andrew
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BundleServiceBenchmark {
+	@Param({"basic", "tls"})
+	private String serviceType;
+	private BundleService service;
+
+	@Setup
+	public void setup() {
+		if ("basic".equals(serviceType)) {
+			service = new BasicBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		} else {
+			service = new TlsBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		}
+		service.get(BenchmarkBundle.class);
+		service.get(BenchmarkBundle.class, Locale.GERMAN);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public BenchmarkBundle get01Thread() {
+		return get();
+	}
+
+	@Benchmark
+	@Threads(2)
+	public BenchmarkBundle get02Threads() {
+		return get();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public BenchmarkBundle get04Threads() {
+		return get();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public BenchmarkBundle get08Threads() {
+		return get();
+	}
+
+	@Benchmark
+	@Threads(16)
+	public BenchmarkBundle get16Threads() {
+		return get();
+	}
+
+	@Benchmark
+	@Threads(32)
+	public BenchmarkBundle get32Threads() {
+		return get();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public BenchmarkBundle get64Threads() {
+		return get();
+	}
+
+	private BenchmarkBundle get() {
+		// the current locale, then an explicit locale.
+		service.get(BenchmarkBundle.class);
+		return service.get(BenchmarkBundle.class, Locale.GERMAN);
+	}
+}
@@ -0,0 +1,100 @@
+package uk.me.candle.translations.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.conf.BundleConfigurationBuilder;
+import uk.me.candle.translations.maker.BundleClassLoader;
+import uk.me.candle.translations.maker.BundleMaker;
+
+/**
+ * Defining generated classes in a class loader of their own, compared with
+ * defining them as hidden classes.
+ *
+ * define: BundleMaker.load with a new BundleClassLoader, so that the class is
+ * generated and defined each time; the properties have already been read.
+ * defineMany: defines many classes, keeping them all, and reports the
+ * metaspace used for each class as the metaspaceBytesPerClass counter.
+ *
+ * @author Andrew
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClassDefinitionBenchmark {
+	private static final int CLASSES = 1000;
+	@Param({"NO", "YES"})
+	private BundleConfiguration.HiddenClasses hiddenClasses;
+	private final Locale locale = Locale.ENGLISH;
+	private BundleConfiguration configuration;
+
+	@Setup
+	public void setup() {
+		configuration = new BundleConfigurationBuilder().hiddenClasses(hiddenClasses).build();
+		BundleMaker.load(BenchmarkBundle.class, locale, configuration);
+	}
+
+	@Benchmark
+	public BenchmarkBundle define() {
+		return BundleMaker.load(BenchmarkBundle.class, locale, configuration, new BundleClassLoader());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 5)
+	@OperationsPerInvocation(CLASSES)
+	public List<BenchmarkBundle> defineMany(Metaspace metaspace) {
+		long before = Metaspace.used();
+		List<BenchmarkBundle> bundles = new ArrayList<BenchmarkBundle>(CLASSES);
+		for (int i = 0; i < CLASSES; ++i) {
+			bundles.add(BundleMaker.load(BenchmarkBundle.class, locale, configuration, new BundleClassLoader()));
+		}
+		metaspace.metaspaceBytesPerClass = (Metaspace.used() - before) / CLASSES;
+		return bundles;
+	}
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Metaspace {
+		public long metaspaceBytesPerClass;
+
+		@Setup(Level.Invocation)
+		public void unload() {
+			// the classes of the previous invocation are unloaded, so they are not counted.
+			System.gc();
+			metaspaceBytesPerClass = 0;
+		}
+
+		static long used() {
+			long used = 0;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getName().equals("Metaspace")) {
+					used += pool.getUsage().getUsed();
+				}
+			}
+			return used;
+		}
+	}
+}
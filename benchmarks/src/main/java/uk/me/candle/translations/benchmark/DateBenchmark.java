@@ -0,0 +1,81 @@
+package uk.me.candle.translations.benchmark;
+
+import java.text.MessageFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+import uk.me.candle.translations.maker.BundleMaker;
+
+/**
+ * Formats dates, times and styled numbers with the generated methods, which
+ * use the shared formatters, compared with formatting them when called.
+ *
+ * sent: a Date with {0,date,short} and {0,time,short}.
+ * due: a LocalDate with {0,date,long}, formatted with a DateTimeFormatter.
+ * share: a double with {0,number,percent}.
+ *
+ * @author Andrew
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DateBenchmark {
+	private static final String SENT = "Sent {0,date,short} at {0,time,short}.";
+	private static final String SHARE = "{0,number,percent} done";
+	private final Locale locale = Locale.ENGLISH;
+	private final Date date = new Date(1700000000000L);
+	private final LocalDate day = LocalDate.of(2024, 2, 29);
+	private BenchmarkBundle bundle;
+
+	@Setup
+	public void setup() {
+		bundle = BundleMaker.load(BenchmarkBundle.class, locale, new DefaultBundleConfiguration());
+	}
+
+	@Benchmark
+	public String sentParsedPerCall() {
+		return new MessageFormat(SENT, locale).format(new Object[]{date});
+	}
+
+	@Benchmark
+	public String sentGenerated() {
+		return bundle.sent(date);
+	}
+
+	@Benchmark
+	public String dueFormatterPerCall() {
+		return "Due " + DateTimeFormatter.ofLocalizedDate(FormatStyle.LONG).withLocale(locale).format(day) + ".";
+	}
+
+	@Benchmark
+	public String dueGenerated() {
+		return bundle.due(day);
+	}
+
+	@Benchmark
+	public String shareParsedPerCall() {
+		return new MessageFormat(SHARE, locale).format(new Object[]{Double.valueOf(0.25)});
+	}
+
+	@Benchmark
+	public String shareGenerated() {
+		return bundle.share(0.25);
+	}
+}
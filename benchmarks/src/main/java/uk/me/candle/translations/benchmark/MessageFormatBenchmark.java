@@ -0,0 +1,129 @@
+package uk.me.candle.translations.benchmark;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+import uk.me.candle.translations.maker.BundleMaker;
+
+/**
+ * Compares the generated methods against the code that used to be generated,
+ * which parsed the pattern with a new MessageFormat on every call, and
+ * against the usual JDK approach: a ResourceBundle lookup then a new MessageFormat.
+ *
+ * pony: one plain String placeholder.
+ * oranges: a choice pattern.
+ * count: an integer placeholder.
+ * arguments: nine placeholders, one for each primitive type and an Object.
+ *
+ * @author Andrew
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageFormatBenchmark {
+	private static final String PONY = "my horsie''s name is {0}";
+	private static final String ORANGES = "I have {0,choice,0#are no oranges|1# one orange|1<are {0,number,integer} oranges}.";
+	private static final String COUNT = "I have {0,number,integer} oranges.";
+	private static final String ARGUMENTS = "o={0} z={1} b={2} c={3} s={4} i={5} l={6} f={7} d={8}";
+
+	private final Locale locale = Locale.ENGLISH;
+	private BenchmarkBundle bundle;
+	private ResourceBundle resourceBundle;
+
+	@Setup
+	public void setup() {
+		bundle = BundleMaker.load(BenchmarkBundle.class, locale, new DefaultBundleConfiguration());
+		// the properties control, the bundle class is not a ResourceBundle.
+		resourceBundle = ResourceBundle.getBundle(BenchmarkBundle.class.getName(), locale,
+				ResourceBundle.Control.getControl(ResourceBundle.Control.FORMAT_PROPERTIES));
+	}
+
+	@Benchmark
+	public String barResourceBundle() {
+		return resourceBundle.getString("bar");
+	}
+
+	@Benchmark
+	public String barGenerated() {
+		return bundle.bar();
+	}
+
+	@Benchmark
+	public String ponyResourceBundle() {
+		return new MessageFormat(resourceBundle.getString("pony"), locale).format(new Object[]{"Sparky"});
+	}
+
+	@Benchmark
+	public String ponyParsedPerCall() {
+		return new MessageFormat(PONY, locale).format(new Object[]{"Sparky"});
+	}
+
+	@Benchmark
+	public String ponyGenerated() {
+		return bundle.pony("Sparky");
+	}
+
+	@Benchmark
+	public String orangesResourceBundle() {
+		return new MessageFormat(resourceBundle.getString("iHaveSomeOranges"), locale).format(new Object[]{Integer.valueOf(5)});
+	}
+
+	@Benchmark
+	public String orangesParsedPerCall() {
+		return new MessageFormat(ORANGES, locale).format(new Object[]{Integer.valueOf(5)});
+	}
+
+	@Benchmark
+	public String orangesGenerated() {
+		return bundle.iHaveSomeOranges(5);
+	}
+
+	@Benchmark
+	public String countResourceBundle() {
+		return new MessageFormat(resourceBundle.getString("countOranges"), locale).format(new Object[]{Integer.valueOf(12345)});
+	}
+
+	@Benchmark
+	public String countParsedPerCall() {
+		return new MessageFormat(COUNT, locale).format(new Object[]{Integer.valueOf(12345)});
+	}
+
+	@Benchmark
+	public String countGenerated() {
+		return bundle.countOranges(12345);
+	}
+
+	@Benchmark
+	public String argumentsResourceBundle() {
+		return new MessageFormat(resourceBundle.getString("iHaveAFewArguments"), locale).format(new Object[]{
+			"obj", Boolean.TRUE, Byte.valueOf((byte)4), Character.valueOf('q'), Short.valueOf((short)6),
+			Integer.valueOf(1), Long.valueOf(9999), Float.valueOf(9.5f), Double.valueOf(4.4d)});
+	}
+
+	@Benchmark
+	public String argumentsParsedPerCall() {
+		return new MessageFormat(ARGUMENTS, locale).format(new Object[]{
+			"obj", Boolean.TRUE, Byte.valueOf((byte)4), Character.valueOf('q'), Short.valueOf((short)6),
+			Integer.valueOf(1), Long.valueOf(9999), Float.valueOf(9.5f), Double.valueOf(4.4d)});
+	}
+
+	@Benchmark
+	public String argumentsGenerated() {
+		return bundle.iHaveAFewArguments("obj", true, (byte)4, 'q', (short)6, 1, 9999, 9.5f, 4.4d);
+	}
+}
@@ -0,0 +1,83 @@
+package uk.me.candle.translations.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+import uk.me.candle.translations.maker.BundleMaker;
+
+/**
+ * Writes translations into a ByteBuffer with the output methods, compared
+ * with encoding the String that the translation method returns.
+ *
+ * bar: no arguments, the encoded bytes are copied.
+ * pony: one String argument, the literal is copied and the argument encoded.
+ * count: an integer argument.
+ *
+ * @author Andrew
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OutputBenchmark {
+	private BenchmarkBundle bundle;
+	private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+	@Setup
+	public void setup() {
+		bundle = BundleMaker.load(BenchmarkBundle.class, Locale.ENGLISH, new DefaultBundleConfiguration());
+	}
+
+	@Benchmark
+	public ByteBuffer barEncoded() {
+		buffer.clear();
+		return buffer.put(bundle.bar().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public ByteBuffer barOutput() {
+		buffer.clear();
+		bundle.bar(buffer);
+		return buffer;
+	}
+
+	@Benchmark
+	public ByteBuffer ponyEncoded() {
+		buffer.clear();
+		return buffer.put(bundle.pony("Sparky").getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public ByteBuffer ponyOutput() {
+		buffer.clear();
+		bundle.pony(buffer, "Sparky");
+		return buffer;
+	}
+
+	@Benchmark
+	public ByteBuffer countEncoded() {
+		buffer.clear();
+		return buffer.put(bundle.countOranges(12345).getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public ByteBuffer countOutput() {
+		buffer.clear();
+		bundle.countOranges(buffer, 12345);
+		return buffer;
+	}
+}
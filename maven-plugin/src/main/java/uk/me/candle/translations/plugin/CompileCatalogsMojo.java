@@ -0,0 +1,103 @@
+package uk.me.candle.translations.plugin;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import uk.me.candle.translations.maker.CatalogCompiler;
+
+/**
+ * Compiles the translation files of each bundle into translation catalogs in
+ * the output directory, so that they are packaged next to the properties
+ * files. BundleMaker reads the catalogs instead of the properties files.
+ *
+ * The translation files of com.example.foo.Foo are com/example/foo/Foo.properties
+ * and com/example/foo/Foo_*.properties in the output directory; they are
+ * copied there by the resources plugin, so this goal runs after it.
+ *
+ * <pre>{@code
+ *<plugin>
+ *  <groupId>uk.me.candle</groupId>
+ *  <artifactId>translations-maven-plugin</artifactId>
+ *  <executions>
+ *    <execution>
+ *      <goals><goal>catalog</goal></goals>
+ *      <configuration>
+ *        <bundles><bundle>com.example.foo.Foo</bundle></bundles>
+ *      </configuration>
+ *    </execution>
+ *  </executions>
+ *</plugin>
+ * }</pre>
+ *
+ * @author Andrew
+ */
+@Mojo(name = "catalog", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, threadSafe = true)
+public class CompileCatalogsMojo extends AbstractMojo {
+	private static final String PROPERTIES = ".properties";
+
+	@Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+	private File outputDirectory;
+
+	/**
+	 * Fully qualified names of the bundle classes.
+	 */
+	@Parameter(property = "translations.bundles", required = true)
+	private List<String> bundles;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		List<String> failures = new ArrayList<String>();
+		int compiled = 0;
+		for (String bundle : bundles) {
+			String name = bundle.trim();
+			int dot = name.lastIndexOf('.');
+			File directory = dot < 0 ? outputDirectory : new File(outputDirectory, name.substring(0, dot).replace('.', File.separatorChar));
+			final String simpleName = name.substring(dot + 1);
+			File[] files = directory.listFiles(new FileFilter() {
+				@Override
+				public boolean accept(File file) {
+					return isTranslationFile(simpleName, file.getName());
+				}
+			});
+			if (files == null || files.length == 0) {
+				failures.add(bundle + ": no translation files in " + directory);
+				continue;
+			}
+			for (File properties : files) {
+				File catalog = CatalogCompiler.getCatalogFile(properties);
+				getLog().debug("Writing " + catalog);
+				try {
+					CatalogCompiler.compile(properties, catalog);
+					++compiled;
+				} catch (IllegalArgumentException ex) {
+					failures.add(properties + ": " + ex.getMessage());
+				} catch (IOException ex) {
+					throw new MojoExecutionException("Could not compile " + properties, ex);
+				}
+			}
+		}
+		for (String failure : failures) {
+			getLog().error(failure);
+		}
+		if (!failures.isEmpty()) {
+			throw new MojoFailureException(failures.size() + " translation file(s) could not be compiled, see the errors above.");
+		}
+		getLog().info("Compiled " + compiled + " translation catalog(s)");
+	}
+
+	private static boolean isTranslationFile(String simpleName, String fileName) {
+		if (!fileName.endsWith(PROPERTIES) || !fileName.startsWith(simpleName)) {
+			return false;
+		}
+		int end = fileName.length() - PROPERTIES.length();
+		return end == simpleName.length() || fileName.charAt(simpleName.length()) == '_';
+	}
+}
@@ -0,0 +1,209 @@
+package uk.me.candle.translations.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import uk.me.candle.translations.Bundle;
+import uk.me.candle.translations.BundleCreationException;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.conf.BundleConfigurationBuilder;
+import uk.me.candle.translations.maker.BundleMaker;
+
+/**
+ * Generates the implementation classes for each bundle and locale, and writes
+ * them to the output directory so that they are packaged with the bundle classes.
+ * BundleMaker uses these classes instead of generating them at runtime, when
+ * the runtime configuration has the same lazyTranslation, localeInheritance,
+ * instrumentation, keyUsageTracking and hiddenClasses options as this goal.
+ *
+ * The same checks as at runtime are made; missing keys, extra keys and
+ * parameter mismatches fail the build. Every bundle and locale is checked
+ * before the build fails, so that all of the problems are reported.
+ *
+ * <pre>{@code
+ *<plugin>
+ *  <groupId>uk.me.candle</groupId>
+ *  <artifactId>translations-maven-plugin</artifactId>
+ *  <executions>
+ *    <execution>
+ *      <goals><goal>precompile</goal></goals>
+ *      <configuration>
+ *        <bundles><bundle>com.example.foo.Foo</bundle></bundles>
+ *        <locales><locale>en</locale><locale>en_GB</locale><locale>fr</locale></locales>
+ *      </configuration>
+ *    </execution>
+ *  </executions>
+ *</plugin>
+ * }</pre>
+ *
+ * @author Andrew
+ */
+@Mojo(name = "precompile", defaultPhase = LifecyclePhase.PROCESS_CLASSES, requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class PrecompileBundlesMojo extends AbstractMojo {
+	@Parameter(defaultValue = "${project}", readonly = true, required = true)
+	private MavenProject project;
+
+	@Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+	private File outputDirectory;
+
+	/**
+	 * Fully qualified names of the bundle classes.
+	 */
+	@Parameter(property = "translations.bundles", required = true)
+	private List<String> bundles;
+
+	/**
+	 * Locales to generate, in the same form as the properties file suffixes: en, en_GB, ja_JP_JP
+	 */
+	@Parameter(property = "translations.locales", required = true)
+	private List<String> locales;
+
+	@Parameter(property = "translations.ignoreMissing", defaultValue = "false")
+	private boolean ignoreMissing;
+
+	@Parameter(property = "translations.ignoreExtra", defaultValue = "false")
+	private boolean ignoreExtra;
+
+	@Parameter(property = "translations.ignoreParameterMisMatch", defaultValue = "false")
+	private boolean ignoreParameterMisMatch;
+
+	@Parameter(property = "translations.allowDefaultLanguage", defaultValue = "true")
+	private boolean allowDefaultLanguage;
+
+	/**
+	 * The generation options; these are recorded in the classes, which are
+	 * only used by a runtime configuration with the same options.
+	 */
+	@Parameter(property = "translations.lazyTranslation", defaultValue = "false")
+	private boolean lazyTranslation;
+
+	@Parameter(property = "translations.localeInheritance", defaultValue = "false")
+	private boolean localeInheritance;
+
+	@Parameter(property = "translations.instrumentation", defaultValue = "false")
+	private boolean instrumentation;
+
+	@Parameter(property = "translations.keyUsageTracking", defaultValue = "false")
+	private boolean keyUsageTracking;
+
+	@Parameter(property = "translations.hiddenClasses", defaultValue = "false")
+	private boolean hiddenClasses;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		BundleConfiguration configuration = new BundleConfigurationBuilder()
+				.ignoreMissing(ignoreMissing ? BundleConfiguration.IgnoreMissing.YES : BundleConfiguration.IgnoreMissing.NO)
+				.ignoreExtra(ignoreExtra ? BundleConfiguration.IgnoreExtra.YES : BundleConfiguration.IgnoreExtra.NO)
+				.ignoreParameterMisMatch(ignoreParameterMisMatch ? BundleConfiguration.IgnoreParameterMisMatch.YES : BundleConfiguration.IgnoreParameterMisMatch.NO)
+				.allowDefaultLanguage(allowDefaultLanguage ? BundleConfiguration.AllowDefaultLanguage.YES : BundleConfiguration.AllowDefaultLanguage.NO)
+				.lazyTranslation(lazyTranslation ? BundleConfiguration.LazyTranslation.YES : BundleConfiguration.LazyTranslation.NO)
+				.localeInheritance(localeInheritance ? BundleConfiguration.LocaleInheritance.YES : BundleConfiguration.LocaleInheritance.NO)
+				.instrumentation(instrumentation ? BundleConfiguration.Instrumentation.YES : BundleConfiguration.Instrumentation.NO)
+				.keyUsageTracking(keyUsageTracking ? BundleConfiguration.KeyUsageTracking.YES : BundleConfiguration.KeyUsageTracking.NO)
+				.hiddenClasses(hiddenClasses ? BundleConfiguration.HiddenClasses.YES : BundleConfiguration.HiddenClasses.NO)
+				.build();
+		List<String> failures = new ArrayList<String>();
+		int generated = 0;
+		URLClassLoader classLoader = createProjectClassLoader();
+		try {
+			for (String bundle : bundles) {
+				Class<? extends Bundle> cls;
+				try {
+					cls = Class.forName(bundle.trim(), false, classLoader).asSubclass(Bundle.class);
+				} catch (ClassNotFoundException ex) {
+					failures.add(bundle + ": class not found");
+					continue;
+				} catch (ClassCastException ex) {
+					failures.add(bundle + ": is not a " + Bundle.class.getName());
+					continue;
+				}
+				for (String localeName : locales) {
+					Locale locale = parseLocale(localeName.trim());
+					try {
+						write(BundleMaker.getClassNameFor(cls, locale), BundleMaker.generateClass(cls, locale, configuration));
+						++generated;
+					} catch (MissingResourceException ex) {
+						failures.add(bundle + " [" + locale + "]: " + ex.getMessage());
+					} catch (BundleCreationException ex) {
+						failures.add(bundle + " [" + locale + "]: " + ex.getMessage());
+					} catch (IllegalArgumentException ex) {
+						failures.add(bundle + " [" + locale + "]: invalid translation: " + ex.getMessage());
+					}
+				}
+			}
+		} finally {
+			try {
+				classLoader.close();
+			} catch (IOException ex) {
+				getLog().debug(ex);
+			}
+		}
+		for (String failure : failures) {
+			getLog().error(failure);
+		}
+		if (!failures.isEmpty()) {
+			throw new MojoFailureException(failures.size() + " bundle(s) could not be generated, see the errors above.");
+		}
+		getLog().info("Generated " + generated + " bundle implementation(s)");
+	}
+
+	private URLClassLoader createProjectClassLoader() throws MojoExecutionException {
+		try {
+			List<URL> urls = new ArrayList<URL>();
+			for (String element : project.getCompileClasspathElements()) {
+				urls.add(new File(element).toURI().toURL());
+			}
+			// the plugin's class loader is the parent so that the Bundle class is shared with BundleMaker.
+			return new URLClassLoader(urls.toArray(new URL[urls.size()]), getClass().getClassLoader());
+		} catch (DependencyResolutionRequiredException ex) {
+			throw new MojoExecutionException(ex.getMessage(), ex);
+		} catch (MalformedURLException ex) {
+			throw new MojoExecutionException(ex.getMessage(), ex);
+		}
+	}
+
+	private void write(String className, byte[] b) throws MojoExecutionException {
+		File file = new File(outputDirectory, className.replace('.', File.separatorChar) + ".class");
+		getLog().debug("Writing " + file);
+		file.getParentFile().mkdirs();
+		try {
+			OutputStream out = new FileOutputStream(file);
+			try {
+				out.write(b);
+			} finally {
+				out.close();
+			}
+		} catch (IOException ex) {
+			throw new MojoExecutionException("Could not write " + file, ex);
+		}
+	}
+
+	static Locale parseLocale(String name) {
+		String[] parts = name.split("_", 3);
+		switch (parts.length) {
+			case 1:
+				return new Locale(parts[0]);
+			case 2:
+				return new Locale(parts[0], parts[1]);
+			default:
+				return new Locale(parts[0], parts[1], parts[2]);
+		}
+	}
+}
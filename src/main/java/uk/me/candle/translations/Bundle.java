@@ -12,7 +12,22 @@ import java.util.Locale;
  * <li>for methods with no arguments the raw translation is returned.</li>
  * <li>Methods with arguments are passed to MessageFormat to format with the translation and the
  * arguments of the method as the parameters of the MessageFormat</li>
+ * <li>Translations that only have plain placeholders, such as {0}, for String, boolean or char
+ * arguments are implemented as a string concatenation; the output is the same as MessageFormat.
+ * So are {0,number,...} and {0,choice,...} for primitive number arguments; a choice is compiled
+ * into comparisons that select the text, or the concatenation, of its branch. Numbers, and the
+ * {0,date,...} and {0,time,...} placeholders, are formatted with formatters that are shared by
+ * every bundle with the same locale.</li>
+ * <li>The arguments may be java.time classes; {0,date,...} and {0,time,...} format them with a
+ * DateTimeFormatter for the locale and the style.</li>
  * <li>Methods must be abstract and have a String return value.</li>
+ * <li>A method may have a batch overload, which formats the translation for every row of
+ * its arguments passed as arrays, and appends the rows to a StringBuilder or Appendable:
+ * {@code StringBuilder pony(StringBuilder out, String[] s, String separator)}; the separator is optional.</li>
+ * <li>A method may have an output overload, which writes the translation to a StringBuilder,
+ * Appendable, Writer, ByteBuffer or WritableByteChannel rather than returning it:
+ * {@code void pony(ByteBuffer out, String s)}; bytes are UTF-8, and the text of the
+ * translation is encoded once.</li>
  * <li>Classes must have an accessible constructor that takes a java.util.Locale.</li>
  * <li>There may be other methods in the bundle class, but if they are abstract then they
  * must return a String. Attempting to create a bundle of a class that contains
@@ -104,11 +119,37 @@ import java.util.Locale;
  * The 'pony' method would be implemented as:
  * <pre>{@code
  * public String pony(String s) {
- *   MessageFormat m = new MessageFormat("my horsie''s name is {0}", getLocale());
- *   return m.format(new Object[]{s});
+ *   return new StringBuilder(36).append("my horsie's name is ").append(s).toString();
  * }
  * }</pre>
  *
+ * The 'iHaveSomeOranges' method would be implemented as:
+ * <pre>{@code
+ * private final NumberFormatter __numberFormatter0; // NumberFormatter.getInstance(getLocale(), "integer") in the constructor
+ * public String iHaveSomeOranges(int i) {
+ *   StringBuilder sb = new StringBuilder(43).append("I have ");
+ *   if (i > 1) {
+ *     __numberFormatter0.append(sb.append("are "), i).append(" oranges");
+ *   } else if (i >= 1) {
+ *     sb.append(" one orange");
+ *   } else {
+ *     sb.append("are no oranges");
+ *   }
+ *   return sb.append(".").toString();
+ * }
+ * }</pre>
+ *
+ * The 'iHaveAFewArguments' method would be implemented as:
+ * <pre>{@code
+ * private final MessageFormat __format0; // new MessageFormat("o={0} z={1} ...", getLocale()) in the constructor
+ * public String iHaveAFewArguments(Object o, boolean z, byte b, char c, short s, int i, long l, float f, double d) {
+ *   MessageFormat m = (MessageFormat) __format0.clone();
+ *   return m.format(new Object[]{o, Boolean.valueOf(z), ...});
+ * }
+ * }</pre>
+ * The pattern is parsed once per bundle instance; as MessageFormat is not
+ * thread-safe each call formats using a clone of the parsed instance.
+ *
  * @see java.text.MessageFormat
  * @author Andrew Wheat
  */
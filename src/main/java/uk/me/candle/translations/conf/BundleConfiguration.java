@@ -9,6 +9,11 @@ public interface BundleConfiguration {
 	public enum IgnoreExtra { YES, NO };
 	public enum IgnoreParameterMisMatch { YES, NO };
 	public enum AllowDefaultLanguage { YES, NO };
+	public enum LazyTranslation { YES, NO };
+	public enum LocaleInheritance { YES, NO };
+	public enum Instrumentation { YES, NO };
+	public enum KeyUsageTracking { YES, NO };
+	public enum HiddenClasses { YES, NO };
 
 	/**
 	 * If this is 'YES' then keys that are defined in the class and not defined
@@ -61,4 +66,67 @@ public interface BundleConfiguration {
 	 * If this parameter is 'NO' then only the exact properties file is used.
 	 */
 	AllowDefaultLanguage getAllowDefaultLanguage();
+
+	/**
+	 * If this is 'YES' then the translation for each method is looked up and
+	 * compiled the first time that the method is called, rather than when the
+	 * bundle is created. This makes creating a bundle with many methods faster
+	 * and the generated class smaller when only some of the methods are used.
+	 * Missing translations and parameter mismatches are reported by throwing a
+	 * MissingResourceException when the method is called, and extra keys are
+	 * not reported. Use BundleMaker.validate to make the full set of checks.
+	 *
+	 * If this is 'NO' then every method is implemented when the bundle is created.
+	 */
+	LazyTranslation getLazyTranslation();
+
+	/**
+	 * If this is 'YES' then the class generated for a locale with a country,
+	 * or a variant, extends the class generated for the locale without it, and
+	 * only implements the methods whose translations differ. For example, the
+	 * class for en_GB extends the class for en and implements the methods of
+	 * the keys in Translations_en_gb.properties that have a different value.
+	 * This makes the classes of regional locales much smaller. It requires
+	 * AllowDefaultLanguage 'YES', and is not used with LazyTranslation 'YES',
+	 * for classes generated ahead of time, or by a bundle service with a
+	 * bounded CachePolicy.
+	 *
+	 * If this is 'NO' then every generated class implements every method.
+	 */
+	LocaleInheritance getLocaleInheritance();
+
+	/**
+	 * If this is 'YES' then each generated method counts its calls and the
+	 * time taken to create the translation, for each bundle, method and locale;
+	 * these are read through uk.me.candle.translations.maker.BundleMetrics.
+	 * The counters do not contend, but timing each call has a small cost.
+	 *
+	 * If this is 'NO' then nothing is recorded, and the generated methods are
+	 * exactly the same as without instrumentation.
+	 */
+	Instrumentation getInstrumentation();
+
+	/**
+	 * If this is 'YES' then each generated method marks its key as used the
+	 * first time that it is called, in any locale; the keys that were never
+	 * called are read through uk.me.candle.translations.maker.KeyUsage.
+	 * After the first call this costs one volatile read for each call.
+	 *
+	 * If this is 'NO' then nothing is recorded.
+	 */
+	KeyUsageTracking getKeyUsageTracking();
+
+	/**
+	 * If this is 'YES' then each generated class is defined as a hidden class
+	 * that is a nestmate of the bundle class, in the bundle class's class
+	 * loader. Defining a hidden class is cheaper, and each one is unloaded
+	 * once nothing refers to it or its instances, even when it was defined
+	 * through the shared BundleClassLoader. The classes cannot extend each
+	 * other, so LocaleInheritance is not used. On runtimes without hidden
+	 * classes (before Java 15), or if the bundle's package is not open to
+	 * this library, the class is defined in the BundleClassLoader.
+	 *
+	 * If this is 'NO' then the classes are defined in the BundleClassLoader.
+	 */
+	HiddenClasses getHiddenClasses();
 }
@@ -1,9 +1,14 @@
 package uk.me.candle.translations.conf;
 
 import uk.me.candle.translations.conf.BundleConfiguration.AllowDefaultLanguage;
+import uk.me.candle.translations.conf.BundleConfiguration.HiddenClasses;
 import uk.me.candle.translations.conf.BundleConfiguration.IgnoreExtra;
 import uk.me.candle.translations.conf.BundleConfiguration.IgnoreMissing;
 import uk.me.candle.translations.conf.BundleConfiguration.IgnoreParameterMisMatch;
+import uk.me.candle.translations.conf.BundleConfiguration.Instrumentation;
+import uk.me.candle.translations.conf.BundleConfiguration.KeyUsageTracking;
+import uk.me.candle.translations.conf.BundleConfiguration.LazyTranslation;
+import uk.me.candle.translations.conf.BundleConfiguration.LocaleInheritance;
 
 /**
  *
@@ -14,6 +19,11 @@ public final class BundleConfigurationBuilder {
 	private IgnoreExtra ignoreExtra = IgnoreExtra.NO;
 	private IgnoreParameterMisMatch ignoreParameterMisMatch = IgnoreParameterMisMatch.NO;
 	private AllowDefaultLanguage allowDefaultLanguage = AllowDefaultLanguage.YES;
+	private LazyTranslation lazyTranslation = LazyTranslation.NO;
+	private LocaleInheritance localeInheritance = LocaleInheritance.NO;
+	private Instrumentation instrumentation = Instrumentation.NO;
+	private KeyUsageTracking keyUsageTracking = KeyUsageTracking.NO;
+	private HiddenClasses hiddenClasses = HiddenClasses.NO;
 
 	public BundleConfigurationBuilder allowDefaultLanguage(AllowDefaultLanguage allowDefaultLanguage) {
 		this.allowDefaultLanguage = allowDefaultLanguage;
@@ -34,8 +44,33 @@ public final class BundleConfigurationBuilder {
 		this.ignoreParameterMisMatch = ignoreParameterMisMatch;
 		return this;
 	}
+
+	public BundleConfigurationBuilder lazyTranslation(LazyTranslation lazyTranslation) {
+		this.lazyTranslation = lazyTranslation;
+		return this;
+	}
 	
+	public BundleConfigurationBuilder localeInheritance(LocaleInheritance localeInheritance) {
+		this.localeInheritance = localeInheritance;
+		return this;
+	}
+
+	public BundleConfigurationBuilder instrumentation(Instrumentation instrumentation) {
+		this.instrumentation = instrumentation;
+		return this;
+	}
+
+	public BundleConfigurationBuilder keyUsageTracking(KeyUsageTracking keyUsageTracking) {
+		this.keyUsageTracking = keyUsageTracking;
+		return this;
+	}
+
+	public BundleConfigurationBuilder hiddenClasses(HiddenClasses hiddenClasses) {
+		this.hiddenClasses = hiddenClasses;
+		return this;
+	}
+
 	public BundleConfiguration build() {
-		return new StandardBundleConfiguration(ignoreMissing, ignoreExtra, ignoreParameterMisMatch, allowDefaultLanguage);
+		return new StandardBundleConfiguration(ignoreMissing, ignoreExtra, ignoreParameterMisMatch, allowDefaultLanguage, lazyTranslation, localeInheritance, instrumentation, keyUsageTracking, hiddenClasses);
 	}
 }
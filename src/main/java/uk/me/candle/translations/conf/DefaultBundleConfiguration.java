@@ -21,4 +21,24 @@ public final class DefaultBundleConfiguration implements BundleConfiguration {
 	public AllowDefaultLanguage getAllowDefaultLanguage() {
 		return AllowDefaultLanguage.YES;
 	}
+	@Override
+	public LazyTranslation getLazyTranslation() {
+		return LazyTranslation.NO;
+	}
+	@Override
+	public LocaleInheritance getLocaleInheritance() {
+		return LocaleInheritance.NO;
+	}
+	@Override
+	public Instrumentation getInstrumentation() {
+		return Instrumentation.NO;
+	}
+	@Override
+	public KeyUsageTracking getKeyUsageTracking() {
+		return KeyUsageTracking.NO;
+	}
+	@Override
+	public HiddenClasses getHiddenClasses() {
+		return HiddenClasses.NO;
+	}
 }
@@ -1,9 +1,14 @@
 package uk.me.candle.translations.conf;
 
 import uk.me.candle.translations.conf.BundleConfiguration.AllowDefaultLanguage;
+import uk.me.candle.translations.conf.BundleConfiguration.HiddenClasses;
 import uk.me.candle.translations.conf.BundleConfiguration.IgnoreExtra;
 import uk.me.candle.translations.conf.BundleConfiguration.IgnoreMissing;
 import uk.me.candle.translations.conf.BundleConfiguration.IgnoreParameterMisMatch;
+import uk.me.candle.translations.conf.BundleConfiguration.Instrumentation;
+import uk.me.candle.translations.conf.BundleConfiguration.KeyUsageTracking;
+import uk.me.candle.translations.conf.BundleConfiguration.LazyTranslation;
+import uk.me.candle.translations.conf.BundleConfiguration.LocaleInheritance;
 
 /**
  *
@@ -14,12 +19,42 @@ public final class StandardBundleConfiguration implements BundleConfiguration {
 	private final IgnoreExtra ignoreExtra;
 	private final IgnoreParameterMisMatch ignoreParameterMisMatch;
 	private final AllowDefaultLanguage allowDefaultLanguage;
+	private final LazyTranslation lazyTranslation;
+	private final LocaleInheritance localeInheritance;
+	private final Instrumentation instrumentation;
+	private final KeyUsageTracking keyUsageTracking;
+	private final HiddenClasses hiddenClasses;
 
 	public StandardBundleConfiguration(IgnoreMissing ignoreMissing, IgnoreExtra ignoreExtra, IgnoreParameterMisMatch ignoreParameterMisMatch, AllowDefaultLanguage allowDefaultLanguage) {
+		this(ignoreMissing, ignoreExtra, ignoreParameterMisMatch, allowDefaultLanguage, LazyTranslation.NO);
+	}
+
+	public StandardBundleConfiguration(IgnoreMissing ignoreMissing, IgnoreExtra ignoreExtra, IgnoreParameterMisMatch ignoreParameterMisMatch, AllowDefaultLanguage allowDefaultLanguage, LazyTranslation lazyTranslation) {
+		this(ignoreMissing, ignoreExtra, ignoreParameterMisMatch, allowDefaultLanguage, lazyTranslation, LocaleInheritance.NO);
+	}
+
+	public StandardBundleConfiguration(IgnoreMissing ignoreMissing, IgnoreExtra ignoreExtra, IgnoreParameterMisMatch ignoreParameterMisMatch, AllowDefaultLanguage allowDefaultLanguage, LazyTranslation lazyTranslation, LocaleInheritance localeInheritance) {
+		this(ignoreMissing, ignoreExtra, ignoreParameterMisMatch, allowDefaultLanguage, lazyTranslation, localeInheritance, Instrumentation.NO);
+	}
+
+	public StandardBundleConfiguration(IgnoreMissing ignoreMissing, IgnoreExtra ignoreExtra, IgnoreParameterMisMatch ignoreParameterMisMatch, AllowDefaultLanguage allowDefaultLanguage, LazyTranslation lazyTranslation, LocaleInheritance localeInheritance, Instrumentation instrumentation) {
+		this(ignoreMissing, ignoreExtra, ignoreParameterMisMatch, allowDefaultLanguage, lazyTranslation, localeInheritance, instrumentation, KeyUsageTracking.NO);
+	}
+
+	public StandardBundleConfiguration(IgnoreMissing ignoreMissing, IgnoreExtra ignoreExtra, IgnoreParameterMisMatch ignoreParameterMisMatch, AllowDefaultLanguage allowDefaultLanguage, LazyTranslation lazyTranslation, LocaleInheritance localeInheritance, Instrumentation instrumentation, KeyUsageTracking keyUsageTracking) {
+		this(ignoreMissing, ignoreExtra, ignoreParameterMisMatch, allowDefaultLanguage, lazyTranslation, localeInheritance, instrumentation, keyUsageTracking, HiddenClasses.NO);
+	}
+
+	public StandardBundleConfiguration(IgnoreMissing ignoreMissing, IgnoreExtra ignoreExtra, IgnoreParameterMisMatch ignoreParameterMisMatch, AllowDefaultLanguage allowDefaultLanguage, LazyTranslation lazyTranslation, LocaleInheritance localeInheritance, Instrumentation instrumentation, KeyUsageTracking keyUsageTracking, HiddenClasses hiddenClasses) {
 		this.ignoreMissing = ignoreMissing;
 		this.ignoreExtra = ignoreExtra;
 		this.ignoreParameterMisMatch = ignoreParameterMisMatch;
 		this.allowDefaultLanguage = allowDefaultLanguage;
+		this.lazyTranslation = lazyTranslation;
+		this.localeInheritance = localeInheritance;
+		this.instrumentation = instrumentation;
+		this.keyUsageTracking = keyUsageTracking;
+		this.hiddenClasses = hiddenClasses;
 	}
 
 	@Override
@@ -41,4 +76,29 @@ public final class StandardBundleConfiguration implements BundleConfiguration {
 	public IgnoreParameterMisMatch getIgnoreParameterMisMatch() {
 		return ignoreParameterMisMatch;
 	}
+
+	@Override
+	public LazyTranslation getLazyTranslation() {
+		return lazyTranslation;
+	}
+
+	@Override
+	public LocaleInheritance getLocaleInheritance() {
+		return localeInheritance;
+	}
+
+	@Override
+	public Instrumentation getInstrumentation() {
+		return instrumentation;
+	}
+
+	@Override
+	public KeyUsageTracking getKeyUsageTracking() {
+		return keyUsageTracking;
+	}
+
+	@Override
+	public HiddenClasses getHiddenClasses() {
+		return hiddenClasses;
+	}
 }
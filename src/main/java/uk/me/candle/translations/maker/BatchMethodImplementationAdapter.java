@@ -0,0 +1,260 @@
+package uk.me.candle.translations.maker;
+
+import java.util.Locale;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Implements a batch method: an overload of a translation method that
+ * formats every row of a set of columns, one array for each argument, and
+ * appends the results to a StringBuilder or Appendable:
+ *
+ * <pre>{@code
+ * public abstract String rowSummary(String name, int count, double value);
+ * public abstract StringBuilder rowSummary(StringBuilder out, String[] names, int[] counts, double[] values, String separator);
+ * }</pre>
+ *
+ * The first parameter is the output, a StringBuilder or an Appendable; the
+ * method returns it, or is void. The columns follow, and all must have the
+ * same length. An optional last String or CharSequence parameter is appended
+ * between the rows.
+ *
+ * The pattern is parsed once for the batch, and the formatters and buffers
+ * are reused for every row: concatenated patterns append directly to the
+ * output StringBuilder, others format with one clone of the MessageFormat
+ * and one argument array. An Appendable is given one row at a time from a
+ * reused StringBuilder.
+ *
+ * @author Andrew
+ */
+class BatchMethodImplementationAdapter extends MethodImplementationAdapter {
+	private static final Type STRING_BUILDER_TYPE = Type.getObjectType(STRING_BUILDER);
+	private static final Type APPENDABLE_TYPE = Type.getType(Appendable.class);
+	private static final Type CHAR_SEQUENCE_TYPE = Type.getType(CharSequence.class);
+	private static final Type STRING_TYPE = Type.getType(String.class);
+
+	private final String name;
+	private final String descriptor;
+	private final Type[] columns;
+	private final String translation;
+	private final ParsedPattern parsed;
+	private final String generatedClassName;
+	private final ImplementMethodsAdapter fields;
+	/** the internal name of the bundle class, if each row is formatted by a lazy invokedynamic call; otherwise null. */
+	private final String lazyBundleClassName;
+	private int indexRegister;
+
+	/**
+	 * @param parsed the parsed translation, if it has been parsed already, otherwise null.
+	 */
+	BatchMethodImplementationAdapter(MethodVisitor mv, String descriptor, String translation, ParsedPattern parsed, String generatedClassName, Locale locale, ImplementMethodsAdapter fields) {
+		super(mv, descriptor, translation, parsed, generatedClassName, locale, fields);
+		this.name = null;
+		this.descriptor = descriptor;
+		this.columns = getColumns(descriptor);
+		this.translation = translation;
+		this.parsed = parsed == null ? ParsedPattern.parse(translation, locale, columns.length) : parsed;
+		this.generatedClassName = generatedClassName;
+		this.fields = fields;
+		this.lazyBundleClassName = null;
+	}
+
+	/**
+	 * Each row is formatted by the invokedynamic call of the lazy method with the same name.
+	 * @param bundleClassName the internal name of the bundle class
+	 */
+	BatchMethodImplementationAdapter(MethodVisitor mv, String name, String descriptor, String bundleClassName) {
+		super(mv, descriptor, null, null, null, null, null);
+		this.name = name;
+		this.descriptor = descriptor;
+		this.columns = getColumns(descriptor);
+		this.translation = null;
+		this.parsed = null;
+		this.generatedClassName = null;
+		this.fields = null;
+		this.lazyBundleClassName = bundleClassName;
+	}
+
+	/**
+	 * @return the element types of the columns, if the method is a batch method; otherwise null.
+	 */
+	static Type[] getColumns(String descriptor) {
+		Type[] arguments = Type.getArgumentTypes(descriptor);
+		Type returnType = Type.getReturnType(descriptor);
+		if (arguments.length < 2
+				|| !(arguments[0].equals(STRING_BUILDER_TYPE) || arguments[0].equals(APPENDABLE_TYPE))
+				|| !(returnType.equals(Type.VOID_TYPE) || returnType.equals(arguments[0]))) {
+			return null;
+		}
+		int count = arguments.length - 1;
+		if (hasSeparator(arguments)) {
+			--count;
+		}
+		Type[] columns = new Type[count];
+		for (int i = 0; i < count; ++i) {
+			Type t = arguments[i + 1];
+			if (t.getSort() != Type.ARRAY || t.getDimensions() != 1) {
+				return null;
+			}
+			columns[i] = t.getElementType();
+		}
+		return count == 0 ? null : columns;
+	}
+
+	private static boolean hasSeparator(Type[] arguments) {
+		Type last = arguments[arguments.length - 1];
+		return last.equals(STRING_TYPE) || last.equals(CHAR_SEQUENCE_TYPE);
+	}
+
+	@Override
+	public void visitEnd() {
+		Type[] arguments = Type.getArgumentTypes(descriptor);
+		boolean appendable = arguments[0].equals(APPENDABLE_TYPE);
+		int separatorRegister = hasSeparator(arguments) ? columns.length + 2 : -1;
+		int reg = MetricsMethodAdapter.getFirstFreeRegister(descriptor);
+		int lengthRegister = reg++;
+		indexRegister = reg++;
+		int builderRegister = appendable ? reg++ : 1;
+		mv.visitCode();
+
+		// int length = column0.length; each other column must have the same length.
+		mv.visitVarInsn(Opcodes.ALOAD, 2);
+		mv.visitInsn(Opcodes.ARRAYLENGTH);
+		mv.visitVarInsn(Opcodes.ISTORE, lengthRegister);
+		for (int i = 1; i < columns.length; ++i) {
+			Label sameLength = new Label();
+			mv.visitVarInsn(Opcodes.ALOAD, i + 2);
+			mv.visitInsn(Opcodes.ARRAYLENGTH);
+			mv.visitVarInsn(Opcodes.ILOAD, lengthRegister);
+			mv.visitJumpInsn(Opcodes.IF_ICMPEQ, sameLength);
+			mv.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+			mv.visitInsn(Opcodes.DUP);
+			mv.visitLdcInsn("The columns must all have the same length");
+			mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "(Ljava/lang/String;)V", false);
+			mv.visitInsn(Opcodes.ATHROW);
+			mv.visitLabel(sameLength);
+		}
+
+		Append[] appends = null;
+		int formatRegister = -1;
+		if (lazyBundleClassName == null) {
+			appends = getAppends(parsed, columns);
+			if (appends == null) {
+				// MessageFormat format = (MessageFormat) __formatN.clone(); and the reused arguments, buffer and position.
+				formatRegister = reg;
+				reg += 4;
+				mv.visitVarInsn(Opcodes.ALOAD, 0);
+				mv.visitFieldInsn(Opcodes.GETFIELD, generatedClassName, fields.addMessageFormatField(translation), "Ljava/text/MessageFormat;");
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/text/MessageFormat", "clone", "()Ljava/lang/Object;", false);
+				mv.visitTypeInsn(Opcodes.CHECKCAST, "java/text/MessageFormat");
+				mv.visitVarInsn(Opcodes.ASTORE, formatRegister);
+				mv.visitIntInsn(Opcodes.BIPUSH, columns.length);
+				mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+				mv.visitVarInsn(Opcodes.ASTORE, formatRegister + 1);
+				mv.visitTypeInsn(Opcodes.NEW, "java/lang/StringBuffer");
+				mv.visitInsn(Opcodes.DUP);
+				mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/StringBuffer", "<init>", "()V", false);
+				mv.visitVarInsn(Opcodes.ASTORE, formatRegister + 2);
+				mv.visitTypeInsn(Opcodes.NEW, "java/text/FieldPosition");
+				mv.visitInsn(Opcodes.DUP);
+				mv.visitInsn(Opcodes.ICONST_0);
+				mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/text/FieldPosition", "<init>", "(I)V", false);
+				mv.visitVarInsn(Opcodes.ASTORE, formatRegister + 3);
+			}
+		}
+		if (appendable) {
+			mv.visitTypeInsn(Opcodes.NEW, STRING_BUILDER);
+			mv.visitInsn(Opcodes.DUP);
+			if (parsed == null) {
+				mv.visitMethodInsn(Opcodes.INVOKESPECIAL, STRING_BUILDER, "<init>", "()V", false);
+			} else {
+				mv.visitLdcInsn(getLengthEstimate(parsed));
+				mv.visitMethodInsn(Opcodes.INVOKESPECIAL, STRING_BUILDER, "<init>", "(I)V", false);
+			}
+			mv.visitVarInsn(Opcodes.ASTORE, builderRegister);
+		}
+
+		// for (int i = 0; i < length; ++i)
+		Label loop = new Label();
+		Label end = new Label();
+		mv.visitInsn(Opcodes.ICONST_0);
+		mv.visitVarInsn(Opcodes.ISTORE, indexRegister);
+		mv.visitLabel(loop);
+		mv.visitVarInsn(Opcodes.ILOAD, indexRegister);
+		mv.visitVarInsn(Opcodes.ILOAD, lengthRegister);
+		mv.visitJumpInsn(Opcodes.IF_ICMPGE, end);
+		if (separatorRegister >= 0) {
+			Label first = new Label();
+			mv.visitVarInsn(Opcodes.ILOAD, indexRegister);
+			mv.visitJumpInsn(Opcodes.IFEQ, first);
+			mv.visitVarInsn(Opcodes.ALOAD, builderRegister);
+			mv.visitVarInsn(Opcodes.ALOAD, separatorRegister);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING_BUILDER, "append", "(Ljava/lang/CharSequence;)Ljava/lang/StringBuilder;", false);
+			mv.visitInsn(Opcodes.POP);
+			mv.visitLabel(first);
+		}
+		mv.visitVarInsn(Opcodes.ALOAD, builderRegister);
+		if (lazyBundleClassName != null) {
+			// sb.append(indy name(this, column0[i], ...))
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			for (int i = 0; i < columns.length; ++i) {
+				loadArgument(columns, i);
+			}
+			String rowDescriptor = Type.getMethodDescriptor(STRING_TYPE, columns);
+			mv.visitInvokeDynamicInsn(name, "(L" + lazyBundleClassName + ";" + rowDescriptor.substring(1), LazyTranslations.BOOTSTRAP);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING_BUILDER, "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+		} else if (appends != null) {
+			appendConcatenation(columns, parsed, appends);
+		} else {
+			// buffer.setLength(0); sb.append(format.format(arguments, buffer, position))
+			mv.visitVarInsn(Opcodes.ALOAD, formatRegister + 2);
+			mv.visitInsn(Opcodes.ICONST_0);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuffer", "setLength", "(I)V", false);
+			mv.visitVarInsn(Opcodes.ALOAD, formatRegister);
+			mv.visitVarInsn(Opcodes.ALOAD, formatRegister + 1);
+			for (int i = 0; i < columns.length; ++i) {
+				boxIfNeededAndAddToArray(columns, i);
+			}
+			mv.visitVarInsn(Opcodes.ALOAD, formatRegister + 2);
+			mv.visitVarInsn(Opcodes.ALOAD, formatRegister + 3);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/text/MessageFormat", "format",
+					"([Ljava/lang/Object;Ljava/lang/StringBuffer;Ljava/text/FieldPosition;)Ljava/lang/StringBuffer;", false);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING_BUILDER, "append", "(Ljava/lang/StringBuffer;)Ljava/lang/StringBuilder;", false);
+		}
+		mv.visitInsn(Opcodes.POP);
+		if (appendable) {
+			// out.append(sb); sb.setLength(0);
+			mv.visitVarInsn(Opcodes.ALOAD, 1);
+			mv.visitVarInsn(Opcodes.ALOAD, builderRegister);
+			mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/lang/Appendable", "append", "(Ljava/lang/CharSequence;)Ljava/lang/Appendable;", true);
+			mv.visitInsn(Opcodes.POP);
+			mv.visitVarInsn(Opcodes.ALOAD, builderRegister);
+			mv.visitInsn(Opcodes.ICONST_0);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING_BUILDER, "setLength", "(I)V", false);
+		}
+		mv.visitIincInsn(indexRegister, 1);
+		mv.visitJumpInsn(Opcodes.GOTO, loop);
+		mv.visitLabel(end);
+
+		if (Type.getReturnType(descriptor).equals(Type.VOID_TYPE)) {
+			mv.visitInsn(Opcodes.RETURN);
+		} else {
+			mv.visitVarInsn(Opcodes.ALOAD, 1);
+			mv.visitInsn(Opcodes.ARETURN);
+		}
+		mv.visitMaxs(0, 0); // calculated due to ClassWriter.COMPUTE_FRAMES
+		mv.visitEnd();
+	}
+
+	/**
+	 * Pushes the value of the row of a column: {@code column[i]}
+	 */
+	@Override
+	void loadArgument(Type[] types, int argument) {
+		mv.visitVarInsn(Opcodes.ALOAD, argument + 2);
+		mv.visitVarInsn(Opcodes.ILOAD, indexRegister);
+		mv.visitInsn(types[argument].getOpcode(Opcodes.IALOAD));
+	}
+}
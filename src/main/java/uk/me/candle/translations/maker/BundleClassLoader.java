@@ -1,29 +1,143 @@
 package uk.me.candle.translations.maker;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import uk.me.candle.translations.Bundle;
 
 /**
  * Allows class definition from a byte array.
+ *
+ * This class loader is parallel capable; classes with different names
+ * can be defined concurrently, and defining a class with a name that is
+ * already defined returns the existing class.
+ *
+ * Classes generated with hidden classes are not defined in this class loader,
+ * but in the bundle class's; they are remembered only while they are used,
+ * so each is unloaded once nothing refers to it or its instances, and then
+ * forgotten.
  */
 public final class BundleClassLoader extends ClassLoader {
-	private Map<String, Class<? extends Bundle>> classMap
-			= new HashMap<String, Class<? extends Bundle>>();
+	static {
+		ClassLoader.registerAsParallelCapable();
+	}
+
+	private final ConcurrentMap<String, Class<? extends Bundle>> classMap
+			= new ConcurrentHashMap<String, Class<? extends Bundle>>();
+	private final ConcurrentMap<String, LazyTranslations> lazyTranslations
+			= new ConcurrentHashMap<String, LazyTranslations>();
+	private final ConcurrentMap<String, HiddenClassReference> hiddenClasses
+			= new ConcurrentHashMap<String, HiddenClassReference>();
+	private final ReferenceQueue<Class<? extends Bundle>> unloadedClasses = new ReferenceQueue<Class<? extends Bundle>>();
 
 	public BundleClassLoader() { }
 
 	public boolean isClassDefined(String key) {
-		return classMap.containsKey(key);
+		return getDefinedClass(key) != null;
+	}
+
+	/**
+	 * @return the class that has been defined with the name, or null.
+	 */
+	Class<? extends Bundle> getDefinedClass(String name) {
+		Class<? extends Bundle> defined = classMap.get(name);
+		if (defined == null) {
+			removeUnloadedClasses();
+			HiddenClassReference hidden = hiddenClasses.get(name);
+			if (hidden != null) {
+				defined = hidden.get();
+			}
+		}
+		return defined;
+	}
+
+	/**
+	 * @return the number of hidden classes that are remembered.
+	 */
+	int getHiddenClassCount() {
+		removeUnloadedClasses();
+		return hiddenClasses.size();
+	}
+
+	private void removeUnloadedClasses() {
+		for (Reference<?> ref = unloadedClasses.poll(); ref != null; ref = unloadedClasses.poll()) {
+			HiddenClassReference hidden = (HiddenClassReference) ref;
+			// the name may have been defined again since.
+			hiddenClasses.remove(hidden.name, hidden);
+		}
+	}
+
+	/**
+	 * Use this to generate and define a class exactly once: hold the lock,
+	 * check {@link #getDefinedClass(String)} and define the class if it is missing.
+	 * @return the lock for the class name.
+	 */
+	Object getDefinitionLock(String name) {
+		return getClassLoadingLock(name);
+	}
+
+	/**
+	 * Records the translations of a class generated with lazy translation;
+	 * this must be done before the class is defined.
+	 */
+	void putLazyTranslations(String name, LazyTranslations translations) {
+		lazyTranslations.put(name, translations);
+	}
+
+	/**
+	 * @return the translations of a class generated with lazy translation, or null.
+	 */
+	LazyTranslations getLazyTranslations(String name) {
+		return lazyTranslations.get(name);
 	}
 
 	@SuppressWarnings("unchecked")
 	Class<?> defineClass(String name, byte[] b) {
-		if(classMap.containsKey(name)) {
-			return classMap.get(name);
+		synchronized (getClassLoadingLock(name)) {
+			Class<? extends Bundle> existing = classMap.get(name);
+			if (existing != null) {
+				return existing;
+			}
+			Class<?> clz = defineClass(name, b, 0, b.length);
+			classMap.put(name, (Class<? extends Bundle>)clz);
+			return clz;
+		}
+	}
+
+	/**
+	 * Defines the class as a hidden class in the package of the bundle class,
+	 * or in this class loader if hidden classes are not available or the
+	 * package is not open to this library.
+	 * @param host the bundle class
+	 */
+	@SuppressWarnings("unchecked")
+	Class<?> defineHiddenClass(String name, byte[] b, Class<? extends Bundle> host) {
+		synchronized (getClassLoadingLock(name)) {
+			Class<? extends Bundle> existing = getDefinedClass(name);
+			if (existing != null) {
+				return existing;
+			}
+			Class<?> clz = HiddenClassDefiner.isAvailable() ? HiddenClassDefiner.define(host, b) : null;
+			if (clz == null) {
+				return defineClass(name, b);
+			}
+			LazyTranslations lazy = lazyTranslations.remove(name);
+			if (lazy != null) {
+				LazyTranslations.putHiddenClass(clz, lazy);
+			}
+			hiddenClasses.put(name, new HiddenClassReference(name, (Class<? extends Bundle>)clz, unloadedClasses));
+			return clz;
+		}
+	}
+
+	private static final class HiddenClassReference extends WeakReference<Class<? extends Bundle>> {
+		private final String name;
+
+		HiddenClassReference(String name, Class<? extends Bundle> cls, ReferenceQueue<Class<? extends Bundle>> queue) {
+			super(cls, queue);
+			this.name = name;
 		}
-		Class<?> clz = defineClass(name, b, 0, b.length);
-		classMap.put(name, (Class<? extends Bundle>)clz);
-		return clz;
 	}
 }
@@ -0,0 +1,23 @@
+package uk.me.candle.translations.maker;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+/**
+ * Computes the stack map frames using the bundle class's class loader; the
+ * types used by the bundle class may not be visible to the loader of ASM,
+ * for example when the classes are generated by a build plugin.
+ */
+class BundleClassWriter extends ClassWriter {
+	private final ClassLoader classLoader;
+
+	BundleClassWriter(ClassReader cr, ClassLoader classLoader) {
+		super(cr, ClassWriter.COMPUTE_FRAMES);
+		this.classLoader = classLoader;
+	}
+
+	@Override
+	protected ClassLoader getClassLoader() {
+		return classLoader;
+	}
+}
@@ -1,14 +1,22 @@
 package uk.me.candle.translations.maker;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.Properties;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.slf4j.Logger;
@@ -16,7 +24,11 @@ import org.slf4j.LoggerFactory;
 import uk.me.candle.translations.Bundle;
 import uk.me.candle.translations.conf.BundleConfiguration;
 import uk.me.candle.translations.conf.BundleConfiguration.AllowDefaultLanguage;
+import uk.me.candle.translations.conf.BundleConfiguration.HiddenClasses;
 import uk.me.candle.translations.conf.BundleConfiguration.IgnoreExtra;
+import uk.me.candle.translations.conf.BundleConfiguration.KeyUsageTracking;
+import uk.me.candle.translations.conf.BundleConfiguration.LazyTranslation;
+import uk.me.candle.translations.conf.BundleConfiguration.LocaleInheritance;
 import uk.me.candle.translations.BundleCreationException;
 
 /**
@@ -25,57 +37,460 @@ import uk.me.candle.translations.BundleCreationException;
  */
 public final class BundleMaker {
 	private static final Logger LOG = LoggerFactory.getLogger(BundleMaker.class);
-	private static BundleClassLoader bundleClassLoader = new BundleClassLoader();
+	// the locales of each bundle class that do not have a precompiled class; this does not refer to the classes.
+	private static final Map<Class<?>, Set<Locale>> NOT_PRECOMPILED = Collections.synchronizedMap(new WeakHashMap<Class<?>, Set<Locale>>());
+	private static volatile BundleClassLoader bundleClassLoader = new BundleClassLoader();
+	// the class loader of the latest reload of each bundle class, which is used in place of the shared one for it.
+	private static final Map<Class<?>, BundleClassLoader> GENERATIONS = new ConcurrentHashMap<Class<?>, BundleClassLoader>();
 
 	private BundleMaker() {
 		throw new AssertionError("Must not call this constructor");
 	}
 
+	/**
+	 * Creates an instance of the bundle for the locale.
+	 *
+	 * If the implementation class was generated ahead of time, is available
+	 * from the bundle class's class loader, and was generated with the same
+	 * generation options as the configuration (see {@link #generateClass}),
+	 * then that class is used. Otherwise the translations are loaded from the
+	 * properties files and the class is generated.
+	 *
+	 * Once the bundle class has been reloaded, see {@link #reload}, the class
+	 * is generated in the class loader of the latest reload instead, and a
+	 * precompiled class is not used; so a bundle created after a reload has
+	 * the new translations.
+	 */
+	public static <T extends Bundle> T load(
+		Class<T> cls,
+		Locale locale,
+		BundleConfiguration configuration
+		) {
+		return load(cls, locale, locale, configuration);
+	}
+	/**
+	 * Creates an instance of the bundle for the locale, as
+	 * {@link #load(Class, Locale, BundleConfiguration)} does, but a generated
+	 * class is defined in the class loader rather than the shared one.
+	 *
+	 * Classes in the shared class loader are never unloaded; a class in its own
+	 * class loader is unloaded once nothing refers to its instances. Hidden
+	 * classes, see {@link BundleConfiguration#getHiddenClasses()}, are unloaded
+	 * once nothing refers to their instances with either class loader.
+	 * @param classLoader the class loader to define the class in, if it is generated.
+	 */
+	public static <T extends Bundle> T load(
+		Class<T> cls,
+		Locale locale,
+		BundleConfiguration configuration,
+		BundleClassLoader classLoader
+		) {
+		return load(cls, locale, locale, configuration, classLoader);
+	}
+	/**
+	 * Creates an instance of the bundle for the locale with the translations
+	 * of another locale, in the shared class loader, see
+	 * {@link #load(Class, Locale, Locale, BundleConfiguration, BundleClassLoader)}.
+	 */
+	public static <T extends Bundle> T load(
+		Class<T> cls,
+		Locale locale,
+		Locale translationLocale,
+		BundleConfiguration configuration
+		) {
+		BundleClassLoader generation = GENERATIONS.get(cls);
+		if (generation != null) {
+			// the shared and precompiled classes have the translations from before the reload.
+			return loadGenerated(cls, locale, translationLocale, configuration, generation);
+		}
+		return load(cls, locale, translationLocale, configuration, bundleClassLoader);
+	}
+	/**
+	 * Creates an instance of the bundle for the locale with the translations
+	 * of another locale, as
+	 * {@link #load(Class, Locale, BundleConfiguration, BundleClassLoader)}
+	 * creates the instance for that locale; every locale loaded with the same
+	 * translations shares one class. The locale of the instance is the
+	 * requested locale, so numbers and dates are formatted for it.
+	 * @param translationLocale the locale whose translation files are used, and whose class is generated.
+	 */
+	public static <T extends Bundle> T load(
+		Class<T> cls,
+		Locale locale,
+		Locale translationLocale,
+		BundleConfiguration configuration,
+		BundleClassLoader classLoader
+		) {
+		Class<? extends Bundle> generated = classLoader.getDefinedClass(getClassNameFor(cls, translationLocale));
+		if (generated != null) {
+			// already generated, so there is no precompiled class; this avoids looking for it again.
+			return getInstance(generated.asSubclass(cls), locale);
+		}
+		// a precompiled class has the translations from before a reload.
+		Class<? extends T> precompiled = GENERATIONS.containsKey(cls) ? null : findPrecompiledClass(cls, translationLocale, configuration);
+		if (precompiled != null) {
+			return getInstance(precompiled, locale);
+		}
+		return loadGenerated(cls, locale, translationLocale, configuration, classLoader);
+	}
 	public static <T extends Bundle> T load(
 		Class<T> cls,
 		Locale locale,
+		Properties translations,
 		BundleConfiguration configuration
 		) {
+		return load(cls, locale, Translations.of(translations), configuration);
+	}
+	private static <T extends Bundle> T load(
+		Class<T> cls,
+		Locale locale,
+		Translations translations,
+		BundleConfiguration configuration
+		) {
+		return load(cls, locale, translations, configuration, bundleClassLoader);
+	}
+	/**
+	 * Reads the translation files of the bundle for the locale and generates a
+	 * new implementation in the class loader, rather than the shared one. This
+	 * is used to replace a bundle whose translation files have changed, after
+	 * {@link #discardTranslations(Class)}; a precompiled class is never used.
+	 *
+	 * Define each set of replacements in a new class loader: the replaced
+	 * classes are unloaded once nothing refers to their instances. The class
+	 * loader replaces the shared one for the bundle class, so that the bundles
+	 * created later with {@link #load(Class, Locale, BundleConfiguration)}, and
+	 * the classes that the classes for more specific locales extend, are
+	 * generated with the new translations.
+	 * @param generation the class loader to define the new class in.
+	 */
+	public static <T extends Bundle> T reload(
+		Class<T> cls,
+		Locale locale,
+		BundleConfiguration configuration,
+		BundleClassLoader generation
+		) {
+		return reload(cls, locale, locale, configuration, generation);
+	}
+	/**
+	 * Reloads the bundle for the locale with the translations of another
+	 * locale, see {@link #load(Class, Locale, Locale, BundleConfiguration, BundleClassLoader)};
+	 * the locales reloaded with the same translations in the class loader share one new class.
+	 * @param translationLocale the locale whose translation files are used, and whose class is generated.
+	 */
+	public static <T extends Bundle> T reload(
+		Class<T> cls,
+		Locale locale,
+		Locale translationLocale,
+		BundleConfiguration configuration,
+		BundleClassLoader generation
+		) {
+		GENERATIONS.put(cls, generation);
+		return loadGenerated(cls, locale, translationLocale, configuration, generation);
+	}
+	/**
+	 * @return an instance of the class generated in the class loader, which is
+	 * generated from the translation files if it is missing.
+	 */
+	private static <T extends Bundle> T loadGenerated(
+		Class<T> cls,
+		Locale locale,
+		Locale translationLocale,
+		BundleConfiguration configuration,
+		BundleClassLoader loader
+		) {
+		Class<? extends Bundle> generated = loader.getDefinedClass(getClassNameFor(cls, translationLocale));
+		if (generated != null) {
+			return getInstance(generated.asSubclass(cls), locale);
+		}
 		try {
-			return load(
-				cls,
-				locale,
-				getBundleProperties(cls, locale, configuration),
-				configuration
-				);
+			return getInstance(defineClass(cls, translationLocale, getBundleProperties(cls, translationLocale, configuration), configuration, loader).asSubclass(cls), locale);
 		} catch (IOException ioe) {
 			throw new BundleCreationException(ioe.getMessage(), ioe);
 		}
 	}
+	/**
+	 * Runs the task without recording the calls that it makes to the bundles,
+	 * in the key usage or the metrics; for calls that are not uses of the
+	 * translations, such as calling every method to initialise a bundle.
+	 * Only the calls made on the current thread are not recorded.
+	 */
+	public static void runUntracked(Runnable task) {
+		Untracked.run(task);
+	}
+	/**
+	 * Forgets the translation files of the bundle that have been read, so that
+	 * they are read again when a bundle is next generated.
+	 */
+	public static void discardTranslations(Class<? extends Bundle> cls) {
+		PropertiesCache.get(cls.getClassLoader()).discard(getBasePath(cls));
+	}
+	/**
+	 * @return true if the bundle has a translation file, or a compiled catalog,
+	 * for exactly the locale; Foo_en_gb.properties for en_GB, Foo.properties for Locale.ROOT.
+	 */
+	public static boolean hasTranslations(Class<? extends Bundle> cls, Locale locale) {
+		ClassLoader classLoader = cls.getClassLoader() == null ? ClassLoader.getSystemClassLoader() : cls.getClassLoader();
+		String path = getExactPath(cls, locale);
+		return classLoader.getResource(path + ".properties") != null
+				|| classLoader.getResource(path + TranslationCatalog.EXTENSION) != null;
+	}
+	/**
+	 * The translation files that are checked are those that can be used for
+	 * the locale, and their compiled catalogs. Files that are not on the file
+	 * system, in a jar file for example, cannot change and are not checked.
+	 * @return the latest modification time of the translation files of the
+	 * bundle for the locale, in milliseconds since the epoch; or 0 if there are none.
+	 */
+	public static long getTranslationsLastModified(Class<? extends Bundle> cls, Locale locale) {
+		ClassLoader classLoader = cls.getClassLoader();
+		List<String> paths = getTranslationPaths(cls, locale);
+		paths.add(getExactPath(cls, locale));
+		long lastModified = 0;
+		for (String path : paths) {
+			for (String extension : new String[]{".properties", TranslationCatalog.EXTENSION}) {
+				URL resource = classLoader.getResource(path + extension);
+				File file = resource == null ? null : TranslationFileParser.toFile(resource);
+				if (file != null) {
+					lastModified = Math.max(lastModified, file.lastModified());
+				}
+			}
+		}
+		return lastModified;
+	}
 	@SuppressWarnings("unchecked") // the return statement. it's safe.
-	public static <T extends Bundle> T load(
+	private static <T extends Bundle> T load(
 		Class<T> cls,
 		Locale locale,
-		Properties translations,
-		BundleConfiguration configuration
+		Translations translations,
+		BundleConfiguration configuration,
+		BundleClassLoader loader
+		) {
+		return getInstance((Class<T>)defineClass(cls, locale, translations, configuration, loader), locale);
+	}
+	private static <T extends Bundle> Class<?> defineClass(
+		Class<T> cls,
+		Locale locale,
+		Translations translations,
+		BundleConfiguration configuration,
+		BundleClassLoader loader
 		) {
 		final String newName = getClassNameFor(cls, locale);
 
-		if (bundleClassLoader.isClassDefined(newName)) {
-			Class<?> result = bundleClassLoader.defineClass(newName, new byte[]{});
-			return getInstance((Class<T>)result, locale);
+		Class<?> result = loader.getDefinedClass(newName);
+		if (result == null) {
+			// different classes are generated concurrently; the same class is generated once.
+			// the lock of a locale's parent is taken while holding the locale's lock, never the other way around.
+			synchronized (loader.getDefinitionLock(newName)) {
+				result = loader.getDefinedClass(newName);
+				if (result == null) {
+					boolean lazy = configuration.getLazyTranslation().equals(LazyTranslation.YES);
+					if (lazy) {
+						loader.putLazyTranslations(newName, new LazyTranslations(cls.getName(), translations, locale, configuration));
+						result = define(loader, newName, generate(cls, locale, translations, configuration, true, null, null, false), cls, configuration);
+					} else {
+						Locale parentLocale = getInheritedLocale(locale, configuration);
+						Class<?> parent = parentLocale == null ? null : defineInheritedClass(cls, parentLocale, configuration, loader);
+						if (parent == null) {
+							result = define(loader, newName, generate(cls, locale, translations, configuration, false, null, null, false), cls, configuration);
+						} else {
+							result = loader.defineClass(newName, generate(cls, locale, translations, configuration, false,
+									getBundlePropertiesQuietly(cls, parentLocale, configuration), parent, false));
+						}
+					}
+				}
+			}
 		}
-
+		return result;
+	}
+	private static Class<?> define(BundleClassLoader loader, String name, byte[] b, Class<? extends Bundle> cls, BundleConfiguration configuration) {
+		if (configuration.getHiddenClasses().equals(HiddenClasses.YES)) {
+			return loader.defineHiddenClass(name, b, cls);
+		}
+		return loader.defineClass(name, b);
+	}
+	/**
+	 * @return the locale whose generated class the class for the locale
+	 * extends, or null if it is generated in full.
+	 */
+	private static Locale getInheritedLocale(Locale locale, BundleConfiguration configuration) {
+		// a hidden class cannot be extended by name.
+		if (!configuration.getLocaleInheritance().equals(LocaleInheritance.YES)
+				|| !configuration.getAllowDefaultLanguage().equals(AllowDefaultLanguage.YES)
+				|| configuration.getHiddenClasses().equals(HiddenClasses.YES)) {
+			return null;
+		}
+		if (!locale.getVariant().isEmpty()) {
+			return new Locale(locale.getLanguage(), locale.getCountry());
+		} else if (!locale.getCountry().isEmpty()) {
+			return new Locale(locale.getLanguage());
+		}
+		return null;
+	}
+	/**
+	 * @return the generated class for the locale, in the class loader, or null
+	 * if it cannot be generated; then the class that would extend it is generated in full.
+	 */
+	private static <T extends Bundle> Class<?> defineInheritedClass(Class<T> cls, Locale locale, BundleConfiguration configuration, BundleClassLoader loader) {
+		try {
+			return defineClass(cls, locale, getBundleProperties(cls, locale, configuration), configuration, loader);
+		} catch (IOException ex) {
+			LOG.debug("Could not generate " + cls.getName() + " in " + locale + " to extend", ex);
+		} catch (RuntimeException ex) {
+			LOG.debug("Could not generate " + cls.getName() + " in " + locale + " to extend", ex);
+		}
+		return null;
+	}
+	private static <T extends Bundle> Translations getBundlePropertiesQuietly(Class<T> clz, Locale locale, BundleConfiguration configuration) {
+		try {
+			// these were read for the class that was just generated, so they are cached.
+			return getBundleProperties(clz, locale, configuration);
+		} catch (IOException ex) {
+			throw new BundleCreationException(ex.getMessage(), ex);
+		}
+	}
+	/**
+	 * Generates the implementation class of the bundle for the locale, without
+	 * defining it. This is used to generate the classes ahead of time; the class
+	 * file should be written to the same location as the bundle class using the
+	 * name from {@link #getClassNameFor(Class, Locale)}.
+	 * This performs all of the checks that {@link #load(Class, Locale, BundleConfiguration)} does.
+	 *
+	 * The class records the options of the configuration that change the
+	 * generated class: LazyTranslation, LocaleInheritance, Instrumentation,
+	 * KeyUsageTracking and HiddenClasses. The class is only used by a load with
+	 * a configuration that has the same options; it is always generated in full,
+	 * without lazy translation, and defined as a normal class.
+	 * @return the class file
+	 */
+	public static <T extends Bundle> byte[] generateClass(
+		Class<T> cls,
+		Locale locale,
+		BundleConfiguration configuration
+		) {
+		try {
+			return generate(cls, locale, getBundleProperties(cls, locale, configuration), configuration, false, null, null, true);
+		} catch (IOException ioe) {
+			throw new BundleCreationException(ioe.getMessage(), ioe);
+		}
+	}
+	/**
+	 * Checks the translations of the bundle for the locale, without defining a class.
+	 * This makes all of the checks that are skipped when the configuration
+	 * uses {@link LazyTranslation#YES}; missing keys, extra keys and parameter
+	 * mismatches, as configured.
+	 * @throws MissingResourceException if the check fails.
+	 * @throws BundleCreationException if the bundle class is not valid.
+	 */
+	public static <T extends Bundle> void validate(
+		Class<T> cls,
+		Locale locale,
+		BundleConfiguration configuration
+		) {
+		generateClass(cls, locale, configuration);
+	}
+	private static <T extends Bundle> Class<? extends T> findPrecompiledClass(Class<T> cls, Locale locale, BundleConfiguration configuration) {
+		ClassLoader classLoader = cls.getClassLoader();
+		if (classLoader == null) {
+			return null;
+		}
+		Set<Locale> notPrecompiled = NOT_PRECOMPILED.get(cls);
+		if (notPrecompiled != null && notPrecompiled.contains(locale)) {
+			// a class that is generated in a new class loader each time would otherwise look again each time.
+			return null;
+		}
+		try {
+			Class<?> precompiled = Class.forName(getClassNameFor(cls, locale), true, classLoader);
+			if (precompiled.getSuperclass() != cls) {
+				LOG.warn("{} is not a generated implementation of {}", precompiled, cls);
+			} else if (!getGenerationOptions(configuration).equals(getGenerationOptions(precompiled))) {
+				LOG.debug("{} was generated with {}, not {}", new Object[] {precompiled, getGenerationOptions(precompiled), getGenerationOptions(configuration)});
+			} else {
+				return precompiled.asSubclass(cls);
+			}
+		} catch (ClassNotFoundException ex) {
+			LOG.debug("No precompiled class for {} in {}", cls, locale);
+			synchronized (NOT_PRECOMPILED) {
+				notPrecompiled = NOT_PRECOMPILED.get(cls);
+				if (notPrecompiled == null) {
+					notPrecompiled = ConcurrentHashMap.<Locale>newKeySet();
+					NOT_PRECOMPILED.put(cls, notPrecompiled);
+				}
+			}
+			notPrecompiled.add(locale);
+		}
+		return null;
+	}
+	/**
+	 * @return the options of the configuration that change the generated class.
+	 */
+	static String getGenerationOptions(BundleConfiguration configuration) {
+		return "LazyTranslation=" + configuration.getLazyTranslation()
+				+ ",LocaleInheritance=" + configuration.getLocaleInheritance()
+				+ ",Instrumentation=" + configuration.getInstrumentation()
+				+ ",KeyUsageTracking=" + configuration.getKeyUsageTracking()
+				+ ",HiddenClasses=" + configuration.getHiddenClasses();
+	}
+	/**
+	 * @return the options that the precompiled class was generated with, or
+	 * null if they were not recorded.
+	 */
+	private static String getGenerationOptions(Class<?> precompiled) {
+		try {
+			return (String) precompiled.getField(ImplementMethodsAdapter.GENERATION_OPTIONS_FIELD).get(null);
+		} catch (NoSuchFieldException ex) {
+			return null;
+		} catch (IllegalAccessException ex) {
+			return null;
+		}
+	}
+	/**
+	 * @param inherited the translations of the class that the generated class extends, or null.
+	 * @param superClass the generated class that the generated class extends, or null to extend the bundle class.
+	 * @param precompiled if true then the class records the generation options of the configuration.
+	 */
+	private static <T extends Bundle> byte[] generate(
+		Class<T> cls,
+		Locale locale,
+		Translations translations,
+		BundleConfiguration configuration,
+		boolean lazy,
+		Translations inherited,
+		Class<?> superClass,
+		boolean precompiled
+		) {
 		final Set<String> usedKeys = new HashSet<String>();
 
 		final ClassReader cr;
+		// read the class from the bundle's class loader, it may not be visible from the system class loader.
+		ClassLoader classLoader = cls.getClassLoader() == null ? ClassLoader.getSystemClassLoader() : cls.getClassLoader();
+		InputStream in = classLoader.getResourceAsStream(cls.getName().replace('.', '/') + ".class");
+		if (in == null) {
+			throw new BundleCreationException("The class file for " + cls.getName() + " could not be found");
+		}
 		try {
-			cr = new ClassReader(cls.getName());
+			try {
+				cr = new ClassReader(in);
+			} finally {
+				in.close();
+			}
 		} catch (IOException ioe) {
 			throw new BundleCreationException(ioe.getMessage(), ioe);
 		}
-		final ClassWriter cw = new ClassWriter(cr, ClassWriter.COMPUTE_FRAMES);
-		final ImplementMethodsAdapter ca = new ImplementMethodsAdapter(cw, translations, usedKeys, locale, configuration);
+		final ClassWriter cw = new BundleClassWriter(cr, classLoader);
+		final ImplementMethodsAdapter ca = new ImplementMethodsAdapter(cw, translations, usedKeys, locale, configuration, lazy,
+				inherited, superClass == null ? null : superClass.getName().replace('.', '/'));
+		if (configuration.getKeyUsageTracking().equals(KeyUsageTracking.YES)) {
+			ca.trackKeyUsage(KeyUsage.getKeys(cls));
+		}
+		if (precompiled) {
+			ca.recordGenerationOptions(getGenerationOptions(configuration));
+		}
 		cr.accept(ca, 0);
 
 		final byte[] b2 = cw.toByteArray();
 
-		if (!configuration.getIgnoreExtra().equals(IgnoreExtra.YES)) {
+		// with lazy translation the keys are not checked until they are used.
+		if (!lazy && !configuration.getIgnoreExtra().equals(IgnoreExtra.YES)) {
 			final Set<String> extras = checkForExtras(translations, usedKeys);
 
 			if (!extras.isEmpty()) {
@@ -89,10 +504,7 @@ public final class BundleMaker {
 				throw new MissingResourceException("Extra keys in the bundle: " + sb.toString(), cls.getName(), sb.toString());
 			}
 		}
-
-		Class<?> result = bundleClassLoader.defineClass(newName, b2);
-
-		return getInstance((Class<T>)result, locale);
+		return b2;
 	}
 	private static <T extends Bundle> T getInstance(Class<T> clz, Locale locale) {
 		try {
@@ -112,7 +524,10 @@ public final class BundleMaker {
 			throw new BundleCreationException(ex.getMessage(), ex);
 		}
 	}
-	static <T extends Bundle> String getClassNameFor(Class<T> clz, Locale locale) {
+	/**
+	 * @return the binary name of the generated implementation of the bundle for the locale.
+	 */
+	public static <T extends Bundle> String getClassNameFor(Class<T> clz, Locale locale) {
 		// if the method is being called from here then the returned value's packages will be '.' separated
 		return getClassNameFor(clz.getName(), locale);
 	}
@@ -137,23 +552,37 @@ public final class BundleMaker {
 	 * @param translations
 	 * @param usedKeys
 	 */
-	private static Set<String> checkForExtras(Properties translations, Set<String> usedKeys) {
-		Set<String> extras = new HashSet<String>(translations.stringPropertyNames());
+	static Set<String> checkForExtras(Translations translations, Set<String> usedKeys) {
+		Set<String> extras = translations.getKeys();
 		extras.removeAll(usedKeys);
 		return extras;
 	}
-	private static <T extends Bundle> Properties getBundleProperties(Class<T> clz, Locale locale, BundleConfiguration configuration) throws IOException {
+	static <T extends Bundle> Translations getBundleProperties(Class<T> clz, Locale locale, BundleConfiguration configuration) throws IOException {
 		if (configuration.getAllowDefaultLanguage() == AllowDefaultLanguage.YES) {
 			return getBundlePropertiesWithDefaults(clz, locale);
 		} else {
 			return getBundlePropertiesExact(clz, locale);
 		}
 	}
-	private static <T extends Bundle> Properties getBundlePropertiesExact(Class<T> clz, Locale locale) throws IOException {
-		StringBuilder sb = new StringBuilder();
-		sb.append(clz.getPackage().getName().replace(".", "/"));
-		sb.append("/");
-		sb.append(clz.getSimpleName());
+	private static <T extends Bundle> Translations getBundlePropertiesExact(Class<T> clz, Locale locale) throws IOException {
+		String path = getExactPath(clz, locale);
+		// this uses the classloader from the bundle class so it should avoid spurious
+		// classloader issues. The properties should, therefrore, be available from the
+		// classloader as the bundle class.
+		Translations props = PropertiesCache.get(clz.getClassLoader()).getFile(clz.getClassLoader(), path);
+		if (props == null) {
+			throw new MissingResourceException("There was no resource for the path: " + path, clz.getName(), "");
+		}
+		return props;
+	}
+	private static String getBasePath(Class<?> clz) {
+		return clz.getPackage().getName().replace(".", "/") + "/" + clz.getSimpleName();
+	}
+	/**
+	 * @return the path of the only translation file used when the default language is not allowed, without '.properties'
+	 */
+	private static String getExactPath(Class<?> clz, Locale locale) {
+		StringBuilder sb = new StringBuilder(getBasePath(clz));
 		if (!locale.getLanguage().isEmpty()) {
 			sb.append("_");
 			sb.append(locale.getLanguage().toLowerCase(Locale.ENGLISH));
@@ -166,19 +595,28 @@ public final class BundleMaker {
 				}
 			}
 		}
-		// this uses the classloader from the bundle class so it should avoid spurious
-		// classloader issues. The properties should, therefrore, be available from the
-		// classloader as the bundle class.
-		InputStream main = clz.getClassLoader().getResourceAsStream(sb.toString() + ".properties");
-		if (main == null) {
-			throw new MissingResourceException("There was no resource for the path: " + sb.toString(), clz.getName(), "");
-		}
-		Properties props = new Properties();
-		props.load(main);
-		return props;
+		return sb.toString();
+	}
+	/**
+	 * @return the paths of the translation files used when the default language is allowed, least specific first, without '.properties'
+	 */
+	private static List<String> getTranslationPaths(Class<?> clz, Locale locale) {
+		List<String> paths = new ArrayList<String>(5);
+		StringBuilder sb = new StringBuilder(getBasePath(clz));
+		paths.add(sb.toString());
+		sb.append("_");
+		sb.append(locale.getLanguage().toLowerCase(Locale.ENGLISH));
+		paths.add(sb.toString());
+		sb.append("_");
+		sb.append(locale.getCountry().toLowerCase(Locale.ENGLISH));
+		paths.add(sb.toString());
+		sb.append("_");
+		sb.append(locale.getVariant().toLowerCase(Locale.ENGLISH));
+		paths.add(sb.toString());
+		return paths;
 	}
 	/**
-	 * Loads the property file if it exists into the property values,
+	 * Adds the layer for the properties file, if it exists, on top of the existing properties.
 	 * @param <T> bundle type
 	 * @param from existing properties, these act as defaults.
 	 * @param clz class that is being used as the translations template.
@@ -186,42 +624,20 @@ public final class BundleMaker {
 	 * @return the properties file that should be used as translations.
 	 * @throws IOException
 	 */
-	private static <T extends Bundle> Properties appendValuesFrom(
-			Properties from,
+	private static <T extends Bundle> Translations appendValuesFrom(
+			Translations from,
 			Class<T> clz,
 			String propertiesReference) throws IOException {
-		LOG.debug("Attempting to add properties from: {}.properties", propertiesReference);
-		Properties ret = new Properties();
-		ret.putAll(from);
-		InputStream in = clz.getClassLoader().getResourceAsStream(propertiesReference + ".properties");
-		if (in != null) {
-			LOG.debug("    Found.");
-			Properties newProps = new Properties();
-			newProps.load(in);
-			ret.putAll(newProps);
-		} else {
-			LOG.debug("    Properties file not found.");
-		}
-		return ret;
+		LOG.debug("Adding properties from: {}.properties", propertiesReference);
+		return PropertiesCache.get(clz.getClassLoader()).getLayer(clz.getClassLoader(), propertiesReference, from);
 	}
 
-	private static <T extends Bundle> Properties getBundlePropertiesWithDefaults(Class<T> clz, Locale locale) throws IOException {
+	private static <T extends Bundle> Translations getBundlePropertiesWithDefaults(Class<T> clz, Locale locale) throws IOException {
 		LOG.debug("Fetching bundle [default allowed] for {} , {}", clz, locale);
-		StringBuilder sb = new StringBuilder();
-		sb.append(clz.getPackage().getName().replace(".", "/"));
-		sb.append("/");
-		sb.append(clz.getSimpleName());
-
-		Properties p = new Properties();
-		p = appendValuesFrom(p, clz, sb.toString());
-		sb.append("_");
-		sb.append(locale.getLanguage().toLowerCase(Locale.ENGLISH));
-		p = appendValuesFrom(p, clz, sb.toString());
-		sb.append("_");
-		sb.append(locale.getCountry().toLowerCase(Locale.ENGLISH));
-		p = appendValuesFrom(p, clz, sb.toString());
-		sb.append("_");
-		sb.append(locale.getVariant().toLowerCase(Locale.ENGLISH));
-		return appendValuesFrom(p, clz, sb.toString());
+		Translations p = null;
+		for (String path : getTranslationPaths(clz, locale)) {
+			p = appendValuesFrom(p, clz, path);
+		}
+		return p;
 	}
 }
@@ -0,0 +1,78 @@
+package uk.me.candle.translations.maker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The call counts and formatting times of the methods of the bundles that
+ * are generated with
+ * {@link uk.me.candle.translations.conf.BundleConfiguration.Instrumentation#YES}.
+ *
+ * There is one {@link MethodMetrics} for each bundle class, method and
+ * locale of the translations; every instance of the bundle, and every class
+ * generated for it, records to the same one. The bundles of the locales that
+ * share a class, see
+ * {@link BundleMaker#load(Class, Locale, Locale, uk.me.candle.translations.conf.BundleConfiguration, BundleClassLoader)},
+ * record to the metrics of the class's locale; so there are only metrics for
+ * the locales that classes are generated for, not for every locale requested.
+ *
+ * @author Andrew
+ */
+public final class BundleMetrics {
+	private static final ConcurrentMap<List<Object>, MethodMetrics> METRICS = new ConcurrentHashMap<List<Object>, MethodMetrics>();
+
+	private BundleMetrics() {
+		throw new AssertionError("Must not call this constructor");
+	}
+
+	/**
+	 * This is called by the constructors of the generated classes.
+	 * @param locale the locale of the translations, that the class was generated for.
+	 * @return the metrics of the method, which are created if they do not exist.
+	 */
+	public static MethodMetrics getMethodMetrics(String bundleClassName, String methodName, Locale locale) {
+		List<Object> key = Arrays.<Object>asList(bundleClassName, methodName, locale);
+		MethodMetrics metrics = METRICS.get(key);
+		if (metrics == null) {
+			metrics = new MethodMetrics(bundleClassName, methodName, locale);
+			MethodMetrics existing = METRICS.putIfAbsent(key, metrics);
+			if (existing != null) {
+				metrics = existing;
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * @return the metrics of every instrumented method of every bundle that has been created.
+	 */
+	public static List<MethodMetrics> getMethodMetrics() {
+		return new ArrayList<MethodMetrics>(METRICS.values());
+	}
+
+	/**
+	 * @return the metrics of every instrumented method of the bundle class that has been created, in any locale.
+	 */
+	public static List<MethodMetrics> getMethodMetrics(Class<?> bundleClass) {
+		List<MethodMetrics> metrics = new ArrayList<MethodMetrics>();
+		for (MethodMetrics m : METRICS.values()) {
+			if (m.getBundleClassName().equals(bundleClass.getName())) {
+				metrics.add(m);
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Sets every call count and formatting time to zero.
+	 */
+	public static void reset() {
+		for (MethodMetrics m : METRICS.values()) {
+			m.reset();
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package uk.me.candle.translations.maker;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.me.candle.translations.Bundle;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.conf.BundleConfiguration.IgnoreExtra;
+import uk.me.candle.translations.conf.BundleConfiguration.IgnoreMissing;
+import uk.me.candle.translations.conf.BundleConfiguration.IgnoreParameterMisMatch;
+import uk.me.candle.translations.conf.BundleConfigurationBuilder;
+
+/**
+ * Checks every bundle class in every locale that it has translations for, in
+ * parallel on a fork/join pool. The same checks as {@link BundleMaker#validate}
+ * are made, but no class is generated or defined, and every problem with each
+ * bundle and locale is reported rather than the first.
+ *
+ * The bundles are found in a directory of classes: each abstract Bundle class
+ * that has a translation file, Foo.properties or Foo_en_gb.properties for
+ * example, is checked in the locale of each of its translation files.
+ *
+ * Usage: java uk.me.candle.translations.maker.BundleValidator [--ignore-missing]
+ * [--ignore-extra] [--ignore-parameter-mismatch] [--no-default-language] classes-directory ...
+ *
+ * The bundle classes, and the classes that they use, must be on the class path
+ * or in the directories. The exit status is 1 if there are any problems.
+ *
+ * @author Andrew
+ */
+public final class BundleValidator {
+	private static final Logger LOG = LoggerFactory.getLogger(BundleValidator.class);
+	private static final String CLASS = ".class";
+
+	private BundleValidator() {
+		throw new AssertionError("Must not call this constructor");
+	}
+
+	public static void main(String[] args) throws IOException {
+		BundleConfigurationBuilder builder = new BundleConfigurationBuilder();
+		List<URL> urls = new ArrayList<URL>();
+		List<File> directories = new ArrayList<File>();
+		for (String arg : args) {
+			if (arg.equals("--ignore-missing")) {
+				builder.ignoreMissing(IgnoreMissing.YES);
+			} else if (arg.equals("--ignore-extra")) {
+				builder.ignoreExtra(IgnoreExtra.YES);
+			} else if (arg.equals("--ignore-parameter-mismatch")) {
+				builder.ignoreParameterMisMatch(IgnoreParameterMisMatch.YES);
+			} else if (arg.equals("--no-default-language")) {
+				builder.allowDefaultLanguage(BundleConfiguration.AllowDefaultLanguage.NO);
+			} else {
+				File directory = new File(arg);
+				directories.add(directory);
+				urls.add(directory.toURI().toURL());
+			}
+		}
+		ValidationReport report;
+		URLClassLoader classLoader = new URLClassLoader(urls.toArray(new URL[urls.size()]), BundleValidator.class.getClassLoader());
+		try {
+			Map<Class<? extends Bundle>, List<Locale>> bundles = new LinkedHashMap<Class<? extends Bundle>, List<Locale>>();
+			for (File directory : directories) {
+				bundles.putAll(discover(directory, classLoader));
+			}
+			report = validate(bundles, builder.build());
+		} finally {
+			classLoader.close();
+		}
+		System.out.println(report);
+		if (!report.isSuccessful()) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Finds the bundle classes in the directory and the locales of their
+	 * translation files; Locale.ROOT for Foo.properties. The classes are
+	 * loaded, but not initialised.
+	 * @param classLoader loads the classes in the directory.
+	 * @return the locales of each bundle class.
+	 */
+	public static Map<Class<? extends Bundle>, List<Locale>> discover(File directory, ClassLoader classLoader) throws IOException {
+		if (!directory.isDirectory()) {
+			throw new IOException(directory + " is not a directory");
+		}
+		Map<Class<? extends Bundle>, List<Locale>> bundles = new LinkedHashMap<Class<? extends Bundle>, List<Locale>>();
+		discover(directory, "", classLoader, bundles);
+		return bundles;
+	}
+
+	private static void discover(File directory, String packagePrefix, ClassLoader classLoader, Map<Class<? extends Bundle>, List<Locale>> bundles) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files);
+		List<String> classNames = new ArrayList<String>();
+		Set<String> simpleNames = new HashSet<String>();
+		SortedSet<String> translationFiles = new TreeSet<String>();
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isDirectory()) {
+				discover(file, packagePrefix + name + ".", classLoader, bundles);
+			} else if (name.endsWith(CLASS) && !name.contains("__")) { // not a generated class
+				String className = name.substring(0, name.length() - CLASS.length());
+				classNames.add(className);
+				simpleNames.add(className.substring(className.lastIndexOf('$') + 1));
+			} else if (name.endsWith(".properties")) {
+				translationFiles.add(name.substring(0, name.length() - ".properties".length()));
+			} else if (name.endsWith(TranslationCatalog.EXTENSION)) {
+				translationFiles.add(name.substring(0, name.length() - TranslationCatalog.EXTENSION.length()));
+			}
+		}
+		for (String className : classNames) {
+			String simpleName = className.substring(className.lastIndexOf('$') + 1);
+			List<Locale> locales = new ArrayList<Locale>();
+			for (String translationFile : translationFiles) {
+				if (translationFile.equals(simpleName)) {
+					locales.add(Locale.ROOT);
+				} else if (translationFile.startsWith(simpleName + "_") && !simpleNames.contains(translationFile)) {
+					locales.add(parseLocale(translationFile.substring(simpleName.length() + 1)));
+				}
+			}
+			if (locales.isEmpty()) {
+				continue;
+			}
+			try {
+				Class<?> cls = Class.forName(packagePrefix + className, false, classLoader);
+				if (Bundle.class.isAssignableFrom(cls) && Modifier.isAbstract(cls.getModifiers())) {
+					bundles.put(cls.asSubclass(Bundle.class), locales);
+				}
+			} catch (ClassNotFoundException ex) {
+				LOG.warn("Could not load " + packagePrefix + className, ex);
+			} catch (LinkageError ex) {
+				LOG.warn("Could not load " + packagePrefix + className, ex);
+			}
+		}
+	}
+
+	/**
+	 * @param suffix the locale part of a translation file name: en, en_gb or ja_jp_jp
+	 */
+	static Locale parseLocale(String suffix) {
+		String[] parts = suffix.split("_", 3);
+		switch (parts.length) {
+			case 1:
+				return new Locale(parts[0]);
+			case 2:
+				return new Locale(parts[0], parts[1]);
+			default:
+				return new Locale(parts[0], parts[1], parts[2]);
+		}
+	}
+
+	/**
+	 * Checks the bundles on the common fork/join pool.
+	 */
+	public static ValidationReport validate(Map<Class<? extends Bundle>, ? extends Collection<Locale>> bundles, BundleConfiguration configuration) {
+		return validate(bundles, configuration, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Checks each bundle class in each of its locales, concurrently.
+	 * @return the problems with every bundle class and locale.
+	 */
+	public static ValidationReport validate(Map<Class<? extends Bundle>, ? extends Collection<Locale>> bundles, BundleConfiguration configuration, ForkJoinPool pool) {
+		long start = System.nanoTime();
+		List<Class<? extends Bundle>> classes = new ArrayList<Class<? extends Bundle>>();
+		List<Locale> locales = new ArrayList<Locale>();
+		for (Map.Entry<Class<? extends Bundle>, ? extends Collection<Locale>> e : bundles.entrySet()) {
+			for (Locale locale : e.getValue()) {
+				classes.add(e.getKey());
+				locales.add(locale);
+			}
+		}
+		List<ValidationReport.Entry> entries = classes.isEmpty()
+				? new ArrayList<ValidationReport.Entry>()
+				: pool.invoke(new ValidateTask(classes, locales, configuration, 0, classes.size()));
+		return new ValidationReport(entries, System.nanoTime() - start);
+	}
+
+	/**
+	 * Splits the bundle classes and locales in half until there is one to check.
+	 */
+	private static final class ValidateTask extends RecursiveTask<List<ValidationReport.Entry>> {
+		private static final long serialVersionUID = 1L;
+		private final List<Class<? extends Bundle>> classes;
+		private final List<Locale> locales;
+		private final BundleConfiguration configuration;
+		private final int from;
+		private final int to;
+
+		ValidateTask(List<Class<? extends Bundle>> classes, List<Locale> locales, BundleConfiguration configuration, int from, int to) {
+			this.classes = classes;
+			this.locales = locales;
+			this.configuration = configuration;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<ValidationReport.Entry> compute() {
+			if (to - from == 1) {
+				long start = System.nanoTime();
+				List<String> problems = check(classes.get(from), locales.get(from), configuration);
+				List<ValidationReport.Entry> entries = new ArrayList<ValidationReport.Entry>(1);
+				entries.add(new ValidationReport.Entry(classes.get(from), locales.get(from), System.nanoTime() - start, problems));
+				return entries;
+			}
+			int middle = (from + to) >>> 1;
+			ValidateTask first = new ValidateTask(classes, locales, configuration, from, middle);
+			first.fork();
+			List<ValidationReport.Entry> second = new ValidateTask(classes, locales, configuration, middle, to).compute();
+			List<ValidationReport.Entry> entries = first.join();
+			entries.addAll(second);
+			return entries;
+		}
+	}
+
+	/**
+	 * Makes the checks that generating the class makes, as configured, without
+	 * stopping at the first problem; see {@link MethodChecks}.
+	 * @return a description of each problem, or an empty list.
+	 */
+	static List<String> check(Class<? extends Bundle> cls, Locale locale, BundleConfiguration configuration) {
+		List<String> problems = new ArrayList<String>();
+		Translations translations;
+		try {
+			translations = BundleMaker.getBundleProperties(cls, locale, configuration);
+		} catch (IOException ex) {
+			problems.add("The translations could not be read: " + ex.getMessage());
+			return problems;
+		} catch (MissingResourceException ex) {
+			problems.add(ex.getMessage());
+			return problems;
+		} catch (IllegalArgumentException ex) {
+			problems.add("The translations could not be read: " + ex.getMessage());
+			return problems;
+		}
+		Method[] methods = cls.getDeclaredMethods();
+		// the order of getDeclaredMethods is not specified.
+		Arrays.sort(methods, new Comparator<Method>() {
+			@Override
+			public int compare(Method a, Method b) {
+				return a.toString().compareTo(b.toString());
+			}
+		});
+		MethodChecks checks = MethodChecks.collecting(cls.getName(), locale, translations, configuration, problems);
+		Set<String> usedKeys = new HashSet<String>();
+		for (Method method : methods) {
+			if (!Modifier.isAbstract(method.getModifiers())) {
+				continue;
+			}
+			String name = method.getName();
+			Type[] arguments = checks.checkSignature(method.getModifiers(), name, Type.getMethodDescriptor(method));
+			if (arguments == null) {
+				continue;
+			}
+			usedKeys.add(name);
+			String translation = checks.getTranslation(name);
+			if (translation != null) {
+				checks.checkParameters(name, translation, arguments.length);
+			}
+		}
+		if (configuration.getIgnoreExtra().equals(IgnoreExtra.NO)) {
+			List<String> extras = new ArrayList<String>(BundleMaker.checkForExtras(translations, usedKeys));
+			if (!extras.isEmpty()) {
+				Collections.sort(extras);
+				StringBuilder sb = new StringBuilder();
+				for (String s : extras) {
+					if (sb.length() != 0) {
+						sb.append(", ");
+					}
+					sb.append(s);
+				}
+				problems.add("Extra keys in the bundle: " + sb.toString());
+			}
+		}
+		return problems;
+	}
+}
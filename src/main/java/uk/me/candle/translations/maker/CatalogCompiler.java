@@ -0,0 +1,302 @@
+package uk.me.candle.translations.maker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiles translation files into translation catalogs, which BundleMaker
+ * reads instead of the properties files. The catalog for Foo_en.properties is
+ * Foo_en.translations, in the same directory. A catalog is used whenever it
+ * exists, so it must be compiled again when the properties file changes.
+ *
+ * Running processes map the catalog files, so a catalog must never be
+ * modified in place: truncating or rewriting a mapped file makes reads of the
+ * old mapping fail, with an InternalError or a SIGBUS. The compiler writes a
+ * new file in the same directory and renames it over the catalog; processes
+ * that mapped the old file keep reading it until they reload.
+ *
+ * The catalog holds each key and value, the number of placeholders in the
+ * value and the literal text and placeholders of the value; so that no
+ * text is parsed, and no patterns are parsed to check them, when a bundle
+ * is created.
+ *
+ * Usage: java uk.me.candle.translations.maker.CatalogCompiler Foo.properties Foo_en.properties ...
+ *
+ * @author Andrew
+ */
+public final class CatalogCompiler {
+	private static final String PROPERTIES = ".properties";
+
+	private CatalogCompiler() {
+		throw new AssertionError("Must not call this constructor");
+	}
+
+	public static void main(String[] args) throws IOException {
+		for (String arg : args) {
+			File properties = new File(arg);
+			File catalog = getCatalogFile(properties);
+			compile(properties, catalog);
+			System.out.println(properties + " -> " + catalog);
+		}
+	}
+
+	/**
+	 * @return Foo_en.translations for Foo_en.properties
+	 */
+	public static File getCatalogFile(File properties) {
+		String name = properties.getName();
+		if (name.endsWith(PROPERTIES)) {
+			name = name.substring(0, name.length() - PROPERTIES.length());
+		}
+		return new File(properties.getParentFile(), name + TranslationCatalog.EXTENSION);
+	}
+
+	/**
+	 * Compiles the properties file into the catalog file, which is replaced atomically.
+	 * @throws IllegalArgumentException if the properties file has a malformed \\uXXXX escape.
+	 */
+	public static void compile(File properties, File catalog) throws IOException {
+		final Map<String, String> translations = new TreeMap<String, String>();
+		TranslationFileParser.parse(properties.toURI().toURL(), new TranslationFileParser.Handler() {
+			@Override
+			public void translation(String key, String value) {
+				translations.put(key, value);
+			}
+		});
+		byte[] b = compile(translations);
+		// in the same directory, so that it can be renamed over the catalog.
+		File temp = File.createTempFile(catalog.getName(), ".tmp", catalog.getAbsoluteFile().getParentFile());
+		try {
+			OutputStream out = new FileOutputStream(temp);
+			try {
+				out.write(b);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(temp.toPath(), catalog.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException ex) {
+				Files.move(temp.toPath(), catalog.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	static byte[] compile(Map<String, String> translations) throws IOException {
+		Map<String, String> sorted = new TreeMap<String, String>(translations);
+		ByteArrayOutputStream entries = new ByteArrayOutputStream();
+		DataOutputStream entryOut = new DataOutputStream(entries);
+		int headerLength = 8 + sorted.size() * 4;
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(file);
+		out.writeInt(TranslationCatalog.MAGIC);
+		out.writeInt(sorted.size());
+		for (Map.Entry<String, String> e : sorted.entrySet()) {
+			out.writeInt(headerLength + entryOut.size());
+			writeEntry(entryOut, e.getKey(), e.getValue());
+		}
+		entryOut.flush();
+		entries.writeTo(out);
+		out.flush();
+		return file.toByteArray();
+	}
+
+	private static void writeEntry(DataOutputStream out, String key, String value) throws IOException {
+		writeString(out, key);
+		writeString(out, value);
+		MessageFormat format;
+		try {
+			format = new MessageFormat(value, Locale.ROOT);
+		} catch (IllegalArgumentException ex) {
+			// not a valid pattern, that is reported when a method uses the key.
+			out.writeInt(-1);
+			out.writeByte(0);
+			return;
+		}
+		out.writeInt(ImplementMethodsAdapter.countFields(format));
+		Structure structure = Structure.scan(value);
+		if (structure == null || !structure.matches(value)) {
+			out.writeByte(0);
+			return;
+		}
+		out.writeByte(1);
+		out.writeInt(structure.argumentIndexes.size());
+		for (String literal : structure.literals) {
+			writeString(out, literal);
+		}
+		for (int i = 0; i < structure.argumentIndexes.size(); ++i) {
+			out.writeInt(structure.argumentIndexes.get(i));
+			out.writeByte(structure.kinds.get(i));
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	/**
+	 * The literal text and placeholders of a pattern. The placeholders are
+	 * classified from the text of the pattern, following MessageFormat.applyPattern;
+	 * the number formats depend on the locale, so they can not be compared here.
+	 */
+	private static final class Structure {
+		private static final int SEG_RAW = 0;
+		private static final int SEG_INDEX = 1;
+		private static final int SEG_TYPE = 2;
+		private static final int SEG_MODIFIER = 3;
+
+		private final List<String> literals = new ArrayList<String>();
+		private final List<Integer> argumentIndexes = new ArrayList<Integer>();
+		private final List<Byte> kinds = new ArrayList<Byte>();
+
+		static Structure scan(String pattern) {
+			Structure structure = new Structure();
+			StringBuilder[] segments = new StringBuilder[4];
+			for (int i = 0; i < segments.length; ++i) {
+				segments[i] = new StringBuilder();
+			}
+			int part = SEG_RAW;
+			boolean inQuote = false;
+			int braceStack = 0;
+			for (int i = 0; i < pattern.length(); ++i) {
+				char ch = pattern.charAt(i);
+				if (part == SEG_RAW) {
+					if (ch == '\'') {
+						if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+							segments[part].append(ch);
+							++i;
+						} else {
+							inQuote = !inQuote;
+						}
+					} else if (ch == '{' && !inQuote) {
+						part = SEG_INDEX;
+					} else {
+						segments[part].append(ch);
+					}
+				} else if (inQuote) {
+					segments[part].append(ch);
+					if (ch == '\'') {
+						inQuote = false;
+					}
+				} else {
+					switch (ch) {
+						case ',':
+							if (part < SEG_MODIFIER) {
+								++part;
+							} else {
+								segments[part].append(ch);
+							}
+							break;
+						case '{':
+							++braceStack;
+							segments[part].append(ch);
+							break;
+						case '}':
+							if (braceStack == 0) {
+								part = SEG_RAW;
+								if (!structure.add(segments)) {
+									return null;
+								}
+							} else {
+								--braceStack;
+								segments[part].append(ch);
+							}
+							break;
+						case ' ':
+							// space before the type is ignored
+							if (part != SEG_TYPE || segments[SEG_TYPE].length() > 0) {
+								segments[part].append(ch);
+							}
+							break;
+						case '\'':
+							inQuote = true;
+							segments[part].append(ch);
+							break;
+						default:
+							segments[part].append(ch);
+							break;
+					}
+				}
+			}
+			if (part != SEG_RAW) {
+				return null; // unmatched brace
+			}
+			structure.literals.add(segments[SEG_RAW].toString());
+			return structure;
+		}
+
+		private boolean add(StringBuilder[] segments) {
+			int argumentIndex;
+			try {
+				argumentIndex = Integer.parseInt(segments[SEG_INDEX].toString());
+			} catch (NumberFormatException ex) {
+				return false;
+			}
+			String type = keyword(segments[SEG_TYPE].toString());
+			String modifier = keyword(segments[SEG_MODIFIER].toString());
+			byte kind;
+			if (type.isEmpty()) {
+				kind = TranslationCatalog.PLAIN;
+			} else if (type.equals("number") && modifier.isEmpty()) {
+				kind = TranslationCatalog.NUMBER;
+			} else if (type.equals("number") && modifier.equals("integer")) {
+				kind = TranslationCatalog.INTEGER;
+			} else {
+				kind = TranslationCatalog.OTHER;
+			}
+			literals.add(segments[SEG_RAW].toString());
+			argumentIndexes.add(argumentIndex);
+			kinds.add(kind);
+			for (StringBuilder segment : segments) {
+				segment.setLength(0);
+			}
+			return true;
+		}
+
+		private static String keyword(String s) {
+			return s.trim().toLowerCase(Locale.ROOT);
+		}
+
+		/**
+		 * Checks the literals and argument indexes against those found by
+		 * MessageFormat itself, in case the scan is wrong.
+		 */
+		boolean matches(String pattern) {
+			int argumentCount = 0;
+			for (int argumentIndex : argumentIndexes) {
+				argumentCount = Math.max(argumentCount, argumentIndex + 1);
+			}
+			ParsedPattern parsed = ParsedPattern.parse(pattern, Locale.ROOT, argumentCount);
+			if (!parsed.getLiterals().equals(literals) || parsed.getPlaceholders().size() != argumentIndexes.size()) {
+				return false;
+			}
+			for (int i = 0; i < argumentIndexes.size(); ++i) {
+				ParsedPattern.Placeholder placeholder = parsed.getPlaceholders().get(i);
+				if (placeholder.getArgumentIndex() != argumentIndexes.get(i)) {
+					return false;
+				}
+				if ((placeholder.getFormat() == null) != (kinds.get(i) == TranslationCatalog.PLAIN)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -1,23 +1,33 @@
 package uk.me.candle.translations.maker;
 
+import java.util.List;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
 class ConstructorImplementationAdapter extends MethodVisitor {
 	private final MethodVisitor mv;
 	private final String baseName;
+	private final String generatedClassName;
+	private final List<InstanceField> fields;
 
-	ConstructorImplementationAdapter(MethodVisitor mv, String baseName) {
-		super(Opcodes.ASM4, mv);
+	ConstructorImplementationAdapter(MethodVisitor mv, String baseName, String generatedClassName, List<InstanceField> fields) {
+		super(Opcodes.ASM9, mv);
 		this.mv = mv;
 		this.baseName = baseName;
+		this.generatedClassName = generatedClassName;
+		this.fields = fields;
 	}
 
 	@Override
 	public void visitCode() {
 		mv.visitVarInsn(Opcodes.ALOAD, 0);
 		mv.visitVarInsn(Opcodes.ALOAD, 1);
-		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, baseName, "<init>", "(Ljava/util/Locale;)V");
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, baseName, "<init>", "(Ljava/util/Locale;)V", false);
+		for (InstanceField f : fields) {
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			f.pushValue(mv, generatedClassName);
+			mv.visitFieldInsn(Opcodes.PUTFIELD, generatedClassName, f.getName(), f.getDescriptor());
+		}
 		mv.visitInsn(Opcodes.RETURN);
 		mv.visitMaxs(0, 0); // calculated due to ClassWriter.COMPUTE_MAXS
 	}
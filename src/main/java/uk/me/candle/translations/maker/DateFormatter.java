@@ -0,0 +1,239 @@
+package uk.me.candle.translations.maker;
+
+import com.google.common.collect.MapMaker;
+import java.text.DateFormat;
+import java.text.FieldPosition;
+import java.text.Format;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Formats the arguments of the {0,date,...} and {0,time,...} placeholders,
+ * and of the {0} placeholders for a Date, without creating an argument array.
+ *
+ * A Date is formatted exactly as MessageFormat formats it, with a copy of the
+ * DateFormat that MessageFormat creates for the placeholder. DateFormat is not
+ * thread-safe, each thread has its own copy; a copy is not made for each call
+ * as copying the Calendar of the format is expensive.
+ *
+ * The java.time classes, that MessageFormat cannot format as dates, are
+ * formatted with an immutable DateTimeFormatter: {@code ofLocalizedDate},
+ * {@code ofLocalizedTime} or {@code ofPattern} for the style and the locale.
+ * The pattern letters are those of DateTimeFormatter, and an Instant is
+ * formatted in the time zone of the formatter.
+ *
+ * This is used by the generated bundle classes, it is public so that they can
+ * access it. Instances are immutable and thread-safe, and are shared by every
+ * bundle: there is one for each locale, style and default time zone, which
+ * is kept while a bundle refers to it, as for NumberFormatter.
+ *
+ * The time zone of a formatter does not change: a bundle gets its formatters
+ * when it is created, or with lazy translation when a method is first called,
+ * and formats in the default time zone of that time, as a MessageFormat does.
+ * A later TimeZone.setDefault is used by the bundles created after it.
+ *
+ * @author Andrew
+ */
+public final class DateFormatter {
+	static final String INTERNAL_NAME = "uk/me/candle/translations/maker/DateFormatter";
+	static final String DESCRIPTOR = "L" + INTERNAL_NAME + ";";
+	// a formatter is kept while a bundle refers to it; the locales that bundles are no longer created for are forgotten.
+	private static final ConcurrentMap<FormatKey, DateFormatter> FORMATTERS = new MapMaker().weakValues().makeMap();
+	private static final String[] TYPES = {"date", "time"};
+	private static final String[] STYLES = {"short", "medium", "long", "full"};
+	private static final int[] DATE_FORMAT_STYLES = {DateFormat.SHORT, DateFormat.MEDIUM, DateFormat.LONG, DateFormat.FULL};
+	private static final FormatStyle[] FORMAT_STYLES = {FormatStyle.SHORT, FormatStyle.MEDIUM, FormatStyle.LONG, FormatStyle.FULL};
+
+	private final DateFormat prototype;
+	private final ThreadLocal<DateFormat> formats = new ThreadLocal<DateFormat>() {
+		@Override
+		protected DateFormat initialValue() {
+			return (DateFormat) prototype.clone();
+		}
+	};
+	/** null if the style is a pattern that DateTimeFormatter does not accept */
+	private final DateTimeFormatter formatter;
+	private final DateTimeFormatter instantFormatter;
+
+	/**
+	 * @param style the type and style of a {0,type,style} placeholder: "date" or
+	 * "time", followed by nothing, ",short", ",medium", ",long", ",full" or a
+	 * SimpleDateFormat pattern; or "" for a {0} placeholder.
+	 * @return the formatter for the style, in the current default time zone.
+	 */
+	public static DateFormatter getInstance(Locale locale, String style) {
+		TimeZone zone = TimeZone.getDefault();
+		FormatKey key = new FormatKey(locale, style, zone.getID());
+		DateFormatter formatter = FORMATTERS.get(key);
+		if (formatter == null) {
+			formatter = new DateFormatter(locale, style, zone);
+			DateFormatter existing = FORMATTERS.putIfAbsent(key, formatter);
+			if (existing != null) {
+				formatter = existing;
+			}
+		}
+		return formatter;
+	}
+
+	/**
+	 * @param format the format of a placeholder, as MessageFormat parsed it; null for {0}.
+	 * @return the style of the formatter that is equal to the format, or null if there is none.
+	 */
+	static String getStyle(Format format, Locale locale) {
+		if (format == null) {
+			return "";
+		}
+		if (!(format instanceof DateFormat)) {
+			return null;
+		}
+		for (String type : TYPES) {
+			for (String style : STYLES) {
+				if (getInstance(locale, type + "," + style).prototype.equals(format)) {
+					return type + "," + style;
+				}
+			}
+		}
+		if (format instanceof SimpleDateFormat) {
+			String pattern = ((SimpleDateFormat) format).toPattern();
+			String style = "date," + pattern;
+			if (!pattern.isEmpty() && getIndex(pattern) < 0 && getInstance(locale, style).prototype.equals(format)) {
+				return style;
+			}
+		}
+		return null;
+	}
+
+	private DateFormatter(Locale locale, String style, TimeZone zone) {
+		int comma = style.indexOf(',');
+		String type = comma < 0 ? style : style.substring(0, comma);
+		String subStyle = comma < 0 ? "" : style.substring(comma + 1);
+		int index = subStyle.isEmpty() ? 1 : getIndex(subStyle); // MEDIUM is the DEFAULT.
+		DateTimeFormatter dateTimeFormatter;
+		if (type.isEmpty()) {
+			prototype = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale);
+			dateTimeFormatter = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT);
+		} else if (index < 0) {
+			prototype = new SimpleDateFormat(subStyle, locale);
+			DateTimeFormatter pattern;
+			try {
+				pattern = DateTimeFormatter.ofPattern(subStyle, locale);
+			} catch (IllegalArgumentException ex) {
+				pattern = null;
+			}
+			dateTimeFormatter = pattern;
+		} else if (type.equals("time")) {
+			prototype = DateFormat.getTimeInstance(DATE_FORMAT_STYLES[index], locale);
+			dateTimeFormatter = DateTimeFormatter.ofLocalizedTime(FORMAT_STYLES[index]);
+		} else {
+			prototype = DateFormat.getDateInstance(DATE_FORMAT_STYLES[index], locale);
+			dateTimeFormatter = DateTimeFormatter.ofLocalizedDate(FORMAT_STYLES[index]);
+		}
+		prototype.setTimeZone(zone);
+		if (dateTimeFormatter == null) {
+			formatter = null;
+			instantFormatter = null;
+		} else {
+			formatter = dateTimeFormatter.withLocale(locale);
+			instantFormatter = formatter.withZone(zone.toZoneId());
+		}
+	}
+
+	private static int getIndex(String style) {
+		for (int i = 0; i < STYLES.length; ++i) {
+			if (STYLES[i].equals(style)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true if the java.time classes can be formatted.
+	 */
+	boolean isTemporalSupported() {
+		return formatter != null;
+	}
+
+	/**
+	 * @param format the DateFormat of a placeholder, as MessageFormat parsed it
+	 * @return a format that formats the java.time classes with this formatter,
+	 * and anything else with the format.
+	 */
+	Format withTemporals(Format format) {
+		return new TemporalFormat(this, format);
+	}
+
+	/**
+	 * Appends the formatted date, or "null" as MessageFormat outputs.
+	 * @return sb
+	 */
+	public StringBuilder append(StringBuilder sb, Date value) {
+		if (value == null) {
+			return sb.append("null");
+		}
+		return sb.append(formats.get().format(value));
+	}
+
+	/**
+	 * Appends the formatted date or time, or "null" as MessageFormat outputs.
+	 * @return sb
+	 * @throws DateTimeException if the value does not have the fields of the
+	 * style; such as a LocalTime for a date, or a LocalDateTime for a style
+	 * that includes the time zone.
+	 */
+	public StringBuilder append(StringBuilder sb, TemporalAccessor value) {
+		if (value == null) {
+			return sb.append("null");
+		}
+		if (value instanceof Instant) {
+			instantFormatter.formatTo(value, sb);
+		} else {
+			formatter.formatTo(value, sb);
+		}
+		return sb;
+	}
+
+	/**
+	 * The format of a MessageFormat placeholder that can format the java.time classes.
+	 */
+	private static final class TemporalFormat extends Format {
+		private static final long serialVersionUID = 1L;
+		private final transient DateFormatter formatter;
+		private Format format;
+
+		TemporalFormat(DateFormatter formatter, Format format) {
+			this.formatter = formatter;
+			this.format = format;
+		}
+
+		@Override
+		public StringBuffer format(Object obj, StringBuffer toAppendTo, FieldPosition pos) {
+			if (obj instanceof TemporalAccessor) {
+				return toAppendTo.append(formatter.append(new StringBuilder(), (TemporalAccessor) obj));
+			}
+			return format.format(obj, toAppendTo, pos);
+		}
+
+		@Override
+		public Object parseObject(String source, ParsePosition pos) {
+			return format.parseObject(source, pos);
+		}
+
+		@Override
+		public Object clone() {
+			// MessageFormat copies its formats, the DateFormat is not thread-safe.
+			TemporalFormat copy = (TemporalFormat) super.clone();
+			copy.format = (Format) format.clone();
+			return copy;
+		}
+	}
+}
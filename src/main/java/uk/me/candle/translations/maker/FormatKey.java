@@ -0,0 +1,51 @@
+package uk.me.candle.translations.maker;
+
+import java.util.Locale;
+
+/**
+ * The key of the shared formatters: the locale, the style of the placeholder
+ * as it is written in the pattern, and the time zone for dates and times.
+ *
+ * @author Andrew
+ */
+final class FormatKey {
+	private final Locale locale;
+	private final String style;
+	private final String zone;
+
+	/**
+	 * @param zone the ID of the time zone, or null for numbers
+	 */
+	FormatKey(Locale locale, String style, String zone) {
+		this.locale = locale;
+		this.style = style;
+		this.zone = zone;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof FormatKey)) {
+			return false;
+		}
+		FormatKey other = (FormatKey) obj;
+		return locale.equals(other.locale)
+				&& style.equals(other.style)
+				&& (zone == null ? other.zone == null : zone.equals(other.zone));
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = locale.hashCode();
+		hash = 31 * hash + style.hashCode();
+		hash = 31 * hash + (zone == null ? 0 : zone.hashCode());
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return locale + " " + style + (zone == null ? "" : " " + zone);
+	}
+}
@@ -0,0 +1,92 @@
+package uk.me.candle.translations.maker;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Defines generated classes as hidden classes, nestmates of the bundle
+ * class, with {@code MethodHandles.Lookup.defineHiddenClass}.
+ *
+ * A hidden class is defined in the bundle class's class loader, it is not
+ * found by name, and it is unloaded once nothing refers to it or its
+ * instances. The methods are found reflectively, as the library targets
+ * Java 8; on a runtime without hidden classes (before Java 15)
+ * {@link #isAvailable()} is false.
+ *
+ * @author Andrew
+ */
+final class HiddenClassDefiner {
+	private static final Logger LOG = LoggerFactory.getLogger(HiddenClassDefiner.class);
+	private static final Method PRIVATE_LOOKUP_IN;
+	private static final Method DEFINE_HIDDEN_CLASS;
+	private static final Object OPTIONS;
+
+	static {
+		Method privateLookupIn = null;
+		Method defineHiddenClass = null;
+		Object options = null;
+		try {
+			privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+			Class<?> option = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			options = Array.newInstance(option, 1);
+			Array.set(options, 0, option.getField("NESTMATE").get(null));
+			defineHiddenClass = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, options.getClass());
+		} catch (ReflectiveOperationException ex) {
+			LOG.debug("Hidden classes are not available: " + ex);
+			privateLookupIn = null;
+			defineHiddenClass = null;
+		}
+		PRIVATE_LOOKUP_IN = privateLookupIn;
+		DEFINE_HIDDEN_CLASS = defineHiddenClass;
+		OPTIONS = options;
+	}
+
+	private HiddenClassDefiner() {
+		throw new AssertionError("Must not call this constructor");
+	}
+
+	/**
+	 * @return true if the runtime can define hidden classes.
+	 */
+	static boolean isAvailable() {
+		return DEFINE_HIDDEN_CLASS != null;
+	}
+
+	/**
+	 * @param host the bundle class; the generated class must be in its package.
+	 * @return the hidden class, which is initialised; or null if it cannot be
+	 * defined in the package of the host, as a module does not open it.
+	 * @throws IllegalStateException if the runtime cannot define hidden classes.
+	 */
+	static Class<?> define(Class<?> host, byte[] b) {
+		if (!isAvailable()) {
+			throw new IllegalStateException("Hidden classes are not available");
+		}
+		MethodHandles.Lookup lookup;
+		try {
+			lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, host, MethodHandles.lookup());
+		} catch (IllegalAccessException ex) {
+			throw new IllegalStateException(ex);
+		} catch (InvocationTargetException ex) {
+			LOG.debug("No private access to " + host.getName() + ": " + ex.getCause());
+			return null;
+		}
+		try {
+			return ((MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(lookup, b, true, OPTIONS)).lookupClass();
+		} catch (IllegalAccessException ex) {
+			throw new IllegalStateException(ex);
+		} catch (InvocationTargetException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+}
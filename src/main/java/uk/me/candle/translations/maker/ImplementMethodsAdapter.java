@@ -3,81 +3,292 @@ package uk.me.candle.translations.maker;
 import java.text.ChoiceFormat;
 import java.text.Format;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
-import java.util.MissingResourceException;
-import java.util.Properties;
+import java.util.Map;
 import java.util.Set;
 import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import uk.me.candle.translations.BundleCreationException;
 import uk.me.candle.translations.conf.BundleConfiguration;
 
 class ImplementMethodsAdapter extends ClassVisitor {
-	private static final Logger LOG = LoggerFactory.getLogger(ImplementMethodsAdapter.class);
+	/** the constant that records the options a precompiled class was generated with */
+	static final String GENERATION_OPTIONS_FIELD = "__generationOptions";
+	private final List<InstanceField> fields = new ArrayList<InstanceField>();
+	private final List<DeferredConstructor> constructors = new ArrayList<DeferredConstructor>();
+	/** the names of the fields holding encoded text, by text */
+	private final Map<String, String> utf8Fields = new HashMap<String, String>();
+	private final Map<String, String> numberFormatterFields = new HashMap<String, String>();
+	private final Map<String, String> dateFormatterFields = new HashMap<String, String>();
 	private String newName;
 	private String baseName;
-	private Properties translations;
+	private Translations translations;
 	private Set<String> usedKeys;
 	private BundleConfiguration configuration;
 	private Locale locale;
-	ImplementMethodsAdapter(ClassVisitor cv, Properties translations,
+	private boolean lazy;
+	private Translations inherited;
+	private String superName;
+	private String[] trackedKeys;
+	private MethodChecks checks;
+	private String generationOptions;
+	/**
+	 * @param lazy if true then the methods look up their translation when they
+	 * are first called, and translations are not checked here.
+	 */
+	ImplementMethodsAdapter(ClassVisitor cv, Translations translations,
 			Set<String> usedKeys, Locale locale,
-			BundleConfiguration configuration) {
-		super(Opcodes.ASM4, cv);
+			BundleConfiguration configuration, boolean lazy) {
+		this(cv, translations, usedKeys, locale, configuration, lazy, null, null);
+	}
+	/**
+	 * Generates a class that extends the class generated for another locale,
+	 * and only implements the methods whose translations differ from it.
+	 * @param inherited the translations of the class that is extended.
+	 * @param superName the internal name of the class that is extended.
+	 */
+	ImplementMethodsAdapter(ClassVisitor cv, Translations translations,
+			Set<String> usedKeys, Locale locale,
+			BundleConfiguration configuration, boolean lazy,
+			Translations inherited, String superName) {
+		super(Opcodes.ASM9, cv);
 		this.translations = translations;
 		this.usedKeys = usedKeys;
 		this.configuration = configuration;
 		this.locale = locale;
+		this.lazy = lazy;
+		this.inherited = inherited;
+		this.superName = superName;
+	}
+	/**
+	 * A method is implemented with the translation of its name if it returns a
+	 * String, or if it is a batch method or an output method.
+	 * @return the types of the arguments that the translation is formatted
+	 * with; or null if the method cannot be implemented.
+	 */
+	static Type[] getTranslationArguments(String desc) {
+		Type[] columns = BatchMethodImplementationAdapter.getColumns(desc);
+		if (columns != null) {
+			return columns;
+		}
+		Type[] outputArguments = OutputMethodImplementationAdapter.getArguments(desc);
+		if (outputArguments != null) {
+			return outputArguments;
+		}
+		if (Type.getReturnType(desc).equals(Type.getType(String.class))) {
+			return Type.getArgumentTypes(desc);
+		}
+		return null;
+	}
+	/**
+	 * Makes each implemented method mark its key as used.
+	 * @param keys the keys of the bundle, from {@link KeyUsage#getKeys(Class)}
+	 */
+	void trackKeyUsage(String[] keys) {
+		this.trackedKeys = keys;
+	}
+	/**
+	 * Adds a constant with the generation options, see {@link BundleMaker#getGenerationOptions}.
+	 */
+	void recordGenerationOptions(String options) {
+		this.generationOptions = options;
 	}
 	@Override
 	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
 		newName = BundleMaker.getClassNameFor(name, locale);
 		baseName = name;
-		cv.visit(Opcodes.V1_6, access - Opcodes.ACC_ABSTRACT, newName, signature, name, interfaces);
+		checks = MethodChecks.throwing(name.replace('/', '.'), locale, translations, configuration);
+		if (this.superName == null) {
+			this.superName = name;
+		}
+		// the generated class has the same version as the bundle class as the
+		// non-abstract methods are copied unchanged; at least 1.6 for the stack map frames,
+		// and 1.7 for invokedynamic.
+		int minimumVersion = lazy ? Opcodes.V1_7 : Opcodes.V1_6;
+		int generatedVersion = (version & 0xFFFF) < minimumVersion ? minimumVersion : version;
+		cv.visit(generatedVersion, access - Opcodes.ACC_ABSTRACT, newName, signature, this.superName, interfaces);
+	}
+	@Override
+	public void visitNestHost(String nestHost) {
+		// the generated class is not a member of the bundle class's nest.
+	}
+	@Override
+	public void visitNestMember(String nestMember) {
+		// the nest members of the bundle class are not members of the generated class's nest.
 	}
 	@Override
 	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
 		if ((access & Opcodes.ACC_ABSTRACT) > 0) {
-			if (!Type.getReturnType(desc).equals(Type.getType(String.class))) {
-				// method is abstract, but the return type is not a String.
-				// we cannot thus implement the method in question.
-				// this is therefore an error condition.
-				throw new BundleCreationException("The method " + name + " is abstract yet it's return type is not a String.");
-			}
-			if ((access & Opcodes.ACC_PUBLIC) == 0) {
-				throw new BundleCreationException("The method " + name + " must be public.");
-			}
-			Type[] types = Type.getArgumentTypes(desc);
-			String translation = translations.getProperty(name);
-			// If we are ignoring the
-			if (translation == null) {
-				LOG.debug("Missing property for: {} ", name);
-				if (configuration.getIgnoreMissing().equals(BundleConfiguration.IgnoreMissing.NO)) {
-					throw new MissingResourceException("The translation file for " + baseName + " in the language: " + locale + " is missing a key: " + name, baseName, name);
+			// a batch method formats the translation once for each row of its columns.
+			Type[] columns = BatchMethodImplementationAdapter.getColumns(desc);
+			// an output method writes the translation to its first argument.
+			Type[] outputArguments = columns == null ? OutputMethodImplementationAdapter.getArguments(desc) : null;
+			Type[] types = checks.checkSignature(access, name, desc);
+			if (lazy) {
+				MethodVisitor mv = track(instrument(cv.visitMethod(access - Opcodes.ACC_ABSTRACT, name, desc, signature, exceptions), name, desc), name);
+				if (columns != null) {
+					return new BatchMethodImplementationAdapter(mv, name, desc, baseName);
+				} else if (outputArguments != null) {
+					return new OutputMethodImplementationAdapter(mv, name, desc, baseName);
 				}
-				translation = name;
+				return new LazyMethodImplementationAdapter(mv, name, desc, baseName);
 			}
-			if (configuration.getIgnoreParameterMisMatch().equals(BundleConfiguration.IgnoreParameterMisMatch.NO)) {
-				MessageFormat f = new MessageFormat(translation);
-				int fieldCount = countFields(f);
-				if (fieldCount != types.length) {
-					throw new MissingResourceException("The parameter lengths did not match method: " + types.length + " translation: " + fieldCount + " baseName: " + baseName + " translation: " + translation, baseName, name);
-				}
+			String translation = checks.getTranslation(name);
+			if (inherited != null && translation.equals(getInheritedTranslation(name))) {
+				// the extended class implements the method in the same way, and was checked when it was generated.
+				usedKeys.add(name);
+				return null;
 			}
+			checks.checkParameters(name, translation, types.length);
 			usedKeys.add(name); // add the key for later use - checking for configuration.isIgnoreExtra().
-			MethodVisitor mv = cv.visitMethod(access - Opcodes.ACC_ABSTRACT, name, desc, signature, exceptions);
-			return new MethodImplementationAdapter(mv, desc, translation, newName);
+			MethodVisitor mv = track(instrument(cv.visitMethod(access - Opcodes.ACC_ABSTRACT, name, desc, signature, exceptions), name, desc), name);
+			ParsedPattern parsed = types.length == 0 ? null : translations.getParsedPattern(name, locale, types.length);
+			if (columns != null) {
+				return new BatchMethodImplementationAdapter(mv, desc, translation, parsed, newName, locale, this);
+			} else if (outputArguments != null) {
+				return new OutputMethodImplementationAdapter(mv, desc, translation, parsed, newName, locale, this);
+			}
+			return new MethodImplementationAdapter(mv, desc, translation, parsed, newName, locale, this);
 		} else if (name.equals("<init>")) {
-			MethodVisitor mv = cv.visitMethod(access, name, desc, signature, exceptions);
-			return new ConstructorImplementationAdapter(mv, baseName);
+			// the constructors initialise the fields that the methods use, these
+			// are only all known once every method has been generated.
+			constructors.add(new DeferredConstructor(access, desc, signature, exceptions));
+			return null;
+		} else if (inherited != null) {
+			// the extended class already has a copy of the method.
+			return null;
 		} else {
 			return cv.visitMethod(access, name, desc, signature, exceptions);
 		}
 	}
+	@Override
+	public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+		if (inherited != null) {
+			// the extended class already has a copy of the field.
+			return null;
+		}
+		return super.visitField(access, name, descriptor, signature, value);
+	}
+	/**
+	 * @return the translation that the extended class implements the method with.
+	 */
+	private String getInheritedTranslation(String name) {
+		String translation = inherited.get(name);
+		// the extended class was generated with the same configuration, so a missing key is ignored there too.
+		return translation == null ? name : translation;
+	}
+	@Override
+	public void visitEnd() {
+		if (generationOptions != null) {
+			cv.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC,
+					GENERATION_OPTIONS_FIELD, "Ljava/lang/String;", null, generationOptions).visitEnd();
+		}
+		for (InstanceField f : fields) {
+			cv.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, f.getName(), f.getDescriptor(), null, null).visitEnd();
+		}
+		for (DeferredConstructor c : constructors) {
+			MethodVisitor mv = cv.visitMethod(c.access, "<init>", c.desc, c.signature, c.exceptions);
+			new ConstructorImplementationAdapter(mv, superName, newName, fields).visitCode();
+			mv.visitEnd();
+		}
+		super.visitEnd();
+	}
+	/**
+	 * @return the method, recording its calls if the configuration uses instrumentation.
+	 */
+	private MethodVisitor instrument(MethodVisitor mv, String name, String desc) {
+		if (!configuration.getInstrumentation().equals(BundleConfiguration.Instrumentation.YES)) {
+			return mv;
+		}
+		String field = "__metrics" + fields.size();
+		fields.add(InstanceField.methodMetrics(field, baseName.replace('/', '.'), name, locale));
+		return new MetricsMethodAdapter(mv, desc, newName, field);
+	}
+	/**
+	 * @return the method, marking its key as used if the configuration tracks key usage.
+	 */
+	private MethodVisitor track(MethodVisitor mv, String name) {
+		if (trackedKeys == null) {
+			return mv;
+		}
+		int index = Arrays.binarySearch(trackedKeys, name);
+		if (index < 0) {
+			return mv;
+		}
+		return new KeyUsageMethodAdapter(mv, newName, getKeyUsageField(), index);
+	}
+	/**
+	 * Adds, if it is not already present, a field holding the KeyUsage of the bundle.
+	 * @return the name of the field
+	 */
+	private String getKeyUsageField() {
+		String name = "__keyUsage";
+		for (InstanceField f : fields) {
+			if (f.getName().equals(name)) {
+				return name;
+			}
+		}
+		fields.add(InstanceField.keyUsage(name, baseName));
+		return name;
+	}
+	/**
+	 * Adds a field holding the parsed pattern.
+	 * @return the name of the field
+	 */
+	String addMessageFormatField(String pattern) {
+		String name = "__format" + fields.size();
+		fields.add(InstanceField.messageFormat(name, pattern));
+		return name;
+	}
+	/**
+	 * Adds, if it is not already present, a field holding the UTF-8 bytes of the text.
+	 * @return the name of the field
+	 */
+	String getUtf8Field(String text) {
+		String name = utf8Fields.get(text);
+		if (name == null) {
+			name = "__utf8" + fields.size();
+			fields.add(InstanceField.utf8(name, text));
+			utf8Fields.put(text, name);
+		}
+		return name;
+	}
+	/**
+	 * Adds, if it is not already present, a field holding the NumberFormatter
+	 * for the bundle's locale.
+	 * @param style the style, see {@link NumberFormatter#getInstance(java.util.Locale, String)}
+	 * @return the name of the field
+	 */
+	String getNumberFormatterField(String style) {
+		String name = numberFormatterFields.get(style);
+		if (name == null) {
+			name = "__numberFormatter" + fields.size();
+			fields.add(InstanceField.numberFormatter(name, style));
+			numberFormatterFields.put(style, name);
+		}
+		return name;
+	}
+	/**
+	 * Adds, if it is not already present, a field holding the DateFormatter
+	 * for the bundle's locale.
+	 * @param style the style, see {@link DateFormatter#getInstance(java.util.Locale, String)}
+	 * @return the name of the field
+	 */
+	String getDateFormatterField(String style) {
+		String name = dateFormatterFields.get(style);
+		if (name == null) {
+			name = "__dateFormatter" + fields.size();
+			fields.add(InstanceField.dateFormatter(name, style));
+			dateFormatterFields.put(style, name);
+		}
+		return name;
+	}
 	/**
 	 * Count the maximum fields that are used in a message format
 	 * note that a ChoiceFormat can have sub-formats: {0,choice,0#{1}|1#{2}}
@@ -88,7 +299,7 @@ class ImplementMethodsAdapter extends ClassVisitor {
 	 * @param messageFormat message format instance to count the maximum field number used.
 	 * @return the maximum number of fields used in
 	 */
-	private int countFields(MessageFormat messageFormat) {
+	static int countFields(MessageFormat messageFormat) {
 		Format[] formats = messageFormat.getFormatsByArgumentIndex();
 		int count = messageFormat.getFormatsByArgumentIndex().length;
 		for (Format ff : formats) {
@@ -105,4 +316,17 @@ class ImplementMethodsAdapter extends ClassVisitor {
 		}
 		return count;
 	}
+
+	private static final class DeferredConstructor {
+		private final int access;
+		private final String desc;
+		private final String signature;
+		private final String[] exceptions;
+		DeferredConstructor(int access, String desc, String signature, String[] exceptions) {
+			this.access = access;
+			this.desc = desc;
+			this.signature = signature;
+			this.exceptions = exceptions;
+		}
+	}
 }
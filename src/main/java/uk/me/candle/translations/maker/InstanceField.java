@@ -0,0 +1,140 @@
+package uk.me.candle.translations.maker;
+
+import java.util.Locale;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * A private final field of a generated bundle class that is initialised in
+ * the constructor, after the bundle class's constructor has been called.
+ *
+ * @author Andrew
+ */
+abstract class InstanceField {
+	private final String name;
+	private final String descriptor;
+
+	private InstanceField(String name, String descriptor) {
+		this.name = name;
+		this.descriptor = descriptor;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	String getDescriptor() {
+		return descriptor;
+	}
+
+	/**
+	 * Generates the code that pushes the initial value of the field on to the stack.
+	 * @param mv constructor
+	 * @param generatedClassName internal name of the class being generated
+	 */
+	abstract void pushValue(MethodVisitor mv, String generatedClassName);
+
+	/**
+	 * @return a field holding {@code new MessageFormat(pattern, getLocale())}
+	 */
+	static InstanceField messageFormat(String name, final String pattern) {
+		return new InstanceField(name, "Ljava/text/MessageFormat;") {
+			@Override
+			void pushValue(MethodVisitor mv, String generatedClassName) {
+				mv.visitTypeInsn(Opcodes.NEW, "java/text/MessageFormat");
+				mv.visitInsn(Opcodes.DUP);
+				mv.visitLdcInsn(pattern);
+				pushLocale(mv, generatedClassName);
+				mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/text/MessageFormat", "<init>", "(Ljava/lang/String;Ljava/util/Locale;)V", false);
+			}
+		};
+	}
+
+	/**
+	 * @return a field holding {@code NumberFormatter.getInstance(getLocale(), style)}
+	 */
+	static InstanceField numberFormatter(String name, final String style) {
+		return new InstanceField(name, NumberFormatter.DESCRIPTOR) {
+			@Override
+			void pushValue(MethodVisitor mv, String generatedClassName) {
+				pushLocale(mv, generatedClassName);
+				mv.visitLdcInsn(style);
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, NumberFormatter.INTERNAL_NAME, "getInstance",
+						"(Ljava/util/Locale;Ljava/lang/String;)" + NumberFormatter.DESCRIPTOR, false);
+			}
+		};
+	}
+
+	/**
+	 * @return a field holding {@code DateFormatter.getInstance(getLocale(), style)}
+	 */
+	static InstanceField dateFormatter(String name, final String style) {
+		return new InstanceField(name, DateFormatter.DESCRIPTOR) {
+			@Override
+			void pushValue(MethodVisitor mv, String generatedClassName) {
+				pushLocale(mv, generatedClassName);
+				mv.visitLdcInsn(style);
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, DateFormatter.INTERNAL_NAME, "getInstance",
+						"(Ljava/util/Locale;Ljava/lang/String;)" + DateFormatter.DESCRIPTOR, false);
+			}
+		};
+	}
+
+	/**
+	 * @return a field holding {@code Utf8.encode(text)}
+	 */
+	static InstanceField utf8(String name, final String text) {
+		return new InstanceField(name, "[B") {
+			@Override
+			void pushValue(MethodVisitor mv, String generatedClassName) {
+				mv.visitLdcInsn(text);
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, Utf8.INTERNAL_NAME, "encode", "(Ljava/lang/String;)[B", false);
+			}
+		};
+	}
+
+	/**
+	 * @param locale the locale of the translations, that the class is generated for.
+	 * @return a field holding {@code BundleMetrics.getMethodMetrics(bundleClassName, methodName,
+	 * new Locale(language, country, variant))}; the instances of the class share
+	 * the metrics, whatever their locale.
+	 */
+	static InstanceField methodMetrics(String name, final String bundleClassName, final String methodName, final Locale locale) {
+		return new InstanceField(name, MethodMetrics.DESCRIPTOR) {
+			@Override
+			void pushValue(MethodVisitor mv, String generatedClassName) {
+				mv.visitLdcInsn(bundleClassName);
+				mv.visitLdcInsn(methodName);
+				mv.visitTypeInsn(Opcodes.NEW, "java/util/Locale");
+				mv.visitInsn(Opcodes.DUP);
+				mv.visitLdcInsn(locale.getLanguage());
+				mv.visitLdcInsn(locale.getCountry());
+				mv.visitLdcInsn(locale.getVariant());
+				mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/util/Locale", "<init>",
+						"(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)V", false);
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "uk/me/candle/translations/maker/BundleMetrics", "getMethodMetrics",
+						"(Ljava/lang/String;Ljava/lang/String;Ljava/util/Locale;)" + MethodMetrics.DESCRIPTOR, false);
+			}
+		};
+	}
+
+	/**
+	 * @return a field holding {@code KeyUsage.forBundle(BundleClass.class)}
+	 */
+	static InstanceField keyUsage(String name, final String bundleClassName) {
+		return new InstanceField(name, KeyUsage.DESCRIPTOR) {
+			@Override
+			void pushValue(MethodVisitor mv, String generatedClassName) {
+				mv.visitLdcInsn(Type.getObjectType(bundleClassName));
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, KeyUsage.INTERNAL_NAME, "forBundle",
+						"(Ljava/lang/Class;)" + KeyUsage.DESCRIPTOR, false);
+			}
+		};
+	}
+
+	private static void pushLocale(MethodVisitor mv, String generatedClassName) {
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, generatedClassName, "getLocale", "()Ljava/util/Locale;", false);
+	}
+}
@@ -0,0 +1,200 @@
+package uk.me.candle.translations.maker;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The translation keys of a bundle that have been called, in any locale, by
+ * the bundles generated with
+ * {@link uk.me.candle.translations.conf.BundleConfiguration.KeyUsageTracking#YES}.
+ *
+ * Each key is a bit; the generated method checks its bit on every call, and
+ * sets it on the first call. Bits are only ever set, so concurrent first
+ * calls cannot lose one. The calls made by {@link BundleMaker#runUntracked(Runnable)}
+ * do not set a bit.
+ *
+ * If the system property {@value #UNUSED_KEYS_FILE_PROPERTY} is set then the
+ * keys that were never called are written to that file when the JVM exits.
+ *
+ * @author Andrew
+ */
+public final class KeyUsage {
+	private static final Logger LOG = LoggerFactory.getLogger(KeyUsage.class);
+	public static final String UNUSED_KEYS_FILE_PROPERTY = "uk.me.candle.translations.unusedKeysFile";
+	static final String INTERNAL_NAME = "uk/me/candle/translations/maker/KeyUsage";
+	static final String DESCRIPTOR = "L" + INTERNAL_NAME + ";";
+
+	// the usage does not refer to the class, so that the class can be unloaded.
+	private static final Map<Class<?>, KeyUsage> USAGES = Collections.synchronizedMap(new WeakHashMap<Class<?>, KeyUsage>());
+	private static boolean shutdownHookAdded;
+
+	private final String bundleClassName;
+	private final String[] keys;
+	private final AtomicLongArray called;
+
+	private KeyUsage(String bundleClassName, String[] keys) {
+		this.bundleClassName = bundleClassName;
+		this.keys = keys;
+		this.called = new AtomicLongArray((keys.length + 63) >>> 6);
+	}
+
+	/**
+	 * This is called by the constructors of the generated classes.
+	 * @return the usage of the keys of the bundle class, which is created if it does not exist.
+	 */
+	public static KeyUsage forBundle(Class<?> bundleClass) {
+		synchronized (USAGES) {
+			KeyUsage usage = USAGES.get(bundleClass);
+			if (usage == null) {
+				usage = new KeyUsage(bundleClass.getName(), getKeys(bundleClass));
+				USAGES.put(bundleClass, usage);
+				addShutdownHook();
+			}
+			return usage;
+		}
+	}
+
+	/**
+	 * @return the usage of every bundle class that has been created with key usage tracking.
+	 */
+	public static List<KeyUsage> getKeyUsages() {
+		synchronized (USAGES) {
+			return new ArrayList<KeyUsage>(USAGES.values());
+		}
+	}
+
+	/**
+	 * Writes the keys that have not been called, of every bundle class that
+	 * has been created with key usage tracking; one line for each key in
+	 * the form: com.example.Foo.key
+	 */
+	public static void writeUnusedKeys(Appendable out) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for (KeyUsage usage : getKeyUsages()) {
+			for (String key : usage.getUnusedKeys()) {
+				lines.add(usage.getBundleClassName() + "." + key);
+			}
+		}
+		Collections.sort(lines);
+		for (String line : lines) {
+			out.append(line).append('\n');
+		}
+	}
+
+	/**
+	 * Marks the key as called; this is called by the generated methods.
+	 * @param index the index of the key in {@link #getKeys(Class)}
+	 */
+	public void called(int index) {
+		int word = index >>> 6;
+		long bit = 1L << index;
+		if ((called.get(word) & bit) == 0 && !Untracked.isActive()) {
+			set(word, bit);
+		}
+	}
+
+	private void set(int word, long bit) {
+		long value;
+		do {
+			value = called.get(word);
+		} while ((value & bit) == 0 && !called.compareAndSet(word, value, value | bit));
+	}
+
+	public String getBundleClassName() {
+		return bundleClassName;
+	}
+
+	/**
+	 * @return the keys of the bundle that have not been called in any locale.
+	 */
+	public SortedSet<String> getUnusedKeys() {
+		return getKeys(false);
+	}
+
+	/**
+	 * @return the keys of the bundle that have been called in at least one locale.
+	 */
+	public SortedSet<String> getUsedKeys() {
+		return getKeys(true);
+	}
+
+	private SortedSet<String> getKeys(boolean used) {
+		SortedSet<String> result = new TreeSet<String>();
+		for (int i = 0; i < keys.length; ++i) {
+			if (((called.get(i >>> 6) & (1L << i)) != 0) == used) {
+				result.add(keys[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Marks every key as not called.
+	 */
+	public void reset() {
+		for (int i = 0; i < called.length(); ++i) {
+			called.set(i, 0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return bundleClassName + " used: " + getUsedKeys().size() + "/" + keys.length;
+	}
+
+	/**
+	 * The generated methods use the index of their key in this array, so the
+	 * index is the same in every class generated for the bundle.
+	 * @return the names of the methods that are implemented with translations, sorted.
+	 */
+	static String[] getKeys(Class<?> bundleClass) {
+		SortedSet<String> keys = new TreeSet<String>();
+		for (Method method : bundleClass.getMethods()) {
+			if (Modifier.isAbstract(method.getModifiers())
+					&& ImplementMethodsAdapter.getTranslationArguments(Type.getMethodDescriptor(method)) != null) {
+				keys.add(method.getName());
+			}
+		}
+		return keys.toArray(new String[keys.size()]);
+	}
+
+	private static void addShutdownHook() {
+		final String file = System.getProperty(UNUSED_KEYS_FILE_PROPERTY);
+		if (file == null || shutdownHookAdded) {
+			return;
+		}
+		shutdownHookAdded = true;
+		Runtime.getRuntime().addShutdownHook(new Thread("translations-unused-keys") {
+			@Override
+			public void run() {
+				try {
+					Writer out = new OutputStreamWriter(new FileOutputStream(new File(file)), StandardCharsets.UTF_8);
+					try {
+						writeUnusedKeys(out);
+					} finally {
+						out.close();
+					}
+				} catch (IOException ex) {
+					LOG.warn("Could not write the unused keys to " + file, ex);
+				}
+			}
+		});
+	}
+}
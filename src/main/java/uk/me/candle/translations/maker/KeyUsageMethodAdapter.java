@@ -0,0 +1,36 @@
+package uk.me.candle.translations.maker;
+
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Marks the key of a generated method as used, by calling
+ * {@link KeyUsage#called(int)} at the start of the method.
+ *
+ * @author Andrew
+ */
+class KeyUsageMethodAdapter extends MethodVisitor {
+	private final String generatedClassName;
+	private final String keyUsageField;
+	private final int index;
+
+	/**
+	 * @param keyUsageField the name of the field holding the KeyUsage of the bundle.
+	 * @param index the index of the method's key in {@link KeyUsage#getKeys(Class)}
+	 */
+	KeyUsageMethodAdapter(MethodVisitor mv, String generatedClassName, String keyUsageField, int index) {
+		super(Opcodes.ASM9, mv);
+		this.generatedClassName = generatedClassName;
+		this.keyUsageField = keyUsageField;
+		this.index = index;
+	}
+
+	@Override
+	public void visitCode() {
+		super.visitCode();
+		super.visitVarInsn(Opcodes.ALOAD, 0);
+		super.visitFieldInsn(Opcodes.GETFIELD, generatedClassName, keyUsageField, KeyUsage.DESCRIPTOR);
+		super.visitLdcInsn(index);
+		super.visitMethodInsn(Opcodes.INVOKEVIRTUAL, KeyUsage.INTERNAL_NAME, "called", "(I)V", false);
+	}
+}
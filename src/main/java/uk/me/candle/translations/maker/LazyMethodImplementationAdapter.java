@@ -0,0 +1,40 @@
+package uk.me.candle.translations.maker;
+
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Implements a method as an invokedynamic call, bootstrapped by
+ * {@link LazyTranslations}, with the bundle and all of the arguments.
+ *
+ * @author Andrew
+ */
+class LazyMethodImplementationAdapter extends MethodVisitor {
+	private String name;
+	private String descriptor;
+	private String bundleClassName;
+	LazyMethodImplementationAdapter(MethodVisitor mv, String name, String descriptor, String bundleClassName) {
+		super(Opcodes.ASM9, mv);
+		this.name = name;
+		this.descriptor = descriptor;
+		this.bundleClassName = bundleClassName;
+	}
+	@Override
+	public void visitEnd() {
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		int register = 1;
+		for (Type t : Type.getArgumentTypes(descriptor)) {
+			mv.visitVarInsn(t.getOpcode(Opcodes.ILOAD), register);
+			register += t.getSize();
+		}
+		// invokedynamic has no receiver, the bundle is the first argument. It is
+		// typed as the bundle class, as a hidden class cannot be named in a descriptor.
+		String indyDescriptor = "(L" + bundleClassName + ";" + descriptor.substring(1);
+		mv.visitInvokeDynamicInsn(name, indyDescriptor, LazyTranslations.BOOTSTRAP);
+		mv.visitInsn(Opcodes.ARETURN);
+		mv.visitMaxs(0, 0); // calculated due to ClassWriter.COMPUTE_FRAMES
+		mv.visitEnd();
+	}
+}
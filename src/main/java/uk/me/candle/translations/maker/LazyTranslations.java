@@ -0,0 +1,183 @@
+package uk.me.candle.translations.maker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.text.DateFormat;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.time.temporal.TemporalAccessor;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import uk.me.candle.translations.Bundle;
+import uk.me.candle.translations.conf.BundleConfiguration;
+
+/**
+ * Implements the methods of a bundle generated with lazy translation.
+ *
+ * Each generated method is an invokedynamic instruction; the first time it is
+ * called the translation is looked up, checked and compiled to a method handle,
+ * which is bound to the call site as a constant. Methods without arguments
+ * return the translation, methods with arguments format it with a MessageFormat
+ * that is parsed once for each locale of the bundles that share the class, see
+ * {@link BundleMaker#load(Class, Locale, Locale, BundleConfiguration, BundleClassLoader)}.
+ * The java.time arguments of date and time placeholders
+ * are formatted with a DateFormatter, as in the eagerly generated methods.
+ *
+ * This is used by the generated bundle classes, it is public so that they can
+ * access the bootstrap method.
+ *
+ * @author Andrew
+ */
+public final class LazyTranslations {
+	static final Handle BOOTSTRAP = new Handle(Opcodes.H_INVOKESTATIC,
+			"uk/me/candle/translations/maker/LazyTranslations", "bootstrap",
+			"(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;",
+			false);
+	private static final MethodHandle FORMAT;
+	// hidden classes are not defined in a BundleClassLoader; the translations do not refer to the class.
+	private static final Map<Class<?>, LazyTranslations> HIDDEN_CLASSES
+			= Collections.synchronizedMap(new WeakHashMap<Class<?>, LazyTranslations>());
+	static {
+		try {
+			FORMAT = MethodHandles.lookup().findVirtual(Pattern.class, "format",
+					MethodType.methodType(String.class, Bundle.class, Object[].class));
+		} catch (NoSuchMethodException ex) {
+			throw new ExceptionInInitializerError(ex);
+		} catch (IllegalAccessException ex) {
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	private final MethodChecks checks;
+
+	LazyTranslations(String baseName, Translations translations, Locale locale, BundleConfiguration configuration) {
+		this.checks = MethodChecks.throwing(baseName, locale, translations, configuration);
+	}
+
+	/**
+	 * Records the translations of a hidden class generated with lazy translation.
+	 */
+	static void putHiddenClass(Class<?> cls, LazyTranslations translations) {
+		HIDDEN_CLASSES.put(cls, translations);
+	}
+
+	/**
+	 * The bootstrap method of the generated methods.
+	 * @param caller the generated class
+	 * @param name the name of the method, which is the translation key
+	 * @param type the bundle, then the arguments of the method
+	 */
+	public static CallSite bootstrap(MethodHandles.Lookup caller, String name, MethodType type) {
+		Class<?> cls = caller.lookupClass();
+		LazyTranslations lazy = null;
+		if (cls.getClassLoader() instanceof BundleClassLoader) {
+			lazy = ((BundleClassLoader) cls.getClassLoader()).getLazyTranslations(cls.getName());
+		} else {
+			lazy = HIDDEN_CLASSES.get(cls);
+		}
+		if (lazy == null) {
+			throw new IllegalStateException("There are no translations for " + cls.getName());
+		}
+		return new ConstantCallSite(lazy.compile(name, type));
+	}
+
+	private MethodHandle compile(String name, MethodType type) {
+		MethodType methodType = type.dropParameterTypes(0, 1);
+		try {
+			String translation = getTranslation(name, methodType.parameterCount());
+			if (methodType.parameterCount() > 0) {
+				// the bundle is passed on for its locale.
+				return FORMAT.bindTo(new Pattern(translation, hasTemporal(methodType)))
+						.asCollector(Object[].class, methodType.parameterCount())
+						.asType(type);
+			}
+			return MethodHandles.dropArguments(MethodHandles.constant(String.class, translation), 0, type.parameterType(0));
+		} catch (MissingResourceException ex) {
+			return throwing(ex, type);
+		} catch (IllegalArgumentException ex) {
+			// the translation is not a valid pattern.
+			return throwing(ex, type);
+		}
+	}
+
+	private static boolean hasTemporal(MethodType methodType) {
+		for (Class<?> parameter : methodType.parameterList()) {
+			if (TemporalAccessor.class.isAssignableFrom(parameter)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return a method handle that throws the exception; it is thrown by every
+	 * call of the method, as it would have been thrown by BundleMaker.load
+	 */
+	private static MethodHandle throwing(RuntimeException ex, MethodType methodType) {
+		return MethodHandles.dropArguments(
+				MethodHandles.throwException(String.class, ex.getClass()).bindTo(ex),
+				0, methodType.parameterList());
+	}
+
+	/**
+	 * Makes the same checks as ImplementMethodsAdapter.
+	 */
+	private String getTranslation(String name, int argumentCount) {
+		String translation = checks.getTranslation(name);
+		checks.checkParameters(name, translation, argumentCount);
+		return translation;
+	}
+
+	/**
+	 * The translation of a method with arguments, parsed for each locale that
+	 * a bundle of the class is created for.
+	 */
+	private static final class Pattern {
+		private final String translation;
+		private final boolean temporal;
+		private final ConcurrentMap<Locale, MessageFormat> prototypes = new ConcurrentHashMap<Locale, MessageFormat>();
+
+		Pattern(String translation, boolean temporal) {
+			this.translation = translation;
+			this.temporal = temporal;
+		}
+
+		String format(Bundle bundle, Object[] arguments) {
+			Locale locale = bundle.getLocale();
+			MessageFormat prototype = prototypes.get(locale);
+			if (prototype == null) {
+				prototype = parse(locale);
+				MessageFormat existing = prototypes.putIfAbsent(locale, prototype);
+				if (existing != null) {
+					prototype = existing;
+				}
+			}
+			// MessageFormat is not thread-safe, the copy is not shared.
+			return ((MessageFormat) prototype.clone()).format(arguments);
+		}
+
+		private MessageFormat parse(Locale locale) {
+			MessageFormat prototype = new MessageFormat(translation, locale);
+			if (temporal) {
+				Format[] formats = prototype.getFormats();
+				for (int i = 0; i < formats.length; ++i) {
+					String style = formats[i] instanceof DateFormat ? DateFormatter.getStyle(formats[i], locale) : null;
+					if (style != null && DateFormatter.getInstance(locale, style).isTemporalSupported()) {
+						prototype.setFormat(i, DateFormatter.getInstance(locale, style).withTemporals(formats[i]));
+					}
+				}
+			}
+			return prototype;
+		}
+	}
+}
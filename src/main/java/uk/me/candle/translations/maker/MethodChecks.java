@@ -0,0 +1,131 @@
+package uk.me.candle.translations.maker;
+
+import java.lang.reflect.Modifier;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.me.candle.translations.BundleCreationException;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.conf.BundleConfiguration.IgnoreMissing;
+import uk.me.candle.translations.conf.BundleConfiguration.IgnoreParameterMisMatch;
+
+/**
+ * The checks of each abstract method of a bundle, in a locale, that are made
+ * before it is implemented with its translation. Generating a class throws
+ * the first problem; {@link BundleValidator} collects every problem, as the
+ * messages of the exceptions that would have been thrown.
+ *
+ * @author Andrew
+ */
+final class MethodChecks {
+	private static final Logger LOG = LoggerFactory.getLogger(MethodChecks.class);
+
+	private final String baseName;
+	private final Locale locale;
+	private final Translations translations;
+	private final BundleConfiguration configuration;
+	/** null if the first problem is thrown */
+	private final List<String> problems;
+
+	private MethodChecks(String baseName, Locale locale, Translations translations, BundleConfiguration configuration, List<String> problems) {
+		this.baseName = baseName;
+		this.locale = locale;
+		this.translations = translations;
+		this.configuration = configuration;
+		this.problems = problems;
+	}
+
+	/**
+	 * @param baseName the binary name of the bundle class
+	 * @return checks that throw the first problem.
+	 */
+	static MethodChecks throwing(String baseName, Locale locale, Translations translations, BundleConfiguration configuration) {
+		return new MethodChecks(baseName, locale, translations, configuration, null);
+	}
+
+	/**
+	 * @param baseName the binary name of the bundle class
+	 * @param problems the list that the message of each problem is added to.
+	 * @return checks that collect every problem.
+	 */
+	static MethodChecks collecting(String baseName, Locale locale, Translations translations, BundleConfiguration configuration, List<String> problems) {
+		return new MethodChecks(baseName, locale, translations, configuration, problems);
+	}
+
+	/**
+	 * @param access the access flags of the abstract method, from the class file or Method.getModifiers()
+	 * @return the types of the arguments that the translation is formatted
+	 * with, see {@link ImplementMethodsAdapter#getTranslationArguments(String)};
+	 * or null if the method cannot be implemented.
+	 * @throws BundleCreationException if the method cannot be implemented.
+	 */
+	Type[] checkSignature(int access, String name, String desc) {
+		Type[] arguments = ImplementMethodsAdapter.getTranslationArguments(desc);
+		if (arguments == null) {
+			// the method is abstract, but we cannot implement it.
+			problem(new BundleCreationException("The method " + name + " is abstract yet it's return type is not a String."));
+			return null;
+		}
+		if ((access & Modifier.PUBLIC) == 0) {
+			problem(new BundleCreationException("The method " + name + " must be public."));
+			return null;
+		}
+		return arguments;
+	}
+
+	/**
+	 * @return the translation of the method; its name if the key is missing
+	 * and the configuration ignores missing keys, otherwise null if it is missing.
+	 * @throws MissingResourceException if the key is missing.
+	 */
+	String getTranslation(String name) {
+		String translation = translations.get(name);
+		if (translation == null) {
+			LOG.debug("Missing property for: {} ", name);
+			if (configuration.getIgnoreMissing().equals(IgnoreMissing.NO)) {
+				problem(new MissingResourceException("The translation file for " + baseName + " in the language: " + locale + " is missing a key: " + name, baseName, name));
+				return null;
+			}
+			translation = name;
+		}
+		return translation;
+	}
+
+	/**
+	 * Checks that the translation is a valid pattern, and unless the
+	 * configuration ignores mismatches that it has a placeholder for each argument.
+	 * @return true if there is no problem.
+	 * @throws MissingResourceException if the number of placeholders is different.
+	 * @throws IllegalArgumentException if the translation is not a valid pattern.
+	 */
+	boolean checkParameters(String name, String translation, int argumentCount) {
+		boolean matching = configuration.getIgnoreParameterMisMatch().equals(IgnoreParameterMisMatch.NO);
+		int fieldCount = translations.getFieldCount(name); // counted when the catalog was compiled
+		if (fieldCount < 0 && (matching || argumentCount > 0)) {
+			try {
+				fieldCount = ImplementMethodsAdapter.countFields(new MessageFormat(translation, locale));
+			} catch (IllegalArgumentException ex) {
+				problem(new IllegalArgumentException("The translation of " + name + " for " + baseName + " in the language: " + locale
+						+ " is not a valid pattern: " + ex.getMessage() + " (" + translation + ")", ex));
+				return false;
+			}
+		}
+		if (matching && fieldCount != argumentCount) {
+			problem(new MissingResourceException("The parameter lengths did not match method " + name + ": " + argumentCount
+					+ ", translation: " + fieldCount + " baseName: " + baseName + " (" + translation + ")", baseName, name));
+			return false;
+		}
+		return true;
+	}
+
+	private void problem(RuntimeException ex) {
+		if (problems == null) {
+			throw ex;
+		}
+		problems.add(ex.getMessage());
+	}
+}
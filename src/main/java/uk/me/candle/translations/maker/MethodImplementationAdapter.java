@@ -1,26 +1,204 @@
 package uk.me.candle.translations.maker;
 
+import java.text.ChoiceFormat;
+import java.text.Format;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
 class MethodImplementationAdapter extends MethodVisitor {
+	private static final int ARGUMENT_LENGTH_ESTIMATE = 16;
+	static final String STRING_BUILDER = "java/lang/StringBuilder";
+	private static final String DATE = "java/util/Date";
+	/** the final java.time classes, which MessageFormat outputs with toString() for {0} */
+	private static final List<String> TEMPORALS = Arrays.asList(
+			"java/time/Instant", "java/time/LocalDate", "java/time/LocalTime", "java/time/LocalDateTime",
+			"java/time/OffsetTime", "java/time/OffsetDateTime", "java/time/ZonedDateTime");
 	private String translation;
+	private ParsedPattern parsed;
 	private String descriptor;
 	private String generatedClassName;
-	MethodImplementationAdapter(MethodVisitor mv, String descriptor, String translation, String generatedClassName) {
-		super(Opcodes.ASM4, mv);
+	private Locale locale;
+	private ImplementMethodsAdapter fields;
+	/** the compiled choice placeholders, by their ChoiceFormat */
+	private final Map<ChoiceFormat, Choice> choices = new IdentityHashMap<ChoiceFormat, Choice>();
+	/**
+	 * @param parsed the parsed translation, if it has been parsed already, otherwise null.
+	 */
+	MethodImplementationAdapter(MethodVisitor mv, String descriptor, String translation, ParsedPattern parsed, String generatedClassName, Locale locale, ImplementMethodsAdapter fields) {
+		super(Opcodes.ASM9, mv);
 		this.translation = translation;
+		this.parsed = parsed;
 		this.descriptor = descriptor;
 		this.generatedClassName = generatedClassName;
+		this.locale = locale;
+		this.fields = fields;
+	}
+	/**
+	 * How a placeholder is appended when the pattern is implemented as a concatenation.
+	 */
+	enum Append {
+		/** appended unchanged, as MessageFormat outputs the argument unchanged */
+		TEXT,
+		/** formatted with the shared NumberFormatter for the locale and the style of the placeholder */
+		NUMBER,
+		/** {0,choice,...} for primitive numbers, compiled into comparisons and the concatenation of each branch */
+		CHOICE,
+		/** formatted with the shared DateFormatter for the locale and the style of the placeholder */
+		DATE
 	}
 	@Override
 	public void visitEnd() {
 		Type[] types = Type.getArgumentTypes(descriptor);
 		if (types.length == 0) {
 			simpleGenerate();
+			return;
+		}
+		if (parsed == null) {
+			parsed = ParsedPattern.parse(translation, locale, types.length);
+		}
+		Append[] appends = getAppends(parsed, types);
+		if (appends != null) {
+			concatenateGenerate(types, parsed, appends);
 		} else {
-			complexGenerate(types);
+			complexGenerate(types, fields.addMessageFormatField(translation));
+		}
+	}
+	/**
+	 * Patterns where every placeholder can be appended directly can be
+	 * implemented as a string concatenation with exactly the same output
+	 * as MessageFormat; the placeholders that can be appended directly are:
+	 * <ul>
+	 * <li>plain {0} for String, boolean, char and their wrappers, which MessageFormat outputs unchanged.</li>
+	 * <li>{0} and {0,number,...} for primitive numbers, which are formatted
+	 * without boxing using a NumberFormatter for the locale and style.</li>
+	 * <li>{0,choice,...} for primitive numbers, if every branch is either plain
+	 * text or a pattern that can itself be concatenated; see {@link #compileChoice}.</li>
+	 * <li>{0}, {0,date,...} and {0,time,...} for a Date, which are formatted
+	 * using a DateFormatter for the locale and style.</li>
+	 * <li>{0} for the java.time classes, which MessageFormat outputs with toString(), and
+	 * {0,date,...} and {0,time,...}, which are formatted using a DateFormatter.</li>
+	 * </ul>
+	 * Any other reference types are excluded as they could be a Number or a Date at runtime.
+	 * @param parsed the pattern
+	 * @param types the argument types of the method
+	 * @return how to append each placeholder, or null if the pattern cannot be concatenated.
+	 */
+	Append[] getAppends(ParsedPattern parsed, Type[] types) {
+		List<ParsedPattern.Placeholder> placeholders = parsed.getPlaceholders();
+		Append[] appends = new Append[placeholders.size()];
+		for (int i = 0; i < appends.length; ++i) {
+			ParsedPattern.Placeholder p = placeholders.get(i);
+			appends[i] = getAppend(p.getFormat(), types[p.getArgumentIndex()]);
+			if (appends[i] == null && p.getFormat() instanceof ChoiceFormat && isNumber(types[p.getArgumentIndex()])) {
+				Choice choice = compileChoice((ChoiceFormat) p.getFormat(), types);
+				if (choice != null) {
+					choices.put((ChoiceFormat) p.getFormat(), choice);
+					appends[i] = Append.CHOICE;
+				}
+			}
+			if (appends[i] == null) {
+				return null;
+			}
+		}
+		return appends;
+	}
+	/**
+	 * MessageFormat formats a choice placeholder as ChoiceFormat does: the
+	 * branch with the greatest limit that is not greater than the number, or
+	 * the first branch, is selected. The text of the branch is output unchanged
+	 * unless it contains a '{', then it is formatted as a pattern with all of
+	 * the arguments. These are the sub-formats that
+	 * {@link ImplementMethodsAdapter#countFields} walks.
+	 * @return the branches, each either text or a pattern that can be
+	 * concatenated; or null if the choice cannot be compiled.
+	 */
+	private Choice compileChoice(ChoiceFormat choiceFormat, Type[] types) {
+		double[] limits = choiceFormat.getLimits();
+		Object[] formats = choiceFormat.getFormats();
+		if (limits.length == 0) {
+			return null; // ChoiceFormat fails at runtime, as MessageFormat will.
+		}
+		ParsedPattern[] patterns = new ParsedPattern[limits.length];
+		Append[][] appends = new Append[limits.length][];
+		for (int i = 0; i < limits.length; ++i) {
+			String branch = formats[i].toString();
+			if (branch.indexOf('{') >= 0) {
+				patterns[i] = ParsedPattern.parse(branch, locale, types.length);
+				appends[i] = getAppends(patterns[i], types);
+				if (appends[i] == null) {
+					return null;
+				}
+			}
+		}
+		return new Choice(limits, formats, patterns, appends);
+	}
+	private static boolean isNumber(Type t) {
+		switch (t.getSort()) {
+			case Type.BYTE:
+			case Type.SHORT:
+			case Type.INT:
+			case Type.LONG:
+			case Type.FLOAT:
+			case Type.DOUBLE:
+				return true;
+			default:
+				return false;
+		}
+	}
+	private Append getAppend(Format format, Type t) {
+		switch (t.getSort()) {
+			case Type.BOOLEAN:
+			case Type.CHAR:
+				return format == null ? Append.TEXT : null;
+			case Type.BYTE:
+			case Type.SHORT:
+			case Type.INT:
+			case Type.LONG:
+			case Type.FLOAT:
+			case Type.DOUBLE:
+				return NumberFormatter.getStyle(format, locale) == null ? null : Append.NUMBER;
+			case Type.OBJECT:
+				if (format == null && getTextAppendDescriptor(t) != null) {
+					return Append.TEXT;
+				}
+				if (t.getInternalName().equals(DATE)) {
+					return DateFormatter.getStyle(format, locale) == null ? null : Append.DATE;
+				}
+				if (TEMPORALS.contains(t.getInternalName())) {
+					String style = DateFormatter.getStyle(format, locale);
+					if (style != null && DateFormatter.getInstance(locale, style).isTemporalSupported()) {
+						return Append.DATE;
+					}
+				}
+				return null;
+			default:
+				return null;
+		}
+	}
+	static String getTextAppendDescriptor(Type t) {
+		switch (t.getSort()) {
+			case Type.BOOLEAN:
+				return "(Z)Ljava/lang/StringBuilder;";
+			case Type.CHAR:
+				return "(C)Ljava/lang/StringBuilder;";
+			case Type.OBJECT:
+				if (t.getInternalName().equals("java/lang/String")) {
+					return "(Ljava/lang/String;)Ljava/lang/StringBuilder;";
+				}
+				if (t.getInternalName().equals("java/lang/Boolean") || t.getInternalName().equals("java/lang/Character")
+						|| TEMPORALS.contains(t.getInternalName())) {
+					return "(Ljava/lang/Object;)Ljava/lang/StringBuilder;";
+				}
+				return null;
+			default:
+				return null;
 		}
 	}
 	private void simpleGenerate() {
@@ -29,79 +207,210 @@ class MethodImplementationAdapter extends MethodVisitor {
 		mv.visitInsn(Opcodes.ARETURN);
 		mv.visitMaxs(0, 0); // (1, 1) // calculated due to ClassWriter.COMPUTE_MAXS
 	}
-	private void complexGenerate(Type[] types) {
-		int registers = countRegisters(types);
+	private void concatenateGenerate(Type[] types, ParsedPattern parsed, Append[] appends) {
+		List<String> literals = parsed.getLiterals();
+		List<ParsedPattern.Placeholder> placeholders = parsed.getPlaceholders();
 		mv.visitCode();
-		mv.visitTypeInsn(Opcodes.NEW, "java/text/MessageFormat");
+		if (placeholders.isEmpty()) {
+			mv.visitLdcInsn(literals.get(0));
+			mv.visitInsn(Opcodes.ARETURN);
+			mv.visitMaxs(0, 0);
+			return;
+		}
+		pushNewStringBuilder(parsed);
+		appendConcatenation(types, parsed, appends);
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING_BUILDER, "toString", "()Ljava/lang/String;", false);
+		mv.visitInsn(Opcodes.ARETURN);
+		mv.visitMaxs(0, 0); // calculated due to ClassWriter.COMPUTE_MAXS
+	}
+	/**
+	 * Pushes a new StringBuilder with the capacity for the pattern.
+	 */
+	void pushNewStringBuilder(ParsedPattern parsed) {
+		mv.visitTypeInsn(Opcodes.NEW, STRING_BUILDER);
 		mv.visitInsn(Opcodes.DUP);
-		mv.visitLdcInsn(translation);
+		mv.visitLdcInsn(getLengthEstimate(parsed));
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, STRING_BUILDER, "<init>", "(I)V", false);
+	}
+	/**
+	 * @return the initial capacity of the StringBuilder for the pattern.
+	 */
+	static int getLengthEstimate(ParsedPattern parsed) {
+		return parsed.getLiteralLength() + parsed.getPlaceholders().size() * ARGUMENT_LENGTH_ESTIMATE;
+	}
+	/**
+	 * Appends the literals and the placeholders of the pattern to the
+	 * StringBuilder on the top of the stack, which is left on the stack.
+	 */
+	void appendConcatenation(Type[] types, ParsedPattern parsed, Append[] appends) {
+		List<String> literals = parsed.getLiterals();
+		List<ParsedPattern.Placeholder> placeholders = parsed.getPlaceholders();
+		for (int i = 0; i < placeholders.size(); ++i) {
+			appendLiteral(literals.get(i));
+			appendPlaceholder(types, placeholders.get(i), appends[i]);
+		}
+		appendLiteral(literals.get(placeholders.size()));
+	}
+	/**
+	 * Appends the argument to the StringBuilder on the top of the stack, which is left on the stack.
+	 */
+	void appendPlaceholder(Type[] types, ParsedPattern.Placeholder placeholder, Append append) {
+		int argument = placeholder.getArgumentIndex();
+		Type t = types[argument];
+		if (append == Append.CHOICE) {
+			appendChoice(types, argument, choices.get((ChoiceFormat) placeholder.getFormat()));
+		} else if (append == Append.TEXT) {
+			loadArgument(types, argument);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING_BUILDER, "append", getTextAppendDescriptor(t), false);
+		} else if (append == Append.DATE) {
+			// formatter.append(sb, value)
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitFieldInsn(Opcodes.GETFIELD, generatedClassName, fields.getDateFormatterField(DateFormatter.getStyle(placeholder.getFormat(), locale)), DateFormatter.DESCRIPTOR);
+			mv.visitInsn(Opcodes.SWAP);
+			loadArgument(types, argument);
+			String valueDescriptor = t.getInternalName().equals(DATE) ? "Ljava/util/Date;" : "Ljava/time/temporal/TemporalAccessor;";
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, DateFormatter.INTERNAL_NAME, "append", "(Ljava/lang/StringBuilder;" + valueDescriptor + ")Ljava/lang/StringBuilder;", false);
+		} else {
+			// formatter.append(sb, value)
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitFieldInsn(Opcodes.GETFIELD, generatedClassName, fields.getNumberFormatterField(NumberFormatter.getStyle(placeholder.getFormat(), locale)), NumberFormatter.DESCRIPTOR);
+			mv.visitInsn(Opcodes.SWAP);
+			loadArgument(types, argument);
+			String valueDescriptor;
+			switch (t.getSort()) {
+				case Type.FLOAT:
+					mv.visitInsn(Opcodes.F2D);
+					valueDescriptor = "D";
+					break;
+				case Type.DOUBLE:
+					valueDescriptor = "D";
+					break;
+				case Type.LONG:
+					valueDescriptor = "J";
+					break;
+				default:
+					mv.visitInsn(Opcodes.I2L);
+					valueDescriptor = "J";
+					break;
+			}
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, NumberFormatter.INTERNAL_NAME, "append", "(Ljava/lang/StringBuilder;" + valueDescriptor + ")Ljava/lang/StringBuilder;", false);
+		}
+	}
+	/**
+	 * Appends the selected branch to the StringBuilder on the top of the stack, which is left on the stack:
+	 * <pre>{@code
+	 * if (value >= limit[n - 1]) { branch n - 1 } else if ... else if (value >= limit[1]) { branch 1 } else { branch 0 }
+	 * }</pre>
+	 * A NaN selects the first branch, as no comparison is true.
+	 */
+	private void appendChoice(Type[] types, int argument, Choice choice) {
+		Label end = new Label();
+		for (int i = choice.limits.length - 1; i > 0; --i) {
+			Label next = new Label();
+			loadArgument(types, argument);
+			switch (types[argument].getSort()) {
+				case Type.FLOAT:
+					mv.visitInsn(Opcodes.F2D);
+					break;
+				case Type.DOUBLE:
+					break;
+				case Type.LONG:
+					mv.visitInsn(Opcodes.L2D);
+					break;
+				default:
+					mv.visitInsn(Opcodes.I2D);
+					break;
+			}
+			mv.visitLdcInsn(choice.limits[i]);
+			mv.visitInsn(Opcodes.DCMPL); // -1 if either is NaN
+			mv.visitJumpInsn(Opcodes.IFLT, next);
+			appendBranch(types, choice, i);
+			mv.visitJumpInsn(Opcodes.GOTO, end);
+			mv.visitLabel(next);
+		}
+		appendBranch(types, choice, 0);
+		mv.visitLabel(end);
+	}
+	private void appendBranch(Type[] types, Choice choice, int branch) {
+		if (choice.patterns[branch] == null) {
+			appendLiteral(choice.texts[branch].toString());
+		} else {
+			appendConcatenation(types, choice.patterns[branch], choice.appends[branch]);
+		}
+	}
+	/**
+	 * Pushes the value of an argument; the method's parameter, in registers after this.
+	 */
+	void loadArgument(Type[] types, int argument) {
+		int reg = 1;
+		for (int i = 0; i < argument; ++i) {
+			reg += getRegisters(types[i]);
+		}
+		mv.visitVarInsn(types[argument].getOpcode(Opcodes.ILOAD), reg);
+	}
+	private void appendLiteral(String literal) {
+		if (!literal.isEmpty()) {
+			mv.visitLdcInsn(literal);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING_BUILDER, "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+		}
+	}
+	private void complexGenerate(Type[] types, String formatField) {
+		mv.visitCode();
+		pushComplexFormat(types, formatField);
+		mv.visitInsn(Opcodes.ARETURN);
+		mv.visitMaxs(0, 0); // (1, 1) // calculated due to ClassWriter.COMPUTE_MAXS
+	}
+	/**
+	 * Pushes the String formatted by the MessageFormat in the field.
+	 */
+	void pushComplexFormat(Type[] types, String formatField) {
+		// the pattern is parsed once, in the constructor. MessageFormat is not
+		// thread-safe so each call formats with a clone of the parsed instance.
 		mv.visitVarInsn(Opcodes.ALOAD, 0);
-		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, generatedClassName, "getLocale", "()Ljava/util/Locale;");
-		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/text/MessageFormat", "<init>", "(Ljava/lang/String;Ljava/util/Locale;)V");
-		mv.visitVarInsn(Opcodes.ASTORE, registers + 2);
-		mv.visitVarInsn(Opcodes.ALOAD, registers + 2);
+		mv.visitFieldInsn(Opcodes.GETFIELD, generatedClassName, formatField, "Ljava/text/MessageFormat;");
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/text/MessageFormat", "clone", "()Ljava/lang/Object;", false);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, "java/text/MessageFormat");
 		mv.visitIntInsn(Opcodes.BIPUSH, types.length);
 		mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
-		int regCount = 0;
 		for (int i = 0; i < types.length; ++i) {
-			boxIfNeededAndAddToArray(types[i], i, regCount);
-			regCount += getRegisters(types[i]);
+			boxIfNeededAndAddToArray(types, i);
 		}
-		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/text/MessageFormat", "format", "(Ljava/lang/Object;)Ljava/lang/String;");
-		mv.visitInsn(Opcodes.ARETURN);
-		mv.visitMaxs(0, 0); // (1, 1) // calculated due to ClassWriter.COMPUTE_MAXS
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/text/MessageFormat", "format", "(Ljava/lang/Object;)Ljava/lang/String;", false);
 	}
-	private void boxIfNeededAndAddToArray(Type t, int idx, int reg) {
+	/**
+	 * Stores the argument, boxed if it is a primitive, in the Object[] on the
+	 * top of the stack, which is left on the stack.
+	 */
+	void boxIfNeededAndAddToArray(Type[] types, int idx) {
 		final String valueOf = "valueOf";
+		Type t = types[idx];
 		mv.visitInsn(Opcodes.DUP);
 		mv.visitLdcInsn(idx);
+		loadArgument(types, idx);
 		switch (t.getSort()) {
 			case Type.BOOLEAN:
-			case Type.BYTE:
-			case Type.CHAR:
-			case Type.SHORT:
-			case Type.INT:
-				mv.visitVarInsn(Opcodes.ILOAD, reg + 1);
-				break;
-			case Type.LONG:
-				mv.visitVarInsn(Opcodes.LLOAD, reg + 1);
-				break;
-			case Type.FLOAT:
-				mv.visitVarInsn(Opcodes.FLOAD, reg + 1);
-				break;
-			case Type.DOUBLE:
-				mv.visitVarInsn(Opcodes.DLOAD, reg + 1);
-				break;
-			case Type.OBJECT:
-				mv.visitVarInsn(Opcodes.ALOAD, reg + 1);
-				break;
-			default:
-				throw new IllegalArgumentException("Invalid type: " + t);
-		}
-		switch (t.getSort()) {
-			case Type.BOOLEAN:
-				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Boolean", valueOf, "(Z)Ljava/lang/Boolean;");
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Boolean", valueOf, "(Z)Ljava/lang/Boolean;", false);
 				break;
 			case Type.BYTE:
-				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Byte", valueOf, "(B)Ljava/lang/Byte;");
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Byte", valueOf, "(B)Ljava/lang/Byte;", false);
 				break;
 			case Type.CHAR:
-				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Character", valueOf, "(C)Ljava/lang/Character;");
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Character", valueOf, "(C)Ljava/lang/Character;", false);
 				break;
 			case Type.SHORT:
-				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Short", valueOf, "(S)Ljava/lang/Short;");
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Short", valueOf, "(S)Ljava/lang/Short;", false);
 				break;
 			case Type.INT:
-				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Integer", valueOf, "(I)Ljava/lang/Integer;");
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Integer", valueOf, "(I)Ljava/lang/Integer;", false);
 				break;
 			case Type.LONG:
-				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Long", valueOf, "(J)Ljava/lang/Long;");
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Long", valueOf, "(J)Ljava/lang/Long;", false);
 				break;
 			case Type.FLOAT:
-				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Float", valueOf, "(F)Ljava/lang/Float;");
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Float", valueOf, "(F)Ljava/lang/Float;", false);
 				break;
 			case Type.DOUBLE:
-				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Double", valueOf, "(D)Ljava/lang/Double;");
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Double", valueOf, "(D)Ljava/lang/Double;", false);
 				break;
 			case Type.OBJECT:
 				break;
@@ -127,11 +436,21 @@ class MethodImplementationAdapter extends MethodVisitor {
 				throw new IllegalArgumentException("Invalid type: " + t);
 		}
 	}
-	private int countRegisters(Type[] types) {
-		int c = 0;
-		for (Type t : types) {
-			c += getRegisters(t);
+
+	/**
+	 * The branches of a compiled choice placeholder.
+	 */
+	private static final class Choice {
+		private final double[] limits;
+		private final Object[] texts;
+		/** the pattern of each branch that is formatted, or null for text */
+		private final ParsedPattern[] patterns;
+		private final Append[][] appends;
+		Choice(double[] limits, Object[] texts, ParsedPattern[] patterns, Append[][] appends) {
+			this.limits = limits;
+			this.texts = texts;
+			this.patterns = patterns;
+			this.appends = appends;
 		}
-		return c;
 	}
 }
@@ -0,0 +1,87 @@
+package uk.me.candle.translations.maker;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The number of calls to, and the time spent in, one method of a bundle in
+ * the locale of its translations. Only bundles generated with
+ * {@link uk.me.candle.translations.conf.BundleConfiguration.Instrumentation#YES}
+ * record their calls, other than the calls made by
+ * {@link BundleMaker#runUntracked(Runnable)}.
+ *
+ * The counters are striped, so concurrent calls do not contend; the values
+ * that are read are not an atomic snapshot of both counters.
+ *
+ * @author Andrew
+ */
+public final class MethodMetrics {
+	static final String INTERNAL_NAME = "uk/me/candle/translations/maker/MethodMetrics";
+	static final String DESCRIPTOR = "L" + INTERNAL_NAME + ";";
+
+	private final String bundleClassName;
+	private final String methodName;
+	private final Locale locale;
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+
+	MethodMetrics(String bundleClassName, String methodName, Locale locale) {
+		this.bundleClassName = bundleClassName;
+		this.methodName = methodName;
+		this.locale = locale;
+	}
+
+	/**
+	 * Records a call that started at the time; this is called by the generated methods.
+	 * @param startNanos the value of System.nanoTime() when the method was called.
+	 */
+	public void record(long startNanos) {
+		if (Untracked.isActive()) {
+			return;
+		}
+		nanos.add(System.nanoTime() - startNanos);
+		calls.increment();
+	}
+
+	public String getBundleClassName() {
+		return bundleClassName;
+	}
+
+	public String getMethodName() {
+		return methodName;
+	}
+
+	/**
+	 * @return the locale of the translations, that the class was generated for;
+	 * not the locale of each bundle that shares the class.
+	 */
+	public Locale getLocale() {
+		return locale;
+	}
+
+	/**
+	 * @return the number of calls that returned a translation.
+	 */
+	public long getCallCount() {
+		return calls.sum();
+	}
+
+	/**
+	 * @return the total time spent creating the translations.
+	 */
+	public long getFormatTime(TimeUnit unit) {
+		return unit.convert(nanos.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	void reset() {
+		calls.reset();
+		nanos.reset();
+	}
+
+	@Override
+	public String toString() {
+		return bundleClassName + "." + methodName + " [" + locale + "] calls: " + getCallCount()
+				+ " time: " + getFormatTime(TimeUnit.MICROSECONDS) + "us";
+	}
+}
@@ -0,0 +1,59 @@
+package uk.me.candle.translations.maker;
+
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Records the call count and time of a generated method: the start time is
+ * stored in a local after the arguments, and it is passed to
+ * {@link MethodMetrics#record(long)} before each return; batch methods may be void.
+ *
+ * @author Andrew
+ */
+class MetricsMethodAdapter extends MethodVisitor {
+	private final String generatedClassName;
+	private final String metricsField;
+	private final int startRegister;
+
+	/**
+	 * @param metricsField the name of the field holding the MethodMetrics of the method.
+	 */
+	MetricsMethodAdapter(MethodVisitor mv, String descriptor, String generatedClassName, String metricsField) {
+		super(Opcodes.ASM9, mv);
+		this.generatedClassName = generatedClassName;
+		this.metricsField = metricsField;
+		this.startRegister = getStartRegister(descriptor);
+	}
+
+	/**
+	 * The generated methods store their own locals from this register, whether
+	 * or not they are instrumented.
+	 * @return the first register after the arguments and the start time.
+	 */
+	static int getFirstFreeRegister(String descriptor) {
+		return getStartRegister(descriptor) + Type.LONG_TYPE.getSize();
+	}
+
+	private static int getStartRegister(String descriptor) {
+		return Type.getArgumentsAndReturnSizes(descriptor) >> 2; // includes this
+	}
+
+	@Override
+	public void visitCode() {
+		super.visitCode();
+		super.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+		super.visitVarInsn(Opcodes.LSTORE, startRegister);
+	}
+
+	@Override
+	public void visitInsn(int opcode) {
+		if (opcode == Opcodes.ARETURN || opcode == Opcodes.RETURN) {
+			super.visitVarInsn(Opcodes.ALOAD, 0);
+			super.visitFieldInsn(Opcodes.GETFIELD, generatedClassName, metricsField, MethodMetrics.DESCRIPTOR);
+			super.visitVarInsn(Opcodes.LLOAD, startRegister);
+			super.visitMethodInsn(Opcodes.INVOKEVIRTUAL, MethodMetrics.INTERNAL_NAME, "record", "(J)V", false);
+		}
+		super.visitInsn(opcode);
+	}
+}
@@ -0,0 +1,206 @@
+package uk.me.candle.translations.maker;
+
+import com.google.common.collect.MapMaker;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.Format;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Formats primitive numbers exactly as MessageFormat formats them for the
+ * {0} and {0,number,...} placeholders, without boxing the value or creating
+ * an argument array.
+ *
+ * This is used by the generated bundle classes, it is public so that they can
+ * access it. Instances are immutable and thread-safe, and are shared by every
+ * bundle: there is one for each locale and style, which is kept while a bundle
+ * refers to it; so the formatters of the locales that bundles are no longer
+ * created for, such as those of evicted bundles, are discarded.
+ *
+ * Integral values are written directly using the prefixes, suffixes, digits and
+ * grouping of the locale's DecimalFormat; this is checked against the DecimalFormat
+ * when the instance is created and if they differ then, as for floating point
+ * values, a copy of the DecimalFormat is used; each thread has its own copy,
+ * as NumberFormat is not thread-safe.
+ *
+ * @author Andrew
+ */
+public final class NumberFormatter {
+	static final String INTERNAL_NAME = "uk/me/candle/translations/maker/NumberFormatter";
+	static final String DESCRIPTOR = "L" + INTERNAL_NAME + ";";
+	// a formatter is kept while a bundle refers to it; the locales that bundles are no longer created for are forgotten.
+	private static final ConcurrentMap<FormatKey, NumberFormatter> FORMATTERS = new MapMaker().weakValues().makeMap();
+	private static final String[] STYLES = {"", "integer", "percent", "currency"};
+	private static final long[] SAMPLES = {
+		0L, 1L, -1L, 9L, 10L, -10L, 999L, 1000L, -1000L, 12345L, 123456L, 1234567L, -7654321L,
+		Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE
+	};
+	private static final int BUFFER_LENGTH = 40; // 19 digits, 18 grouping separators.
+
+	private final NumberFormat prototype;
+	private final ThreadLocal<NumberFormat> formats = new ThreadLocal<NumberFormat>() {
+		@Override
+		protected NumberFormat initialValue() {
+			return (NumberFormat) prototype.clone();
+		}
+	};
+	private final boolean direct;
+	private final String positivePrefix;
+	private final String positiveSuffix;
+	private final String negativePrefix;
+	private final String negativeSuffix;
+	private final char zeroDigit;
+	private final char groupingSeparator;
+	private final int groupingSize;
+
+	/**
+	 * @return a formatter equivalent to {@code NumberFormat.getInstance(locale)}
+	 */
+	public static NumberFormatter getInstance(Locale locale) {
+		return getInstance(locale, "");
+	}
+
+	/**
+	 * @return a formatter equivalent to {@code NumberFormat.getIntegerInstance(locale)}
+	 */
+	public static NumberFormatter getIntegerInstance(Locale locale) {
+		return getInstance(locale, "integer");
+	}
+
+	/**
+	 * @param style the style of a {0,number,style} placeholder: "" for {0,number}
+	 * and {0}, "integer", "percent", "currency" or a DecimalFormat pattern.
+	 * @return a formatter equivalent to the NumberFormat that MessageFormat
+	 * creates for the placeholder.
+	 */
+	public static NumberFormatter getInstance(Locale locale, String style) {
+		FormatKey key = new FormatKey(locale, style, null);
+		NumberFormatter formatter = FORMATTERS.get(key);
+		if (formatter == null) {
+			formatter = new NumberFormatter(createFormat(locale, style));
+			NumberFormatter existing = FORMATTERS.putIfAbsent(key, formatter);
+			if (existing != null) {
+				formatter = existing;
+			}
+		}
+		return formatter;
+	}
+
+	private static NumberFormat createFormat(Locale locale, String style) {
+		if (style.isEmpty()) {
+			return NumberFormat.getInstance(locale);
+		} else if (style.equals("integer")) {
+			return NumberFormat.getIntegerInstance(locale);
+		} else if (style.equals("percent")) {
+			return NumberFormat.getPercentInstance(locale);
+		} else if (style.equals("currency")) {
+			return NumberFormat.getCurrencyInstance(locale);
+		} else {
+			return new DecimalFormat(style, DecimalFormatSymbols.getInstance(locale));
+		}
+	}
+
+	/**
+	 * @param format the format of a placeholder, as MessageFormat parsed it; null for {0}.
+	 * @return the style of the formatter that is equal to the format, or null if there is none.
+	 */
+	static String getStyle(Format format, Locale locale) {
+		if (format == null) {
+			return "";
+		}
+		if (!(format instanceof NumberFormat)) {
+			return null;
+		}
+		for (String style : STYLES) {
+			if (getInstance(locale, style).prototype.equals(format)) {
+				return style;
+			}
+		}
+		if (format instanceof DecimalFormat) {
+			String pattern = ((DecimalFormat) format).toPattern();
+			if (!pattern.isEmpty() && !Arrays.asList(STYLES).contains(pattern) && createFormat(locale, pattern).equals(format)) {
+				return pattern;
+			}
+		}
+		return null;
+	}
+
+	private NumberFormatter(NumberFormat prototype) {
+		this.prototype = prototype;
+		if (prototype instanceof DecimalFormat) {
+			DecimalFormat df = (DecimalFormat) prototype;
+			DecimalFormatSymbols symbols = df.getDecimalFormatSymbols();
+			positivePrefix = df.getPositivePrefix();
+			positiveSuffix = df.getPositiveSuffix();
+			negativePrefix = df.getNegativePrefix();
+			negativeSuffix = df.getNegativeSuffix();
+			zeroDigit = symbols.getZeroDigit();
+			groupingSeparator = symbols.getGroupingSeparator();
+			groupingSize = df.isGroupingUsed() ? df.getGroupingSize() : 0;
+			direct = df.getMultiplier() == 1
+					&& df.getMinimumIntegerDigits() == 1
+					&& df.getMaximumIntegerDigits() >= 19
+					&& df.getMinimumFractionDigits() == 0
+					&& !df.isDecimalSeparatorAlwaysShown()
+					&& matchesPrototype();
+		} else {
+			positivePrefix = null;
+			positiveSuffix = null;
+			negativePrefix = null;
+			negativeSuffix = null;
+			zeroDigit = '0';
+			groupingSeparator = ',';
+			groupingSize = 0;
+			direct = false;
+		}
+	}
+
+	private boolean matchesPrototype() {
+		for (long sample : SAMPLES) {
+			if (!appendDirect(new StringBuilder(), sample).toString().equals(prototype.format(sample))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Appends the formatted value; used for byte, short, int and long values.
+	 * @return sb
+	 */
+	public StringBuilder append(StringBuilder sb, long value) {
+		if (direct) {
+			return appendDirect(sb, value);
+		}
+		return sb.append(formats.get().format(value));
+	}
+
+	/**
+	 * Appends the formatted value; used for float and double values.
+	 * @return sb
+	 */
+	public StringBuilder append(StringBuilder sb, double value) {
+		return sb.append(formats.get().format(value));
+	}
+
+	private StringBuilder appendDirect(StringBuilder sb, long value) {
+		char[] buffer = new char[BUFFER_LENGTH];
+		int pos = BUFFER_LENGTH;
+		long remaining = value < 0 ? value : -value; // negative, so that Long.MIN_VALUE works
+		int digits = 0;
+		do {
+			if (groupingSize > 0 && digits > 0 && digits % groupingSize == 0) {
+				buffer[--pos] = groupingSeparator;
+			}
+			buffer[--pos] = (char) (zeroDigit - (remaining % 10));
+			remaining /= 10;
+			++digits;
+		} while (remaining != 0);
+		sb.append(value < 0 ? negativePrefix : positivePrefix);
+		sb.append(buffer, pos, BUFFER_LENGTH - pos);
+		return sb.append(value < 0 ? negativeSuffix : positiveSuffix);
+	}
+}
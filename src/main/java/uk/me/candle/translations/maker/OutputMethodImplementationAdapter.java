@@ -0,0 +1,287 @@
+package uk.me.candle.translations.maker;
+
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Implements an output method: an overload of a translation method that
+ * writes the translation to its first parameter rather than returning a new String:
+ *
+ * <pre>{@code
+ * public abstract String pony(String s);
+ * public abstract void pony(ByteBuffer out, String s);
+ * }</pre>
+ *
+ * The output is a StringBuilder, an Appendable, a Writer, a ByteBuffer or a
+ * WritableByteChannel; the method returns it, or is void. The arguments follow.
+ *
+ * A concatenated pattern is appended directly to a StringBuilder. For a
+ * ByteBuffer the literal text is encoded as UTF-8 once, into fields, and
+ * only the arguments are encoded by each call, directly into the buffer; a
+ * translation without arguments is written from its encoded bytes to a
+ * channel too. Other patterns are formatted as by the String method and the
+ * result is written to the output.
+ *
+ * @author Andrew
+ */
+class OutputMethodImplementationAdapter extends MethodImplementationAdapter {
+	private static final String BYTE_BUFFER = "java/nio/ByteBuffer";
+	private static final String PUT_DESCRIPTOR = "(Ljava/nio/ByteBuffer;Ljava/lang/CharSequence;)Ljava/nio/ByteBuffer;";
+
+	private enum Output {
+		BUILDER(Type.getObjectType(STRING_BUILDER)),
+		APPENDABLE(Type.getType(Appendable.class)),
+		WRITER(Type.getType(Writer.class)),
+		BUFFER(Type.getObjectType(BYTE_BUFFER)),
+		CHANNEL(Type.getType(WritableByteChannel.class));
+
+		private final Type type;
+
+		private Output(Type type) {
+			this.type = type;
+		}
+
+		static Output of(Type type) {
+			for (Output output : values()) {
+				if (output.type.equals(type)) {
+					return output;
+				}
+			}
+			return null;
+		}
+	}
+
+	private final String name;
+	private final String descriptor;
+	private final Output output;
+	private final Type[] types;
+	private final String translation;
+	private final ParsedPattern parsed;
+	private final String generatedClassName;
+	private final ImplementMethodsAdapter fields;
+	/** the internal name of the bundle class, if the translation is formatted by a lazy invokedynamic call; otherwise null. */
+	private final String lazyBundleClassName;
+
+	/**
+	 * @param parsed the parsed translation, if it has been parsed already, otherwise null.
+	 */
+	OutputMethodImplementationAdapter(MethodVisitor mv, String descriptor, String translation, ParsedPattern parsed, String generatedClassName, Locale locale, ImplementMethodsAdapter fields) {
+		super(mv, descriptor, translation, parsed, generatedClassName, locale, fields);
+		this.name = null;
+		this.descriptor = descriptor;
+		this.output = Output.of(Type.getArgumentTypes(descriptor)[0]);
+		this.types = getArguments(descriptor);
+		this.translation = translation;
+		this.parsed = parsed != null || types.length == 0 ? parsed : ParsedPattern.parse(translation, locale, types.length);
+		this.generatedClassName = generatedClassName;
+		this.fields = fields;
+		this.lazyBundleClassName = null;
+	}
+
+	/**
+	 * The translation is formatted by the invokedynamic call of the lazy method with the same name.
+	 * @param bundleClassName the internal name of the bundle class
+	 */
+	OutputMethodImplementationAdapter(MethodVisitor mv, String name, String descriptor, String bundleClassName) {
+		super(mv, descriptor, null, null, null, null, null);
+		this.name = name;
+		this.descriptor = descriptor;
+		this.output = Output.of(Type.getArgumentTypes(descriptor)[0]);
+		this.types = getArguments(descriptor);
+		this.translation = null;
+		this.parsed = null;
+		this.generatedClassName = null;
+		this.fields = null;
+		this.lazyBundleClassName = bundleClassName;
+	}
+
+	/**
+	 * @return the types of the arguments after the output, if the method is an output method; otherwise null.
+	 */
+	static Type[] getArguments(String descriptor) {
+		Type[] arguments = Type.getArgumentTypes(descriptor);
+		Type returnType = Type.getReturnType(descriptor);
+		if (arguments.length == 0 || Output.of(arguments[0]) == null
+				|| !(returnType.equals(Type.VOID_TYPE) || returnType.equals(arguments[0]))) {
+			return null;
+		}
+		return Arrays.copyOfRange(arguments, 1, arguments.length);
+	}
+
+	@Override
+	public void visitEnd() {
+		mv.visitCode();
+		if (lazyBundleClassName != null) {
+			// the String from indy name(this, arguments...)
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			for (int i = 0; i < types.length; ++i) {
+				loadArgument(types, i);
+			}
+			String stringDescriptor = Type.getMethodDescriptor(Type.getType(String.class), types);
+			mv.visitInvokeDynamicInsn(name, "(L" + lazyBundleClassName + ";" + stringDescriptor.substring(1), LazyTranslations.BOOTSTRAP);
+			writeCharSequence();
+		} else if (types.length == 0) {
+			writeText(translation);
+		} else {
+			Append[] appends = getAppends(parsed, types);
+			if (appends == null) {
+				pushComplexFormat(types, fields.addMessageFormatField(translation));
+				writeCharSequence();
+			} else if (parsed.getPlaceholders().isEmpty()) {
+				writeText(parsed.getLiterals().get(0));
+			} else if (output == Output.BUILDER) {
+				mv.visitVarInsn(Opcodes.ALOAD, 1);
+				appendConcatenation(types, parsed, appends);
+				mv.visitInsn(Opcodes.POP);
+			} else if (output == Output.BUFFER) {
+				putConcatenation(appends);
+			} else {
+				pushNewStringBuilder(parsed);
+				appendConcatenation(types, parsed, appends);
+				writeCharSequence();
+			}
+		}
+		if (Type.getReturnType(descriptor).equals(Type.VOID_TYPE)) {
+			mv.visitInsn(Opcodes.RETURN);
+		} else {
+			mv.visitVarInsn(Opcodes.ALOAD, 1);
+			mv.visitInsn(Opcodes.ARETURN);
+		}
+		mv.visitMaxs(0, 0); // calculated due to ClassWriter.COMPUTE_FRAMES
+		mv.visitEnd();
+	}
+
+	/**
+	 * Writes text that is known when the class is generated.
+	 */
+	private void writeText(String text) {
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		switch (output) {
+			case BUFFER:
+				pushUtf8(text);
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, BYTE_BUFFER, "put", "([B)Ljava/nio/ByteBuffer;", false);
+				mv.visitInsn(Opcodes.POP);
+				break;
+			case CHANNEL:
+				pushUtf8(text);
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, Utf8.INTERNAL_NAME, "write", "(Ljava/nio/channels/WritableByteChannel;[B)V", false);
+				break;
+			default:
+				mv.visitLdcInsn(text);
+				invokeWrite();
+				break;
+		}
+	}
+
+	/**
+	 * Writes the String or CharSequence on the top of the stack.
+	 */
+	private void writeCharSequence() {
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitInsn(Opcodes.SWAP);
+		invokeWrite();
+	}
+
+	/**
+	 * Writes the CharSequence on the top of the stack to the output below it.
+	 */
+	private void invokeWrite() {
+		switch (output) {
+			case BUILDER:
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING_BUILDER, "append", "(Ljava/lang/CharSequence;)Ljava/lang/StringBuilder;", false);
+				mv.visitInsn(Opcodes.POP);
+				break;
+			case APPENDABLE:
+				mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/lang/Appendable", "append", "(Ljava/lang/CharSequence;)Ljava/lang/Appendable;", true);
+				mv.visitInsn(Opcodes.POP);
+				break;
+			case WRITER:
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/io/Writer", "append", "(Ljava/lang/CharSequence;)Ljava/io/Writer;", false);
+				mv.visitInsn(Opcodes.POP);
+				break;
+			case BUFFER:
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, Utf8.INTERNAL_NAME, "put", PUT_DESCRIPTOR, false);
+				mv.visitInsn(Opcodes.POP);
+				break;
+			case CHANNEL:
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, Utf8.INTERNAL_NAME, "write", "(Ljava/nio/channels/WritableByteChannel;Ljava/lang/CharSequence;)V", false);
+				break;
+			default:
+				throw new IllegalStateException("Invalid output: " + output);
+		}
+	}
+
+	/**
+	 * Puts the encoded literals, and encodes each argument, into the ByteBuffer.
+	 */
+	private void putConcatenation(Append[] appends) {
+		List<String> literals = parsed.getLiterals();
+		List<ParsedPattern.Placeholder> placeholders = parsed.getPlaceholders();
+		// numbers, choices and dates are formatted into a StringBuilder that is reused for each of them.
+		int scratchRegister = -1;
+		if (Arrays.asList(appends).contains(Append.NUMBER) || Arrays.asList(appends).contains(Append.CHOICE)
+				|| Arrays.asList(appends).contains(Append.DATE)) {
+			scratchRegister = MetricsMethodAdapter.getFirstFreeRegister(descriptor);
+			mv.visitTypeInsn(Opcodes.NEW, STRING_BUILDER);
+			mv.visitInsn(Opcodes.DUP);
+			mv.visitMethodInsn(Opcodes.INVOKESPECIAL, STRING_BUILDER, "<init>", "()V", false);
+			mv.visitVarInsn(Opcodes.ASTORE, scratchRegister);
+		}
+		for (int i = 0; i <= placeholders.size(); ++i) {
+			String literal = literals.get(i);
+			if (!literal.isEmpty()) {
+				mv.visitVarInsn(Opcodes.ALOAD, 1);
+				pushUtf8(literal);
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, BYTE_BUFFER, "put", "([B)Ljava/nio/ByteBuffer;", false);
+				mv.visitInsn(Opcodes.POP);
+			}
+			if (i == placeholders.size()) {
+				break;
+			}
+			int argument = placeholders.get(i).getArgumentIndex();
+			Type t = types[argument];
+			mv.visitVarInsn(Opcodes.ALOAD, 1);
+			if (appends[i] != Append.TEXT) {
+				mv.visitVarInsn(Opcodes.ALOAD, scratchRegister);
+				mv.visitInsn(Opcodes.ICONST_0);
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STRING_BUILDER, "setLength", "(I)V", false);
+				mv.visitVarInsn(Opcodes.ALOAD, scratchRegister);
+				appendPlaceholder(types, placeholders.get(i), appends[i]);
+			} else if (t.getSort() == Type.BOOLEAN || t.getSort() == Type.CHAR) {
+				loadArgument(types, argument);
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/String", "valueOf", "(" + t.getDescriptor() + ")Ljava/lang/String;", false);
+			} else if (t.getInternalName().equals("java/lang/String")) {
+				loadArgument(types, argument);
+			} else {
+				// Boolean, Character or a java.time class.
+				loadArgument(types, argument);
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/String", "valueOf", "(Ljava/lang/Object;)Ljava/lang/String;", false);
+			}
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC, Utf8.INTERNAL_NAME, "put", PUT_DESCRIPTOR, false);
+			mv.visitInsn(Opcodes.POP);
+		}
+	}
+
+	private void pushUtf8(String text) {
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitFieldInsn(Opcodes.GETFIELD, generatedClassName, fields.getUtf8Field(text), "[B");
+	}
+
+	/**
+	 * Pushes the value of an argument; the method's parameter, in the registers after the output.
+	 */
+	@Override
+	void loadArgument(Type[] types, int argument) {
+		int reg = 2;
+		for (int i = 0; i < argument; ++i) {
+			reg += types[i].getSize();
+		}
+		mv.visitVarInsn(types[argument].getOpcode(Opcodes.ILOAD), reg);
+	}
+}
@@ -0,0 +1,140 @@
+package uk.me.candle.translations.maker;
+
+import java.text.AttributedCharacterIterator;
+import java.text.FieldPosition;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The literal text and the argument placeholders of a MessageFormat pattern.
+ *
+ * The pattern is split by MessageFormat itself; each placeholder is given a
+ * marker format and the pattern is formatted, the literal text is then
+ * everything that is not attributed as an argument. This means that the quoting
+ * rules are exactly those of MessageFormat.
+ *
+ * There is always one more literal than placeholders; literal(i) is the text
+ * before placeholder(i) and the last literal is the text after the last placeholder.
+ * Literals may be empty.
+ *
+ * @author Andrew
+ */
+final class ParsedPattern {
+	private static final char MARKER_BASE = '\uE000'; // private use area
+	private final List<String> literals;
+	private final List<Placeholder> placeholders;
+
+	private ParsedPattern(List<String> literals, List<Placeholder> placeholders) {
+		this.literals = Collections.unmodifiableList(literals);
+		this.placeholders = Collections.unmodifiableList(placeholders);
+	}
+
+	/**
+	 * @param pattern MessageFormat pattern
+	 * @param locale locale that the sub-formats are created with
+	 * @param argumentCount number of arguments that will be passed when formatting;
+	 * placeholders for arguments after this are output literally by MessageFormat
+	 * and are treated as literal text.
+	 * @return the parsed pattern
+	 * @throws IllegalArgumentException if the pattern is invalid.
+	 */
+	static ParsedPattern parse(String pattern, Locale locale, int argumentCount) {
+		MessageFormat messageFormat = new MessageFormat(pattern, locale);
+		Format[] formats = messageFormat.getFormats();
+		for (int i = 0; i < formats.length; ++i) {
+			messageFormat.setFormat(i, new MarkerFormat((char) (MARKER_BASE + i)));
+		}
+		Object[] arguments = new Object[argumentCount];
+		Arrays.fill(arguments, Boolean.TRUE); // any non-null value, the marker formats ignore it.
+
+		List<String> literals = new ArrayList<String>();
+		List<Placeholder> placeholders = new ArrayList<Placeholder>();
+		StringBuilder literal = new StringBuilder();
+		AttributedCharacterIterator it = messageFormat.formatToCharacterIterator(arguments);
+		for (char c = it.first(); c != AttributedCharacterIterator.DONE; c = it.next()) {
+			Object argument = it.getAttribute(MessageFormat.Field.ARGUMENT);
+			if (argument == null) {
+				literal.append(c);
+			} else {
+				literals.add(literal.toString());
+				literal.setLength(0);
+				placeholders.add(new Placeholder((Integer) argument, formats[c - MARKER_BASE]));
+			}
+		}
+		literals.add(literal.toString());
+		return new ParsedPattern(literals, placeholders);
+	}
+
+	/**
+	 * @param literals one more than the placeholders
+	 * @return the pattern, from a structure that has already been parsed.
+	 */
+	static ParsedPattern of(List<String> literals, List<Placeholder> placeholders) {
+		return new ParsedPattern(new ArrayList<String>(literals), new ArrayList<Placeholder>(placeholders));
+	}
+
+	List<String> getLiterals() {
+		return literals;
+	}
+
+	List<Placeholder> getPlaceholders() {
+		return placeholders;
+	}
+
+	int getLiteralLength() {
+		int length = 0;
+		for (String s : literals) {
+			length += s.length();
+		}
+		return length;
+	}
+
+	static final class Placeholder {
+		private final int argumentIndex;
+		private final Format format;
+
+		Placeholder(int argumentIndex, Format format) {
+			this.argumentIndex = argumentIndex;
+			this.format = format;
+		}
+
+		int getArgumentIndex() {
+			return argumentIndex;
+		}
+
+		/**
+		 * @return the sub-format, {0,number} for example, or null for a plain {0}
+		 */
+		Format getFormat() {
+			return format;
+		}
+	}
+
+	/**
+	 * Outputs a single character that identifies which placeholder was formatted.
+	 */
+	private static final class MarkerFormat extends Format {
+		private static final long serialVersionUID = 1L;
+		private final char marker;
+
+		MarkerFormat(char marker) {
+			this.marker = marker;
+		}
+
+		@Override
+		public StringBuffer format(Object obj, StringBuffer toAppendTo, FieldPosition pos) {
+			return toAppendTo.append(marker);
+		}
+
+		@Override
+		public Object parseObject(String source, ParsePosition pos) {
+			throw new UnsupportedOperationException("Not supported.");
+		}
+	}
+}
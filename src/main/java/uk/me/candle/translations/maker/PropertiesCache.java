@@ -0,0 +1,141 @@
+package uk.me.candle.translations.maker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * The translation files of a class loader, each read and parsed once.
+ *
+ * The fallback chain of a locale is a chain of Translations linked by their
+ * parents: Foo_en_gb has the keys of Foo_en_gb.properties and Foo_en as
+ * its parent, which has the keys of Foo_en.properties and Foo as its parent.
+ * The layers are shared, so every locale only holds its own keys.
+ *
+ * If there is a catalog compiled by CatalogCompiler, Foo_en.translations,
+ * then that is used instead of Foo_en.properties.
+ *
+ * @author Andrew
+ */
+final class PropertiesCache {
+	private static final Map<ClassLoader, PropertiesCache> CACHES
+			= Collections.synchronizedMap(new WeakHashMap<ClassLoader, PropertiesCache>());
+	/** marks a resource that does not exist */
+	private static final Translations MISSING = new Translations(Collections.<String, String>emptyMap(), null);
+
+	// the class loader is not held, so that the cache does not keep it reachable.
+	private final ConcurrentMap<String, Translations> files = new ConcurrentHashMap<String, Translations>();
+	private final ConcurrentMap<String, Translations> layers = new ConcurrentHashMap<String, Translations>();
+
+	private PropertiesCache() { }
+
+	/**
+	 * @return the cache for the class loader; it is discarded when the class loader is.
+	 */
+	static PropertiesCache get(ClassLoader classLoader) {
+		synchronized (CACHES) {
+			PropertiesCache cache = CACHES.get(classLoader);
+			if (cache == null) {
+				cache = new PropertiesCache();
+				CACHES.put(classLoader, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * @param path the resource, without '.properties'
+	 * @return the keys of the file, or null if there is no file.
+	 */
+	Translations getFile(final ClassLoader classLoader, String path) throws IOException {
+		try {
+			Translations file = files.computeIfAbsent(path, new Function<String, Translations>() {
+				@Override
+				public Translations apply(String p) {
+					return read(classLoader, p);
+				}
+			});
+			return file == MISSING ? null : file;
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	/**
+	 * The parent layer must always be the same for a path; with the paths
+	 * Foo, Foo_en, Foo_en_gb it is the layer of the path before.
+	 * @param path the resource, without '.properties'
+	 * @param parent the layer of the path before, or null for the first path.
+	 * @return the keys of the file, with the parent as the fallback.
+	 */
+	Translations getLayer(ClassLoader classLoader, String path, Translations parent) throws IOException {
+		Translations layer = layers.get(path);
+		if (layer != null) {
+			return layer;
+		}
+		Translations file = getFile(classLoader, path);
+		if (file == null) {
+			layer = parent == null ? Translations.EMPTY : parent; // nothing to override, the parent layer is used.
+		} else {
+			layer = file.withParent(parent);
+		}
+		Translations existing = layers.putIfAbsent(path, layer);
+		return existing == null ? layer : existing;
+	}
+
+	/**
+	 * Forgets the files, and the layers, of the path and of every path that starts with path_
+	 * @param path the resource of the bundle, without the locale or '.properties'
+	 */
+	void discard(String path) {
+		discard(files.keySet(), path);
+		discard(layers.keySet(), path);
+	}
+
+	private static void discard(Set<String> paths, String path) {
+		String prefix = path + "_";
+		for (Iterator<String> it = paths.iterator(); it.hasNext();) {
+			String p = it.next();
+			if (p.equals(path) || p.startsWith(prefix)) {
+				it.remove();
+			}
+		}
+	}
+
+	private static Translations read(ClassLoader classLoader, String path) {
+		try {
+			// a compiled catalog is used in place of the properties file.
+			URL catalog = classLoader.getResource(path + TranslationCatalog.EXTENSION);
+			if (catalog != null) {
+				return new Translations(TranslationCatalog.read(catalog), null);
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		URL resource = classLoader.getResource(path + ".properties");
+		if (resource == null) {
+			return MISSING;
+		}
+		final Map<String, String> values = new HashMap<String, String>();
+		try {
+			TranslationFileParser.parse(resource, new TranslationFileParser.Handler() {
+				@Override
+				public void translation(String key, String value) {
+					values.put(key, value);
+				}
+			});
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return new Translations(values, null);
+	}
+}
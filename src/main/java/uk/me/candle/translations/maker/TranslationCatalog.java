@@ -0,0 +1,300 @@
+package uk.me.candle.translations.maker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.FieldPosition;
+import java.text.Format;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A translation file that has been compiled by {@link CatalogCompiler}.
+ *
+ * The file is read in place, through a memory mapped buffer when it is on
+ * disk; nothing is decoded until a key is looked up. The keys are sorted and
+ * indexed by offset, so a lookup is a binary search.
+ *
+ * Format, big-endian:
+ * <pre>
+ * int magic, int count, int[count] entry offsets (sorted by key)
+ * entry: string key, string value, int placeholder count (-1 if the value is not a valid pattern),
+ *        byte 1 if the structure follows, else 0
+ *        structure: int n, string[n + 1] literals, n * (int argument index, byte kind)
+ * string: int length, UTF-8 bytes
+ * </pre>
+ *
+ * Reads do not change the buffer's position, so instances are thread-safe.
+ *
+ * @author Andrew
+ */
+final class TranslationCatalog {
+	static final int MAGIC = 0x54524331; // TRC1
+	static final String EXTENSION = ".translations";
+	static final byte PLAIN = 0;
+	static final byte NUMBER = 1;
+	static final byte INTEGER = 2;
+	static final byte OTHER = 3;
+	/** the format of a placeholder that cannot be appended directly; it equals no other format */
+	private static final Format OTHER_FORMAT = new OtherFormat();
+
+	private final ByteBuffer buffer;
+	private final int count;
+
+	TranslationCatalog(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.limit() < 8 || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a translation catalog");
+		}
+		this.count = buffer.getInt(4);
+	}
+
+	/**
+	 * Maps the resource if it is a file, otherwise it is read into memory.
+	 * The mapping is of the file that exists now; a catalog that is compiled
+	 * again replaces the file, see {@link CatalogCompiler}, and is not seen
+	 * until it is read again.
+	 */
+	static TranslationCatalog read(URL resource) throws IOException {
+		File file = toFile(resource);
+		if (file != null) {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				// the mapping remains valid once the channel is closed.
+				return new TranslationCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			} finally {
+				channel.close();
+			}
+		}
+		InputStream in = resource.openStream();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] b = new byte[8192];
+			int read;
+			while ((read = in.read(b)) > 0) {
+				out.write(b, 0, read);
+			}
+			return new TranslationCatalog(ByteBuffer.wrap(out.toByteArray()));
+		} finally {
+			in.close();
+		}
+	}
+
+	private static File toFile(URL resource) {
+		if (!"file".equals(resource.getProtocol())) {
+			return null;
+		}
+		try {
+			return new File(resource.toURI());
+		} catch (URISyntaxException ex) {
+			return null;
+		} catch (IllegalArgumentException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return a read-only view of the keys and values.
+	 */
+	Map<String, String> asMap() {
+		return new CatalogMap();
+	}
+
+	/**
+	 * @return the number of placeholders, as counted by ImplementMethodsAdapter.countFields,
+	 * or -1 if it is not known.
+	 */
+	int getFieldCount(String key) {
+		int entry = find(key);
+		if (entry < 0) {
+			return -1;
+		}
+		return buffer.getInt(skipString(skipString(entry)));
+	}
+
+	/**
+	 * @param argumentCount the number of arguments of the method
+	 * @return the parsed pattern, or null if the structure was not compiled or
+	 * does not apply to this number of arguments.
+	 */
+	ParsedPattern getParsedPattern(String key, Locale locale, int argumentCount) {
+		int entry = find(key);
+		if (entry < 0) {
+			return null;
+		}
+		int position = skipString(skipString(entry)) + 4;
+		if (buffer.get(position++) == 0) {
+			return null;
+		}
+		int n = buffer.getInt(position);
+		position += 4;
+		List<String> literals = new ArrayList<String>(n + 1);
+		for (int i = 0; i <= n; ++i) {
+			literals.add(getString(position));
+			position = skipString(position);
+		}
+		List<ParsedPattern.Placeholder> placeholders = new ArrayList<ParsedPattern.Placeholder>(n);
+		for (int i = 0; i < n; ++i) {
+			int argumentIndex = buffer.getInt(position);
+			byte kind = buffer.get(position + 4);
+			position += 5;
+			if (argumentIndex >= argumentCount) {
+				// MessageFormat outputs the placeholder as text; this was not compiled.
+				return null;
+			}
+			placeholders.add(new ParsedPattern.Placeholder(argumentIndex, getFormat(kind, locale)));
+		}
+		return ParsedPattern.of(literals, placeholders);
+	}
+
+	/**
+	 * @return true if a placeholder has a format that is not recorded, of kind OTHER.
+	 */
+	static boolean hasOtherFormat(ParsedPattern parsed) {
+		for (ParsedPattern.Placeholder placeholder : parsed.getPlaceholders()) {
+			if (placeholder.getFormat() == OTHER_FORMAT) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Format getFormat(byte kind, Locale locale) {
+		switch (kind) {
+			case PLAIN:
+				return null;
+			case NUMBER:
+				return NumberFormat.getInstance(locale);
+			case INTEGER:
+				return NumberFormat.getIntegerInstance(locale);
+			default:
+				return OTHER_FORMAT;
+		}
+	}
+
+	/**
+	 * @return the offset of the entry, or -1.
+	 */
+	private int find(String key) {
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int entry = getEntry(middle);
+			int comparison = getString(entry).compareTo(key);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return entry;
+			}
+		}
+		return -1;
+	}
+
+	private int getEntry(int index) {
+		return buffer.getInt(8 + index * 4);
+	}
+
+	private String getString(int position) {
+		int length = buffer.getInt(position);
+		byte[] b = new byte[length];
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(position + 4);
+		duplicate.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	private int skipString(int position) {
+		return position + 4 + buffer.getInt(position);
+	}
+
+	private final class CatalogMap extends AbstractMap<String, String> {
+		@Override
+		public String get(Object key) {
+			if (!(key instanceof String)) {
+				return null;
+			}
+			int entry = find((String) key);
+			return entry < 0 ? null : getString(skipString(entry));
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof String && find((String) key) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return count;
+		}
+
+		@Override
+		public Set<Map.Entry<String, String>> entrySet() {
+			return new AbstractSet<Map.Entry<String, String>>() {
+				@Override
+				public Iterator<Map.Entry<String, String>> iterator() {
+					return new Iterator<Map.Entry<String, String>>() {
+						private int index;
+
+						@Override
+						public boolean hasNext() {
+							return index < count;
+						}
+
+						@Override
+						public Map.Entry<String, String> next() {
+							if (index >= count) {
+								throw new NoSuchElementException();
+							}
+							int entry = getEntry(index++);
+							// keys are interned, they are the names of the bundle methods.
+							return new SimpleImmutableEntry<String, String>(getString(entry).intern(), getString(skipString(entry)));
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException("The catalog is read-only");
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return count;
+				}
+			};
+		}
+	}
+
+	private static final class OtherFormat extends Format {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public StringBuffer format(Object obj, StringBuffer toAppendTo, FieldPosition pos) {
+			throw new UnsupportedOperationException("Not supported.");
+		}
+
+		@Override
+		public Object parseObject(String source, ParsePosition pos) {
+			throw new UnsupportedOperationException("Not supported.");
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package uk.me.candle.translations.maker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the key/value pairs of a properties file, passing each one to a handler
+ * as it is read.
+ *
+ * The format and the escaping rules are exactly those of
+ * {@link java.util.Properties#load(InputStream)}: the file is ISO 8859-1, with
+ * \\uXXXX escapes, comments start with # or !, and lines ending with an odd
+ * number of backslashes are continued on the next line.
+ *
+ * Files on disk are memory mapped; other resources, in jar files for
+ * example, are read through a buffer. Everything that is opened is closed.
+ *
+ * @author Andrew
+ */
+final class TranslationFileParser {
+	private static final int BUFFER_SIZE = 8192;
+	/** smaller files are read, rather than mapped, as mapping has a fixed cost */
+	private static final long MAP_THRESHOLD = 64 * 1024;
+
+	interface Handler {
+		void translation(String key, String value);
+	}
+
+	private final Input input;
+	private char[] line = new char[256];
+	private StringBuilder convert = new StringBuilder();
+
+	private TranslationFileParser(Input input) {
+		this.input = input;
+	}
+
+	/**
+	 * Parses the resource, then closes it.
+	 */
+	static void parse(URL resource, Handler handler) throws IOException {
+		File file = toFile(resource);
+		if (file != null && file.length() >= MAP_THRESHOLD) {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), handler);
+			} finally {
+				channel.close();
+			}
+		} else {
+			InputStream in = resource.openStream();
+			try {
+				parse(in, handler);
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * Parses the stream; the stream is not closed.
+	 */
+	static void parse(InputStream in, Handler handler) throws IOException {
+		new TranslationFileParser(new StreamInput(in)).parse(handler);
+	}
+
+	/**
+	 * Parses the remaining bytes of the buffer.
+	 */
+	static void parse(ByteBuffer buffer, Handler handler) throws IOException {
+		new TranslationFileParser(new BufferInput(buffer)).parse(handler);
+	}
+
+	/**
+	 * @return the file of the resource, or null if it is not a file on the file system.
+	 */
+	static File toFile(URL resource) {
+		if (!"file".equals(resource.getProtocol())) {
+			return null;
+		}
+		try {
+			return new File(resource.toURI());
+		} catch (URISyntaxException ex) {
+			return null;
+		} catch (IllegalArgumentException ex) {
+			return null;
+		}
+	}
+
+	private void parse(Handler handler) throws IOException {
+		int length;
+		while ((length = readLine()) >= 0) {
+			int keyLength = 0;
+			int valueStart = length;
+			boolean hasSeparator = false;
+			boolean precedingBackslash = false;
+			while (keyLength < length) {
+				char c = line[keyLength];
+				if ((c == '=' || c == ':') && !precedingBackslash) {
+					valueStart = keyLength + 1;
+					hasSeparator = true;
+					break;
+				} else if (isWhitespace(c) && !precedingBackslash) {
+					valueStart = keyLength + 1;
+					break;
+				}
+				precedingBackslash = c == '\\' && !precedingBackslash;
+				keyLength++;
+			}
+			while (valueStart < length) {
+				char c = line[valueStart];
+				if (!isWhitespace(c)) {
+					if (!hasSeparator && (c == '=' || c == ':')) {
+						hasSeparator = true;
+					} else {
+						break;
+					}
+				}
+				valueStart++;
+			}
+			handler.translation(unescape(0, keyLength), unescape(valueStart, length - valueStart));
+		}
+	}
+
+	/**
+	 * Reads the next logical line, without the comments, blank lines, line
+	 * continuations and leading whitespace, into the line buffer.
+	 * @return the length of the line, or -1 at the end of the input.
+	 */
+	private int readLine() throws IOException {
+		int length = 0;
+		boolean skipWhitespace = true;
+		boolean appendedLineBegin = false;
+		boolean precedingBackslash = false;
+		while (true) {
+			int b = input.read();
+			if (b < 0) {
+				if (length == 0) {
+					return -1;
+				}
+				return precedingBackslash ? length - 1 : length;
+			}
+			char c = (char) b; // ISO 8859-1
+			if (skipWhitespace) {
+				if (isWhitespace(c)) {
+					continue;
+				}
+				if (!appendedLineBegin && (c == '\r' || c == '\n')) {
+					continue;
+				}
+				skipWhitespace = false;
+				appendedLineBegin = false;
+			}
+			if (length == 0 && (c == '#' || c == '!')) {
+				// a comment, skip the rest of the line.
+				do {
+					b = input.read();
+					if (b < 0) {
+						return -1;
+					}
+				} while (b != '\r' && b != '\n');
+				skipWhitespace = true;
+				continue;
+			}
+			if (c != '\n' && c != '\r') {
+				if (length == line.length) {
+					line = Arrays.copyOf(line, length * 2);
+				}
+				line[length++] = c;
+				precedingBackslash = c == '\\' && !precedingBackslash;
+			} else if (length == 0) {
+				skipWhitespace = true;
+			} else if (input.peek() < 0) {
+				return precedingBackslash ? length - 1 : length;
+			} else if (precedingBackslash) {
+				// the backslash is not part of the line, which continues on the next line.
+				length--;
+				skipWhitespace = true;
+				appendedLineBegin = true;
+				precedingBackslash = false;
+				if (c == '\r' && input.peek() == '\n') {
+					input.read();
+				}
+			} else {
+				return length;
+			}
+		}
+	}
+
+	private String unescape(int offset, int length) {
+		int end = offset + length;
+		int backslash = offset;
+		while (backslash < end && line[backslash] != '\\') {
+			backslash++;
+		}
+		if (backslash == end) {
+			return new String(line, offset, length);
+		}
+		StringBuilder sb = convert;
+		sb.setLength(0);
+		sb.append(line, offset, backslash - offset);
+		int i = backslash;
+		while (i < end) {
+			char c = line[i++];
+			if (c != '\\') {
+				sb.append(c);
+				continue;
+			}
+			if (i == end) {
+				break; // a trailing backslash is dropped.
+			}
+			c = line[i++];
+			if (c == 'u') {
+				if (i + 4 > end) {
+					throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+				}
+				int value = 0;
+				for (int j = 0; j < 4; j++) {
+					int digit = Character.digit(line[i++], 16);
+					if (digit < 0) {
+						throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+					}
+					value = (value << 4) + digit;
+				}
+				sb.append((char) value);
+			} else if (c == 't') {
+				sb.append('\t');
+			} else if (c == 'r') {
+				sb.append('\r');
+			} else if (c == 'n') {
+				sb.append('\n');
+			} else if (c == 'f') {
+				sb.append('\f');
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\f';
+	}
+
+	private interface Input {
+		/**
+		 * @return the next byte, 0 to 255, or -1 at the end of the input.
+		 */
+		int read() throws IOException;
+
+		/**
+		 * @return the next byte, without reading it, or -1 at the end of the input.
+		 */
+		int peek() throws IOException;
+	}
+
+	private static final class StreamInput implements Input {
+		private final InputStream in;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private int position;
+		private int limit;
+
+		StreamInput(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = peek();
+			if (b >= 0) {
+				position++;
+			}
+			return b;
+		}
+
+		@Override
+		public int peek() throws IOException {
+			if (position == limit) {
+				limit = in.read(buffer);
+				position = 0;
+				if (limit <= 0) {
+					limit = 0;
+					return -1;
+				}
+			}
+			return buffer[position] & 0xFF;
+		}
+	}
+
+	private static final class BufferInput implements Input {
+		private final ByteBuffer buffer;
+
+		BufferInput(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int peek() {
+			return buffer.hasRemaining() ? buffer.get(buffer.position()) & 0xFF : -1;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package uk.me.candle.translations.maker;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * The translations of a bundle: the keys of one translation file, with the
+ * translations of the less specific files as a fallback.
+ *
+ * Instances are immutable once they have been created, and are shared between
+ * bundles; Foo_en_gb and Foo_en_us have the same Foo_en parent.
+ *
+ * @author Andrew
+ */
+final class Translations {
+	static final Translations EMPTY = new Translations(Collections.<String, String>emptyMap(), null);
+
+	private final Map<String, String> values;
+	private final TranslationCatalog catalog;
+	private final Translations parent;
+
+	/**
+	 * @param values the keys of this layer, this map must not be modified later.
+	 * @param parent the translations used for the keys that are not in values, or null.
+	 */
+	Translations(Map<String, String> values, Translations parent) {
+		this(values, null, parent);
+	}
+
+	/**
+	 * @param catalog the keys of this layer
+	 * @param parent the translations used for the keys that are not in the catalog, or null.
+	 */
+	Translations(TranslationCatalog catalog, Translations parent) {
+		this(catalog.asMap(), catalog, parent);
+	}
+
+	private Translations(Map<String, String> values, TranslationCatalog catalog, Translations parent) {
+		this.values = values;
+		this.catalog = catalog;
+		this.parent = parent;
+	}
+
+	/**
+	 * @return the translations of the properties, the properties are copied.
+	 */
+	static Translations of(Properties properties) {
+		Map<String, String> values = new HashMap<String, String>();
+		for (String key : properties.stringPropertyNames()) {
+			values.put(key, properties.getProperty(key));
+		}
+		return new Translations(values, null);
+	}
+
+	/**
+	 * @return translations with the same keys as this layer, and the parent as the fallback.
+	 */
+	Translations withParent(Translations parent) {
+		return new Translations(values, catalog, parent);
+	}
+
+	/**
+	 * @return the translation, or null if neither this nor the parent has the key.
+	 */
+	String get(String key) {
+		for (Translations t = this; t != null; t = t.parent) {
+			String value = t.values.get(key);
+			if (value != null) {
+				return value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the number of placeholders in the translation, if it was compiled
+	 * into a catalog, otherwise -1.
+	 */
+	int getFieldCount(String key) {
+		Translations t = getLayer(key);
+		return t == null || t.catalog == null ? -1 : t.catalog.getFieldCount(key);
+	}
+
+	/**
+	 * @return the parsed translation, if it was compiled into a catalog, otherwise null.
+	 * It is also null when a placeholder has a format that the catalog does not record,
+	 * such as a choice or a date, so that the pattern is parsed with all of its formats.
+	 * @see ParsedPattern#parse(String, Locale, int)
+	 */
+	ParsedPattern getParsedPattern(String key, Locale locale, int argumentCount) {
+		Translations t = getLayer(key);
+		ParsedPattern parsed = t == null || t.catalog == null ? null : t.catalog.getParsedPattern(key, locale, argumentCount);
+		return parsed == null || TranslationCatalog.hasOtherFormat(parsed) ? null : parsed;
+	}
+
+	private Translations getLayer(String key) {
+		for (Translations t = this; t != null; t = t.parent) {
+			if (t.values.containsKey(key)) {
+				return t;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return every key, including the keys of the parent.
+	 */
+	Set<String> getKeys() {
+		Set<String> keys = new HashSet<String>();
+		for (Translations t = this; t != null; t = t.parent) {
+			keys.addAll(t.values.keySet());
+		}
+		return keys;
+	}
+
+	/**
+	 * @return the number of keys in this layer, not including the parent.
+	 */
+	int size() {
+		return values.size();
+	}
+}
@@ -0,0 +1,43 @@
+package uk.me.candle.translations.maker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads whose calls to the bundles are not recorded by {@link KeyUsage}
+ * or {@link MethodMetrics}, see {@link BundleMaker#runUntracked(Runnable)}.
+ *
+ * The generated methods call isActive on every call, so while no thread is
+ * untracked it only reads the count of untracked threads.
+ *
+ * @author Andrew
+ */
+final class Untracked {
+	private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<Boolean>();
+	private static final AtomicInteger THREADS = new AtomicInteger();
+
+	private Untracked() {
+		throw new AssertionError("Must not call this constructor");
+	}
+
+	/**
+	 * @return true if the calls of the current thread are not recorded.
+	 */
+	static boolean isActive() {
+		return THREADS.get() != 0 && ACTIVE.get() != null;
+	}
+
+	static void run(Runnable task) {
+		if (ACTIVE.get() != null) {
+			task.run();
+			return;
+		}
+		ACTIVE.set(Boolean.TRUE);
+		THREADS.incrementAndGet();
+		try {
+			task.run();
+		} finally {
+			THREADS.decrementAndGet();
+			ACTIVE.remove();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package uk.me.candle.translations.maker;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes translations as UTF-8 into byte buffers and channels, for the
+ * generated methods whose output is a ByteBuffer or a WritableByteChannel.
+ * The text of a translation is encoded once, into a field of the generated
+ * class; only the arguments are encoded when the method is called, and they
+ * are encoded directly into the buffer.
+ *
+ * The encoding is that of {@code s.getBytes(StandardCharsets.UTF_8)}; an
+ * unpaired surrogate is written as '?'.
+ *
+ * This is used by the generated bundle classes, it is public so that they can
+ * access it.
+ *
+ * @author Andrew
+ */
+public final class Utf8 {
+	static final String INTERNAL_NAME = "uk/me/candle/translations/maker/Utf8";
+	private static final byte REPLACEMENT = '?';
+
+	private Utf8() {
+		throw new AssertionError("Must not call this constructor");
+	}
+
+	/**
+	 * @return the UTF-8 bytes of the text.
+	 */
+	public static byte[] encode(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Encodes the text into the buffer, "null" if it is null as MessageFormat outputs.
+	 * @return out
+	 * @throws java.nio.BufferOverflowException if the buffer does not have the space;
+	 * the position of the buffer is then unspecified.
+	 */
+	public static ByteBuffer put(ByteBuffer out, CharSequence s) {
+		if (s == null) {
+			s = "null";
+		}
+		int length = s.length();
+		for (int i = 0; i < length; ++i) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				out.put((byte) c);
+			} else if (c < 0x800) {
+				out.put((byte) (0xC0 | (c >> 6)));
+				out.put((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isSurrogate(c)) {
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, s.charAt(++i));
+					out.put((byte) (0xF0 | (codePoint >> 18)));
+					out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+					out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+					out.put((byte) (0x80 | (codePoint & 0x3F)));
+				} else {
+					out.put(REPLACEMENT);
+				}
+			} else {
+				out.put((byte) (0xE0 | (c >> 12)));
+				out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				out.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Writes all of the bytes to the channel; the bytes are not copied.
+	 */
+	public static void write(WritableByteChannel out, byte[] b) throws IOException {
+		write(out, ByteBuffer.wrap(b));
+	}
+
+	/**
+	 * Encodes the text and writes it all to the channel.
+	 */
+	public static void write(WritableByteChannel out, CharSequence s) throws IOException {
+		int length = s == null ? 4 : s.length();
+		// at most three bytes for each char; a surrogate pair is four bytes for two chars.
+		ByteBuffer buffer = put(ByteBuffer.allocate(length * 3), s);
+		((Buffer) buffer).flip(); // Buffer.flip, so that the class runs on Java 8.
+		write(out, buffer);
+	}
+
+	private static void write(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package uk.me.candle.translations.maker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import uk.me.candle.translations.Bundle;
+
+/**
+ * The result of {@link BundleValidator#validate}: every problem found with
+ * each bundle class and locale, and how long each took to check.
+ *
+ * @author Andrew
+ */
+public final class ValidationReport {
+	private final List<Entry> entries;
+	private final long elapsedNanos;
+
+	ValidationReport(List<Entry> entries, long elapsedNanos) {
+		this.entries = Collections.unmodifiableList(entries);
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return one entry for every bundle class and locale, in the order that they were requested.
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return the entries for the bundles that have problems.
+	 */
+	public List<Entry> getFailures() {
+		List<Entry> failures = new ArrayList<Entry>();
+		for (Entry entry : entries) {
+			if (!entry.isSuccessful()) {
+				failures.add(entry);
+			}
+		}
+		return failures;
+	}
+
+	public boolean isSuccessful() {
+		return getFailures().isEmpty();
+	}
+
+	/**
+	 * @return the wall clock time of the whole validation.
+	 */
+	public long getElapsed(TimeUnit unit) {
+		return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return the time spent checking the bundle class, in all of its locales.
+	 */
+	public long getElapsed(Class<? extends Bundle> bundleClass, TimeUnit unit) {
+		long nanos = 0;
+		for (Entry entry : entries) {
+			if (entry.getBundleClass() == bundleClass) {
+				nanos += entry.elapsedNanos;
+			}
+		}
+		return unit.convert(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		Map<Class<? extends Bundle>, Integer> locales = new LinkedHashMap<Class<? extends Bundle>, Integer>();
+		int problems = 0;
+		for (Entry entry : entries) {
+			Integer count = locales.get(entry.getBundleClass());
+			locales.put(entry.getBundleClass(), count == null ? 1 : count + 1);
+			problems += entry.getProblems().size();
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("Validated ").append(entries.size()).append(" bundle(s) in ")
+				.append(getElapsed(TimeUnit.MILLISECONDS)).append("ms, ")
+				.append(problems).append(" problem(s)");
+		for (Entry entry : getFailures()) {
+			for (String problem : entry.getProblems()) {
+				sb.append('\n').append(entry.getBundleClass().getName()).append(" [").append(entry.getLocale()).append("]: ").append(problem);
+			}
+		}
+		for (Map.Entry<Class<? extends Bundle>, Integer> e : locales.entrySet()) {
+			sb.append('\n').append(e.getKey().getName()).append(": ").append(e.getValue()).append(" locale(s) in ")
+					.append(getElapsed(e.getKey(), TimeUnit.MICROSECONDS)).append("us");
+		}
+		return sb.toString();
+	}
+
+	public static final class Entry {
+		private final Class<? extends Bundle> bundleClass;
+		private final Locale locale;
+		private final long elapsedNanos;
+		private final List<String> problems;
+
+		Entry(Class<? extends Bundle> bundleClass, Locale locale, long elapsedNanos, List<String> problems) {
+			this.bundleClass = bundleClass;
+			this.locale = locale;
+			this.elapsedNanos = elapsedNanos;
+			this.problems = Collections.unmodifiableList(problems);
+		}
+
+		public Class<? extends Bundle> getBundleClass() {
+			return bundleClass;
+		}
+
+		public Locale getLocale() {
+			return locale;
+		}
+
+		public long getElapsed(TimeUnit unit) {
+			return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+		}
+
+		public boolean isSuccessful() {
+			return problems.isEmpty();
+		}
+
+		/**
+		 * @return a description of each problem; missing keys, extra keys,
+		 * parameter mismatches, invalid patterns and invalid methods.
+		 */
+		public List<String> getProblems() {
+			return problems;
+		}
+
+		@Override
+		public String toString() {
+			return bundleClass.getName() + " [" + locale + "] "
+					+ getElapsed(TimeUnit.MICROSECONDS) + "us"
+					+ (problems.isEmpty() ? "" : " problems: " + problems);
+		}
+	}
+}
@@ -1,30 +1,36 @@
 package uk.me.candle.translations.service;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import uk.me.candle.translations.conf.BundleConfiguration;
+import java.util.Collection;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 import uk.me.candle.translations.Bundle;
-import uk.me.candle.translations.maker.BundleMaker;
 
 /**
+ * Caches Bundle instances based on their Class and Locale, as limited by the
+ * cache policy; by default every bundle is kept.
+ *
+ * This class is not thread-safe, the current locale is not shared between
+ * threads safely; the cache itself can be used by preload's tasks.
  *
  * @author andrew
  */
 public final class BasicBundleService implements BundleService {
-	private final BundleConfiguration configuration;
 	private Locale current;
 
-	private final Table<Class<? extends Bundle>, Locale, Bundle> cache;
+	private final BundleCache cache;
 
 	public BasicBundleService(BundleConfiguration configuration) {
 		this(configuration, Locale.getDefault());
 	}
 
 	public BasicBundleService(BundleConfiguration configuration, Locale current) {
-		this.configuration = configuration;
+		this(configuration, current, CachePolicy.unbounded());
+	}
+
+	public BasicBundleService(BundleConfiguration configuration, Locale current, CachePolicy cachePolicy) {
 		this.current = current;
-		this.cache = HashBasedTable.create();
+		this.cache = new BundleCache(configuration, cachePolicy);
 	}
 
 	public void setCurrent(Locale current) {
@@ -37,11 +43,22 @@ public final class BasicBundleService implements BundleService {
 	}
 
 	@Override
-	@SuppressWarnings("unchecked")
 	public <T extends Bundle> T get(Class<T> bundleClass, Locale locale) {
-		if (!cache.contains(bundleClass, locale)) {
-			cache.put(bundleClass, locale, BundleMaker.load(bundleClass, locale, configuration));
-		}
-		return (T)cache.get(bundleClass, locale);
+		return cache.get(bundleClass, locale);
+	}
+
+	@Override
+	public PreloadReport preload(Collection<? extends Class<? extends Bundle>> bundleClasses, Collection<Locale> locales, Executor executor, boolean exercise) {
+		return cache.preload(bundleClasses, locales, executor, exercise);
+	}
+
+	@Override
+	public PreloadReport reload() {
+		return cache.reload();
+	}
+
+	@Override
+	public CacheStats getCacheStats() {
+		return cache.getStats();
 	}
 }
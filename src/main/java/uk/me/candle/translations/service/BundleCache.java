@@ -0,0 +1,198 @@
+package uk.me.candle.translations.service;
+
+import com.google.common.collect.ComputationException;
+import com.google.common.collect.MapEvictionListener;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import uk.me.candle.translations.Bundle;
+import uk.me.candle.translations.BundleCreationException;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.conf.BundleConfiguration.LocaleInheritance;
+import uk.me.candle.translations.conf.BundleConfigurationBuilder;
+import uk.me.candle.translations.maker.BundleClassLoader;
+import uk.me.candle.translations.maker.BundleMaker;
+
+/**
+ * The bundles of a service, by class and then locale, kept according to a
+ * cache policy.
+ *
+ * Fetching a bundle that is already cached does not take a lock. Bundles
+ * for different locales are created concurrently, and one instance is
+ * created for each class and locale until it is evicted. With a policy that
+ * resolves locales, the bundles of the requested locales that resolve to the
+ * same locale share its generated class. Reloading
+ * replaces each bundle atomically, and reloads are serialised.
+ *
+ * @author Andrew
+ */
+final class BundleCache {
+	private final BundleConfiguration configuration;
+	private final CachePolicy policy;
+	private final boolean recordHits;
+	/** null unless the policy resolves locales. */
+	private final LocaleResolver resolver;
+	private final ConcurrentMap<Class<? extends Bundle>, ConcurrentMap<Locale, Bundle>> bundles
+			= new ConcurrentHashMap<Class<? extends Bundle>, ConcurrentMap<Locale, Bundle>>();
+
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final MapEvictionListener<Locale, Bundle> evictionListener = new MapEvictionListener<Locale, Bundle>() {
+		@Override
+		public void onEviction(Locale locale, Bundle bundle) {
+			evictions.increment();
+		}
+	};
+	/** the time of the last check for modified translation files, guarded by this */
+	private long checked;
+
+	BundleCache(BundleConfiguration configuration, CachePolicy policy) {
+		this.configuration = policy.isBounded() ? withoutInheritance(configuration) : configuration;
+		this.policy = policy;
+		this.recordHits = policy.isRecordingHits();
+		this.resolver = policy.isResolvingLocales() ? new LocaleResolver(configuration) : null;
+		this.checked = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return the cached bundle, which is created if it is missing.
+	 */
+	@SuppressWarnings("unchecked") // the bundles of a class are instances of that class.
+	<T extends Bundle> T get(Class<T> cls, Locale locale) {
+		if (recordHits) {
+			requests.increment();
+		}
+		ConcurrentMap<Locale, Bundle> forClass = getBundles(cls);
+		try {
+			Bundle bundle = forClass.get(locale);
+			if (bundle == null) {
+				// only the unbounded map does not create the bundle in get.
+				bundle = forClass.computeIfAbsent(locale, creator(cls));
+			}
+			return (T)bundle;
+		} catch (ComputationException ex) {
+			// the exception from BundleMaker is thrown as it is.
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			} else if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new BundleCreationException(ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * @return true if the bundle has been created and not evicted.
+	 */
+	boolean contains(Class<? extends Bundle> cls, Locale locale) {
+		ConcurrentMap<Locale, Bundle> forClass = bundles.get(cls);
+		return forClass != null && forClass.containsKey(locale);
+	}
+
+	/**
+	 * @see BundleService#preload(Collection, Collection, Executor, boolean)
+	 */
+	PreloadReport preload(Collection<? extends Class<? extends Bundle>> bundleClasses, Collection<Locale> locales, Executor executor, boolean exercise) {
+		return Preloader.preload(bundleClasses, locales, executor, exercise, new BiFunction<Class<? extends Bundle>, Locale, Bundle>() {
+			@Override
+			public Bundle apply(Class<? extends Bundle> cls, Locale locale) {
+				return get(cls, locale);
+			}
+		});
+	}
+
+	/**
+	 * Each new bundle replaces the old one atomically; a caller gets either
+	 * the old or the new bundle, both of which are fully created.
+	 * @see BundleService#reload()
+	 */
+	synchronized PreloadReport reload() {
+		long now = System.currentTimeMillis();
+		// translation files may have been added or removed.
+		if (resolver != null) {
+			for (Class<? extends Bundle> cls : bundles.keySet()) {
+				resolver.discard(cls);
+			}
+		}
+		PreloadReport report = Reloader.reload(bundles, checked, configuration, resolver);
+		for (PreloadReport.Entry entry : report.getEntries()) {
+			if (entry.isSuccessful()) {
+				getBundles(entry.getBundleClass()).put(entry.getLocale(), entry.getBundle());
+			}
+		}
+		checked = now;
+		return report;
+	}
+
+	CacheStats getStats() {
+		long missCount = misses.sum();
+		long hitCount = recordHits ? requests.sum() - missCount : 0;
+		return new CacheStats(hitCount, missCount, evictions.sum());
+	}
+
+	private ConcurrentMap<Locale, Bundle> getBundles(Class<? extends Bundle> cls) {
+		ConcurrentMap<Locale, Bundle> forClass = bundles.get(cls);
+		if (forClass == null) {
+			forClass = policy.isBounded()
+					? policy.makeBoundedMap(creator(cls), evictionListener)
+					// a ConcurrentHashMap is faster to read, and creates each bundle once in computeIfAbsent.
+					: new ConcurrentHashMap<Locale, Bundle>();
+			ConcurrentMap<Locale, Bundle> existing = bundles.putIfAbsent(cls, forClass);
+			if (existing != null) {
+				forClass = existing;
+			}
+		}
+		return forClass;
+	}
+
+	/**
+	 * @return creates the bundle of the class for a locale.
+	 */
+	private Function<Locale, Bundle> creator(final Class<? extends Bundle> cls) {
+		return new Function<Locale, Bundle>() {
+			@Override
+			public Bundle apply(Locale locale) {
+				return create(cls, locale);
+			}
+		};
+	}
+
+	/**
+	 * Each bundle of a bounded cache is generated in its own class loader, so the
+	 * class of a parent locale would be generated again for every bundle that
+	 * extends it; every class implements every method instead.
+	 */
+	private static BundleConfiguration withoutInheritance(BundleConfiguration configuration) {
+		if (configuration.getLocaleInheritance().equals(LocaleInheritance.NO)) {
+			return configuration;
+		}
+		return new BundleConfigurationBuilder()
+				.ignoreMissing(configuration.getIgnoreMissing())
+				.ignoreExtra(configuration.getIgnoreExtra())
+				.ignoreParameterMisMatch(configuration.getIgnoreParameterMisMatch())
+				.allowDefaultLanguage(configuration.getAllowDefaultLanguage())
+				.lazyTranslation(configuration.getLazyTranslation())
+				.localeInheritance(LocaleInheritance.NO)
+				.instrumentation(configuration.getInstrumentation())
+				.keyUsageTracking(configuration.getKeyUsageTracking())
+				.hiddenClasses(configuration.getHiddenClasses())
+				.build();
+	}
+
+	private Bundle create(Class<? extends Bundle> cls, Locale locale) {
+		misses.increment();
+		Locale translationLocale = resolver == null ? locale : resolver.resolve(cls, locale);
+		if (policy.isBounded()) {
+			// a class loader for each class, so that the class can be unloaded once it is evicted.
+			return BundleMaker.load(cls, locale, translationLocale, configuration, new BundleClassLoader());
+		}
+		return BundleMaker.load(cls, locale, translationLocale, configuration);
+	}
+}
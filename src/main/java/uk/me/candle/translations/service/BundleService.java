@@ -1,13 +1,63 @@
 package uk.me.candle.translations.service;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
 import uk.me.candle.translations.Bundle;
 
 /**
+ * The methods added since the first release have default implementations, so
+ * that other implementations of this interface still compile.
  *
  * @author andrew
  */
 public interface BundleService {
 	<T extends Bundle> T get(Class<T> bundleClass);
 	<T extends Bundle> T get(Class<T> bundleClass, Locale locale);
+
+	/**
+	 * Creates a bundle for every combination of bundle class and locale, so that
+	 * later calls to get do not pay the cost of generating them.
+	 * Each combination is a separate task on the executor; this method returns
+	 * when they have all completed. Failures are reported, not thrown.
+	 * @param bundleClasses the bundles to create
+	 * @param locales the locales to create each of the bundles for
+	 * @param executor runs the tasks, a ForkJoinPool for example
+	 * @param exercise if true then each translation method is called once, with
+	 * zero, false or null arguments, so that it is fully initialised; these
+	 * calls are not recorded by key usage tracking or instrumentation.
+	 * @return the time taken for, and any failure of, each combination
+	 */
+	default PreloadReport preload(Collection<? extends Class<? extends Bundle>> bundleClasses, Collection<Locale> locales, Executor executor, boolean exercise) {
+		return Preloader.preload(bundleClasses, locales, executor, exercise, new BiFunction<Class<? extends Bundle>, Locale, Bundle>() {
+			@Override
+			public Bundle apply(Class<? extends Bundle> cls, Locale locale) {
+				return get(cls, locale);
+			}
+		});
+	}
+
+	/**
+	 * Creates new instances of the bundles whose translation files, on the file
+	 * system, have been modified since the previous reload, or since the service
+	 * was created. Later calls to get return the new instances; the previous
+	 * instances keep working, and their classes are unloaded once they are no
+	 * longer used. A bundle that cannot be created again is not replaced, and
+	 * the failure is reported, not thrown.
+	 * The default implementation reloads nothing.
+	 * @return the time taken for, and any failure of, each bundle that was created again.
+	 */
+	default PreloadReport reload() {
+		return new PreloadReport(Collections.<PreloadReport.Entry>emptyList(), 0);
+	}
+
+	/**
+	 * The default implementation has no cache, and returns zero counts.
+	 * @return the number of bundles that were found in, created for and evicted from the cache.
+	 */
+	default CacheStats getCacheStats() {
+		return new CacheStats(0, 0, 0);
+	}
 }
@@ -0,0 +1,145 @@
+package uk.me.candle.translations.service;
+
+import com.google.common.collect.MapEvictionListener;
+import com.google.common.collect.MapMaker;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import uk.me.candle.translations.Bundle;
+
+/**
+ * Limits the bundles that a service keeps. The default policy keeps every
+ * bundle that is created. Each method returns a new policy, for example:
+ * {@code CachePolicy.unbounded().maximumSize(8).expireAfterAccess(1, TimeUnit.HOURS)}
+ *
+ * With a bounded policy, each generated class is defined in its own class
+ * loader, so that the class is unloaded once the bundle is evicted and the
+ * instance is no longer used. Precompiled classes are never unloaded.
+ * The classes cannot extend the class of a parent locale in another class
+ * loader, so LocaleInheritance is not used with a bounded policy.
+ *
+ * @author Andrew
+ */
+public final class CachePolicy {
+	private static final CachePolicy UNBOUNDED = new CachePolicy(-1, -1, false, false, false);
+
+	private final int maximumSize;
+	private final long expireAfterAccessNanos;
+	private final boolean softValues;
+	private final boolean recordHits;
+	private final boolean resolveLocales;
+
+	private CachePolicy(int maximumSize, long expireAfterAccessNanos, boolean softValues, boolean recordHits, boolean resolveLocales) {
+		this.maximumSize = maximumSize;
+		this.expireAfterAccessNanos = expireAfterAccessNanos;
+		this.softValues = softValues;
+		this.recordHits = recordHits;
+		this.resolveLocales = resolveLocales;
+	}
+
+	/**
+	 * @return the policy that keeps every bundle.
+	 */
+	public static CachePolicy unbounded() {
+		return UNBOUNDED;
+	}
+
+	/**
+	 * @param maximumSize the number of locales kept for each bundle class;
+	 * the least recently used locale is evicted first.
+	 */
+	public CachePolicy maximumSize(int maximumSize) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("The maximum size must be positive: " + maximumSize);
+		}
+		return new CachePolicy(maximumSize, expireAfterAccessNanos, softValues, recordHits, resolveLocales);
+	}
+
+	/**
+	 * Evicts a bundle that has not been fetched from the service for the duration.
+	 */
+	public CachePolicy expireAfterAccess(long duration, TimeUnit unit) {
+		if (duration <= 0) {
+			throw new IllegalArgumentException("The duration must be positive: " + duration);
+		}
+		return new CachePolicy(maximumSize, unit.toNanos(duration), softValues, recordHits, resolveLocales);
+	}
+
+	/**
+	 * Evicts bundles that are not otherwise referenced when the garbage collector needs the memory.
+	 */
+	public CachePolicy softValues() {
+		return new CachePolicy(maximumSize, expireAfterAccessNanos, true, recordHits, resolveLocales);
+	}
+
+	/**
+	 * Counts the bundles that are fetched from the cache, see {@link CacheStats#getHitCount()}.
+	 * Misses and evictions are always counted; counting hits adds a small cost to every get.
+	 */
+	public CachePolicy recordHits() {
+		return new CachePolicy(maximumSize, expireAfterAccessNanos, softValues, true, resolveLocales);
+	}
+
+	/**
+	 * Creates the bundle of each requested locale with the class generated for
+	 * the locale that a {@link LocaleResolver} resolves it to; so that the
+	 * number of generated classes is bounded by the translation files, not by
+	 * the locales requested. The locale of the bundle is the requested locale,
+	 * so numbers and dates are formatted for it.
+	 */
+	public CachePolicy resolveLocales() {
+		return new CachePolicy(maximumSize, expireAfterAccessNanos, softValues, recordHits, true);
+	}
+
+	boolean isRecordingHits() {
+		return recordHits;
+	}
+
+	boolean isResolvingLocales() {
+		return resolveLocales;
+	}
+
+	/**
+	 * @return true if bundles are ever evicted.
+	 */
+	public boolean isBounded() {
+		return maximumSize > 0 || expireAfterAccessNanos > 0 || softValues;
+	}
+
+	/**
+	 * @param loader creates the bundle for a locale that is not in the map; it is called once for each missing locale.
+	 * @param listener is told of every bundle that is evicted.
+	 * @return a map that creates the missing bundles when get is called,
+	 * the failures of the loader are thrown wrapped in a ComputationException.
+	 */
+	ConcurrentMap<Locale, Bundle> makeBoundedMap(final Function<Locale, Bundle> loader, MapEvictionListener<Locale, Bundle> listener) {
+		MapMaker maker = new MapMaker();
+		if (maximumSize > 0) {
+			// a single segment, so that the least recently used locale of the class is evicted.
+			maker.concurrencyLevel(1).maximumSize(maximumSize);
+		}
+		if (expireAfterAccessNanos > 0) {
+			maker.expireAfterAccess(expireAfterAccessNanos, TimeUnit.NANOSECONDS);
+		}
+		if (softValues) {
+			maker.softValues();
+		}
+		return maker.evictionListener(listener).makeComputingMap(new com.google.common.base.Function<Locale, Bundle>() {
+			@Override
+			public Bundle apply(Locale locale) {
+				return loader.apply(locale);
+			}
+		});
+	}
+
+	@Override
+	public String toString() {
+		if (!isBounded()) {
+			return "CachePolicy[unbounded, recordHits=" + recordHits + ", resolveLocales=" + resolveLocales + "]";
+		}
+		return "CachePolicy[maximumSize=" + maximumSize
+				+ ", expireAfterAccess=" + TimeUnit.NANOSECONDS.toMillis(expireAfterAccessNanos) + "ms"
+				+ ", softValues=" + softValues + ", recordHits=" + recordHits + ", resolveLocales=" + resolveLocales + "]";
+	}
+}
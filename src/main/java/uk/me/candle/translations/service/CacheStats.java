@@ -0,0 +1,46 @@
+package uk.me.candle.translations.service;
+
+/**
+ * The number of times that a service found, created and evicted bundles.
+ * The counts are a snapshot, taken by {@link BundleService#getCacheStats()}.
+ *
+ * @author Andrew
+ */
+public final class CacheStats {
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+
+	CacheStats(long hitCount, long missCount, long evictionCount) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+	}
+
+	/**
+	 * @return the number of bundles fetched that had already been created;
+	 * this is 0 unless the cache policy uses {@link CachePolicy#recordHits()}.
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of bundles that were created, including any that could not be.
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the number of bundles that were evicted by the cache policy.
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats[hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "]";
+	}
+}
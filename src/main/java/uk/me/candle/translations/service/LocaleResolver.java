@@ -0,0 +1,110 @@
+package uk.me.candle.translations.service;
+
+import com.google.common.collect.MapMaker;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import uk.me.candle.translations.Bundle;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.conf.BundleConfiguration.AllowDefaultLanguage;
+import uk.me.candle.translations.maker.BundleMaker;
+
+/**
+ * Maps a requested locale to the locale whose translation files the bundle
+ * is created with, using the translation files that exist; so that locales
+ * that only differ in parts without translations share one generated class.
+ *
+ * The most specific of language_country_variant, language_country and
+ * language that has a translation file is used. For example, with
+ * Foo.properties, Foo_en.properties and Foo_en_gb.properties: en_GB and
+ * en_GB_POSIX resolve to en_GB, while en_IE, en_001 and en resolve to en.
+ * Scripts and extensions are ignored, as no translation file is chosen by them.
+ *
+ * A locale whose language has no translation file resolves to the language,
+ * if it is an ISO 639 language; otherwise to Locale.ROOT. Without
+ * {@link AllowDefaultLanguage#YES} only the exact file is used, so a locale
+ * without any is not resolved and the bundle fails to load as before.
+ *
+ * The results are kept for each bundle class, up to {@link #MAXIMUM_LOCALES}
+ * requested locales per class.
+ *
+ * This class is intended to be thread-safe.
+ *
+ * @author Andrew
+ */
+public final class LocaleResolver {
+	public static final int MAXIMUM_LOCALES = 1000;
+	private static final Set<String> ISO_LANGUAGES = new HashSet<String>(Arrays.asList(Locale.getISOLanguages()));
+
+	private final boolean allowDefaultLanguage;
+	private final ConcurrentMap<Class<? extends Bundle>, ConcurrentMap<Locale, Locale>> resolved
+			= new ConcurrentHashMap<Class<? extends Bundle>, ConcurrentMap<Locale, Locale>>();
+
+	public LocaleResolver(BundleConfiguration configuration) {
+		this.allowDefaultLanguage = configuration.getAllowDefaultLanguage().equals(AllowDefaultLanguage.YES);
+	}
+
+	/**
+	 * @return the locale whose translations the bundle of the requested locale is created with.
+	 */
+	public Locale resolve(final Class<? extends Bundle> cls, Locale requested) {
+		ConcurrentMap<Locale, Locale> forClass = resolved.get(cls);
+		if (forClass == null) {
+			forClass = new MapMaker().maximumSize(MAXIMUM_LOCALES).makeComputingMap(
+					new com.google.common.base.Function<Locale, Locale>() {
+						@Override
+						public Locale apply(Locale locale) {
+							return compute(cls, locale);
+						}
+					});
+			ConcurrentMap<Locale, Locale> existing = resolved.putIfAbsent(cls, forClass);
+			if (existing != null) {
+				forClass = existing;
+			}
+		}
+		return forClass.get(requested);
+	}
+
+	/**
+	 * Forgets the locales resolved for the bundle class, after its translation files have changed.
+	 */
+	public void discard(Class<? extends Bundle> cls) {
+		resolved.remove(cls);
+	}
+
+	private Locale compute(Class<? extends Bundle> cls, Locale requested) {
+		String language = requested.getLanguage();
+		String country = requested.getCountry();
+		String variant = requested.getVariant();
+		if (!variant.isEmpty() && !country.isEmpty()) {
+			Locale candidate = new Locale(language, country, variant);
+			if (BundleMaker.hasTranslations(cls, candidate)) {
+				return candidate;
+			}
+		}
+		if (!country.isEmpty()) {
+			Locale candidate = new Locale(language, country);
+			if (BundleMaker.hasTranslations(cls, candidate)) {
+				return candidate;
+			}
+		}
+		if (!language.isEmpty()) {
+			Locale candidate = new Locale(language);
+			if (BundleMaker.hasTranslations(cls, candidate)) {
+				return candidate;
+			}
+		}
+		if (!allowDefaultLanguage) {
+			return requested;
+		}
+		return ISO_LANGUAGES.contains(language) ? new Locale(language) : Locale.ROOT;
+	}
+
+	@Override
+	public String toString() {
+		return "LocaleResolver[allowDefaultLanguage=" + allowDefaultLanguage + "]";
+	}
+}
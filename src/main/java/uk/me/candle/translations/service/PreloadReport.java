@@ -0,0 +1,124 @@
+package uk.me.candle.translations.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import uk.me.candle.translations.Bundle;
+
+/**
+ * The result of {@link BundleService#preload} and {@link BundleService#reload}:
+ * how long each bundle took to create and why any of them could not be created.
+ *
+ * @author Andrew
+ */
+public final class PreloadReport {
+	private final List<Entry> entries;
+	private final long elapsedNanos;
+
+	PreloadReport(List<Entry> entries, long elapsedNanos) {
+		this.entries = Collections.unmodifiableList(entries);
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return one entry for every bundle class and locale, in the order that they were requested.
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return the entries for the bundles that could not be created or exercised.
+	 */
+	public List<Entry> getFailures() {
+		List<Entry> failures = new ArrayList<Entry>();
+		for (Entry entry : entries) {
+			if (!entry.isSuccessful()) {
+				failures.add(entry);
+			}
+		}
+		return failures;
+	}
+
+	public boolean isSuccessful() {
+		for (Entry entry : entries) {
+			if (!entry.isSuccessful()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the wall clock time of the whole preload.
+	 */
+	public long getElapsed(TimeUnit unit) {
+		return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Preloaded ").append(entries.size()).append(" bundle(s) in ")
+				.append(getElapsed(TimeUnit.MILLISECONDS)).append("ms");
+		for (Entry entry : entries) {
+			sb.append('\n').append(entry);
+		}
+		return sb.toString();
+	}
+
+	public static final class Entry {
+		private final Class<? extends Bundle> bundleClass;
+		private final Locale locale;
+		private final long elapsedNanos;
+		private final Bundle bundle;
+		private final Throwable failure;
+
+		Entry(Class<? extends Bundle> bundleClass, Locale locale, long elapsedNanos, Bundle bundle, Throwable failure) {
+			this.bundleClass = bundleClass;
+			this.locale = locale;
+			this.elapsedNanos = elapsedNanos;
+			this.bundle = bundle;
+			this.failure = failure;
+		}
+
+		public Class<? extends Bundle> getBundleClass() {
+			return bundleClass;
+		}
+
+		public Locale getLocale() {
+			return locale;
+		}
+
+		/**
+		 * @return the time taken to create, and if requested exercise, the bundle.
+		 */
+		public long getElapsed(TimeUnit unit) {
+			return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+		}
+
+		public boolean isSuccessful() {
+			return failure == null;
+		}
+
+		/**
+		 * @return the reason that the bundle could not be created, or null.
+		 */
+		public Throwable getFailure() {
+			return failure;
+		}
+
+		Bundle getBundle() {
+			return bundle;
+		}
+
+		@Override
+		public String toString() {
+			return bundleClass.getName() + " [" + locale + "] "
+					+ getElapsed(TimeUnit.MICROSECONDS) + "us"
+					+ (failure == null ? "" : " failed: " + failure);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package uk.me.candle.translations.service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.BiFunction;
+import uk.me.candle.translations.Bundle;
+import uk.me.candle.translations.maker.BundleMaker;
+
+/**
+ * Creates every combination of bundle class and locale as separate tasks on
+ * an executor, and waits for them all to complete.
+ *
+ * @author Andrew
+ */
+final class Preloader {
+	private Preloader() { }
+
+	/**
+	 * @param loader creates, or fetches, the bundle; this is called concurrently.
+	 */
+	static PreloadReport preload(Collection<? extends Class<? extends Bundle>> bundleClasses, Collection<Locale> locales,
+			Executor executor, final boolean exercise, final BiFunction<Class<? extends Bundle>, Locale, Bundle> loader) {
+		long start = System.nanoTime();
+		List<FutureTask<PreloadReport.Entry>> tasks = new ArrayList<FutureTask<PreloadReport.Entry>>();
+		for (final Class<? extends Bundle> cls : bundleClasses) {
+			for (final Locale locale : locales) {
+				FutureTask<PreloadReport.Entry> task = new FutureTask<PreloadReport.Entry>(new Callable<PreloadReport.Entry>() {
+					@Override
+					public PreloadReport.Entry call() {
+						return load(cls, locale, exercise, loader);
+					}
+				});
+				tasks.add(task);
+				executor.execute(task);
+			}
+		}
+		List<PreloadReport.Entry> entries = new ArrayList<PreloadReport.Entry>(tasks.size());
+		for (FutureTask<PreloadReport.Entry> task : tasks) {
+			entries.add(await(task));
+		}
+		return new PreloadReport(entries, System.nanoTime() - start);
+	}
+
+	private static PreloadReport.Entry await(FutureTask<PreloadReport.Entry> task) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException ex) {
+					interrupted = true; // finish waiting, the tasks are already queued.
+				} catch (ExecutionException ex) {
+					// load catches everything, so this is an Error thrown by the executor.
+					throw new IllegalStateException(ex.getCause());
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static PreloadReport.Entry load(final Class<? extends Bundle> cls, Locale locale, boolean exercise, BiFunction<Class<? extends Bundle>, Locale, Bundle> loader) {
+		long start = System.nanoTime();
+		Bundle bundle = null;
+		try {
+			bundle = loader.apply(cls, locale);
+			if (exercise) {
+				final Bundle exercised = bundle;
+				BundleMaker.runUntracked(new Runnable() {
+					@Override
+					public void run() {
+						exercise(cls, exercised);
+					}
+				});
+			}
+			return new PreloadReport.Entry(cls, locale, System.nanoTime() - start, bundle, null);
+		} catch (RuntimeException ex) {
+			return new PreloadReport.Entry(cls, locale, System.nanoTime() - start, bundle, ex);
+		} catch (LinkageError ex) {
+			return new PreloadReport.Entry(cls, locale, System.nanoTime() - start, bundle, ex);
+		}
+	}
+
+	/**
+	 * Calls each translation method once, with zero, false or null arguments, so
+	 * that everything used by the generated methods is initialised. The calls
+	 * are not recorded in the key usage or the metrics of the bundle.
+	 */
+	private static void exercise(Class<? extends Bundle> cls, Bundle bundle) {
+		for (Method method : cls.getMethods()) {
+			if (!Modifier.isAbstract(method.getModifiers()) || method.getReturnType() != String.class) {
+				continue;
+			}
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			Object[] arguments = new Object[parameterTypes.length];
+			for (int i = 0; i < parameterTypes.length; ++i) {
+				arguments[i] = defaultValue(parameterTypes[i]);
+			}
+			try {
+				method.setAccessible(true); // the bundle class may not be public.
+				method.invoke(bundle, arguments);
+			} catch (IllegalAccessException ex) {
+				throw new IllegalStateException("Could not call " + method, ex);
+			} catch (InvocationTargetException ex) {
+				throw new IllegalStateException("Calling " + method + " failed", ex.getCause());
+			}
+		}
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return null;
+		} else if (type == boolean.class) {
+			return Boolean.FALSE;
+		} else if (type == char.class) {
+			return Character.valueOf('\0');
+		} else if (type == byte.class) {
+			return Byte.valueOf((byte) 0);
+		} else if (type == short.class) {
+			return Short.valueOf((short) 0);
+		} else if (type == int.class) {
+			return Integer.valueOf(0);
+		} else if (type == long.class) {
+			return Long.valueOf(0L);
+		} else if (type == float.class) {
+			return Float.valueOf(0f);
+		} else {
+			return Double.valueOf(0d);
+		}
+	}
+}
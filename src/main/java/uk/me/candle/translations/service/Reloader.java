@@ -0,0 +1,71 @@
+package uk.me.candle.translations.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import uk.me.candle.translations.Bundle;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.maker.BundleClassLoader;
+import uk.me.candle.translations.maker.BundleMaker;
+
+/**
+ * Generates new instances of the bundles whose translation files have
+ * changed. The new classes are defined in a new class loader, so that the
+ * replaced classes can be unloaded.
+ *
+ * @author Andrew
+ */
+final class Reloader {
+	private Reloader() { }
+
+	/**
+	 * The bundles are only created; the caller replaces the bundles that it
+	 * hands out with the successful entries of the report.
+	 * @param loaded the bundles that have been created, by class and locale.
+	 * @param since the time, in milliseconds since the epoch, of the previous check for changes.
+	 * @param resolver resolves the locale whose translations each bundle is
+	 * created with; null if the bundles are created with their own.
+	 * @return an entry for each bundle that was created again.
+	 */
+	static PreloadReport reload(Map<Class<? extends Bundle>, ? extends Map<Locale, Bundle>> loaded, long since, BundleConfiguration configuration, LocaleResolver resolver) {
+		long start = System.nanoTime();
+		List<PreloadReport.Entry> entries = new ArrayList<PreloadReport.Entry>();
+		BundleClassLoader generation = null;
+		for (Map.Entry<Class<? extends Bundle>, ? extends Map<Locale, Bundle>> entry : loaded.entrySet()) {
+			Class<? extends Bundle> cls = entry.getKey();
+			List<Locale> changed = new ArrayList<Locale>();
+			for (Locale locale : entry.getValue().keySet()) {
+				// the files of the requested locale include those of the locale it resolves to.
+				// a file modified in the same millisecond as the check is treated as changed.
+				if (BundleMaker.getTranslationsLastModified(cls, locale) >= since) {
+					changed.add(locale);
+				}
+			}
+			if (changed.isEmpty()) {
+				continue;
+			}
+			if (generation == null) {
+				generation = new BundleClassLoader();
+			}
+			BundleMaker.discardTranslations(cls);
+			for (Locale locale : changed) {
+				Locale translationLocale = resolver == null ? locale : resolver.resolve(cls, locale);
+				entries.add(reload(cls, locale, translationLocale, configuration, generation));
+			}
+		}
+		return new PreloadReport(entries, System.nanoTime() - start);
+	}
+
+	private static PreloadReport.Entry reload(Class<? extends Bundle> cls, Locale locale, Locale translationLocale, BundleConfiguration configuration, BundleClassLoader generation) {
+		long start = System.nanoTime();
+		try {
+			Bundle bundle = BundleMaker.reload(cls, locale, translationLocale, configuration, generation);
+			return new PreloadReport.Entry(cls, locale, System.nanoTime() - start, bundle, null);
+		} catch (RuntimeException ex) {
+			return new PreloadReport.Entry(cls, locale, System.nanoTime() - start, null, ex);
+		} catch (LinkageError ex) {
+			return new PreloadReport.Entry(cls, locale, System.nanoTime() - start, null, ex);
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package uk.me.candle.translations.service;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import uk.me.candle.translations.Bundle;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+
+/**
+ * Caches Bundle instances, as TlsBundleService does, but the locale of
+ * {@link #get(Class)} is bound for the extent of a task rather than set on
+ * a thread:
+ *
+ * <pre>{@code
+ * service.run(userLocale, new Runnable() {
+ *     public void run() {
+ *         render(service.get(Foo.class));
+ *     }
+ * });
+ * }</pre>
+ *
+ * Outside of {@link #run} and {@link #call} the default locale is used. A
+ * binding is not inherited by new threads, and is removed when the task
+ * completes, so pooled and fork/join threads never see the locale of an
+ * earlier task. Use {@link #executor(Executor)}, {@link #wrap(Runnable)},
+ * {@link #runAsync} or {@link #supplyAsync} to carry the caller's locale into
+ * tasks that run on other threads; the locale is captured when the task is
+ * wrapped, or the executor is created.
+ *
+ * This is the binding that a ScopedValue makes; it is kept in a thread
+ * local that is only set while a task runs, as the library targets Java 8.
+ *
+ * This class is intended to be thread-safe.
+ *
+ * @author Andrew
+ */
+public final class ScopedBundleService implements BundleService {
+	private final Locale defaultLocale;
+	/** the locale bound for the running task; never set outside of run or call. */
+	private final ThreadLocal<Locale> bound = new ThreadLocal<Locale>();
+
+	private final BundleCache cache;
+
+	public ScopedBundleService() {
+		this(new DefaultBundleConfiguration(), Locale.getDefault());
+	}
+	public ScopedBundleService(BundleConfiguration configuration) {
+		this(configuration, Locale.getDefault());
+	}
+	public ScopedBundleService(BundleConfiguration configuration, Locale defaultLocale) {
+		this(configuration, defaultLocale, CachePolicy.unbounded());
+	}
+	public ScopedBundleService(BundleConfiguration configuration, Locale defaultLocale, CachePolicy cachePolicy) {
+		this.defaultLocale = defaultLocale;
+		this.cache = new BundleCache(configuration, cachePolicy);
+	}
+
+	/**
+	 * @return the locale bound for the running task, or the default locale.
+	 */
+	public Locale getLocale() {
+		Locale locale = bound.get();
+		return locale == null ? defaultLocale : locale;
+	}
+
+	/**
+	 * @return true if a locale is bound for the running task.
+	 */
+	public boolean isBound() {
+		return bound.get() != null;
+	}
+
+	/**
+	 * Runs the task with the locale bound; the previous binding is restored afterwards.
+	 */
+	public void run(Locale locale, Runnable task) {
+		Locale previous = bind(locale);
+		try {
+			task.run();
+		} finally {
+			restore(previous);
+		}
+	}
+
+	/**
+	 * Calls the task with the locale bound; the previous binding is restored afterwards.
+	 */
+	public <V> V call(Locale locale, Callable<V> task) throws Exception {
+		Locale previous = bind(locale);
+		try {
+			return task.call();
+		} finally {
+			restore(previous);
+		}
+	}
+
+	private Locale bind(Locale locale) {
+		if (locale == null) {
+			throw new NullPointerException("locale");
+		}
+		Locale previous = bound.get();
+		bound.set(locale);
+		return previous;
+	}
+
+	private void restore(Locale previous) {
+		if (previous == null) {
+			bound.remove(); // nothing is left on a pooled thread.
+		} else {
+			bound.set(previous);
+		}
+	}
+
+	/**
+	 * @return the task, which runs with the locale of the caller of this method bound.
+	 */
+	public Runnable wrap(Runnable task) {
+		return wrap(getLocale(), task);
+	}
+
+	private Runnable wrap(final Locale locale, final Runnable task) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				ScopedBundleService.this.run(locale, task);
+			}
+		};
+	}
+
+	/**
+	 * @return the task, which runs with the locale of the caller of this method bound.
+	 */
+	public <V> Callable<V> wrap(final Callable<V> task) {
+		final Locale locale = getLocale();
+		return new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				return ScopedBundleService.this.call(locale, task);
+			}
+		};
+	}
+
+	/**
+	 * @return the supplier, which runs with the locale of the caller of this method bound.
+	 */
+	private <V> Supplier<V> wrapSupplier(final Supplier<V> supplier) {
+		final Locale locale = getLocale();
+		return new Supplier<V>() {
+			@Override
+			public V get() {
+				Locale previous = bind(locale);
+				try {
+					return supplier.get();
+				} finally {
+					restore(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Each task that is executed runs with the locale of the caller of this
+	 * method, whichever thread submits it. This carries the locale into the
+	 * stages of a CompletableFuture, which are submitted by the thread that
+	 * completes the previous stage: {@code future.thenApplyAsync(f, service.executor(pool))}
+	 * @return an executor that runs the tasks on the executor.
+	 */
+	public Executor executor(final Executor executor) {
+		final Locale locale = getLocale();
+		return new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				executor.execute(wrap(locale, command));
+			}
+		};
+	}
+
+	/**
+	 * As {@link CompletableFuture#runAsync(Runnable, Executor)}, with the locale of the caller bound.
+	 */
+	public CompletableFuture<Void> runAsync(Runnable task, Executor executor) {
+		return CompletableFuture.runAsync(wrap(task), executor);
+	}
+
+	/**
+	 * As {@link CompletableFuture#supplyAsync(Supplier, Executor)}, with the locale of the caller bound.
+	 */
+	public <V> CompletableFuture<V> supplyAsync(Supplier<V> supplier, Executor executor) {
+		return CompletableFuture.supplyAsync(wrapSupplier(supplier), executor);
+	}
+
+	@Override
+	public <T extends Bundle> T get(Class<T> cls) {
+		return get(cls, getLocale());
+	}
+
+	@Override
+	public <T extends Bundle> T get(Class<T> cls, Locale locale) {
+		return cache.get(cls, locale);
+	}
+
+	@Override
+	public PreloadReport preload(Collection<? extends Class<? extends Bundle>> bundleClasses, Collection<Locale> locales, Executor executor, boolean exercise) {
+		return cache.preload(bundleClasses, locales, executor, exercise);
+	}
+
+	@Override
+	public PreloadReport reload() {
+		return cache.reload();
+	}
+
+	@Override
+	public CacheStats getCacheStats() {
+		return cache.getStats();
+	}
+}
@@ -1,28 +1,28 @@
 package uk.me.candle.translations.service;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import uk.me.candle.translations.conf.DefaultBundleConfiguration;
 import uk.me.candle.translations.conf.BundleConfiguration;
-import uk.me.candle.translations.maker.BundleMaker;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 import uk.me.candle.translations.Bundle;
 
 /**
- * Caches Bundle instances based on their Class and Locale.
- *
+ * Caches Bundle instances based on their Class and Locale, as limited by the
+ * cache policy; by default every bundle is kept.
  *
+ * Fetching a bundle that is already cached does not take a lock. Bundles
+ * for different locales are created concurrently, and exactly one instance
+ * is created for each Class and Locale until it is evicted.
  *
  * This class is intended to be thread-safe.
  *
  * @author Andrew Wheat
  */
 public final class TlsBundleService implements BundleService {
-	private final BundleConfiguration configuration;
 	private final ThreadLocal<Locale> tlsLocale;
 
-	private final Table<Class<? extends Bundle>, Locale, Bundle> cache;
+	private final BundleCache cache;
 
 	public TlsBundleService() {
 		this(new DefaultBundleConfiguration(), Locale.getDefault());
@@ -31,31 +31,44 @@ public final class TlsBundleService implements BundleService {
 		this(configuration, Locale.getDefault());
 	}
 	public TlsBundleService(BundleConfiguration configuration, Locale initial) {
-		this.configuration = configuration;
+		this(configuration, initial, CachePolicy.unbounded());
+	}
+	public TlsBundleService(BundleConfiguration configuration, Locale initial, CachePolicy cachePolicy) {
 		this.tlsLocale = new InheritableThreadLocalImpl(initial);
-		this.cache = HashBasedTable.create();
+		this.cache = new BundleCache(configuration, cachePolicy);
 	}
 
-	public synchronized Locale getThreadLocale() {
+	public Locale getThreadLocale() {
 		return tlsLocale.get();
 	}
 
-	public synchronized void setThreadLocale(Locale locale) {
+	public void setThreadLocale(Locale locale) {
 		tlsLocale.set(locale);
 	}
 
 	@Override
-	public synchronized <T extends Bundle> T get(Class<T> cls) {
+	public <T extends Bundle> T get(Class<T> cls) {
 		return get(cls, getThreadLocale());
 	}
 
-	@SuppressWarnings("unchecked") // cast in the return is safe because T is defined in the method decleration.
 	@Override
-	public synchronized <T extends Bundle> T get(Class<T> cls, Locale locale) {
-		if (!cache.contains(cls, locale)) {
-			cache.put(cls, locale, BundleMaker.load(cls, locale, configuration));
-		}
-		return (T)cache.get(cls, locale);
+	public <T extends Bundle> T get(Class<T> cls, Locale locale) {
+		return cache.get(cls, locale);
+	}
+
+	@Override
+	public PreloadReport preload(Collection<? extends Class<? extends Bundle>> bundleClasses, Collection<Locale> locales, Executor executor, boolean exercise) {
+		return cache.preload(bundleClasses, locales, executor, exercise);
+	}
+
+	@Override
+	public PreloadReport reload() {
+		return cache.reload();
+	}
+
+	@Override
+	public CacheStats getCacheStats() {
+		return cache.getStats();
 	}
 
 	private static class InheritableThreadLocalImpl extends InheritableThreadLocal<Locale> {
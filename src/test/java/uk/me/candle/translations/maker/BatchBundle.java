@@ -0,0 +1,32 @@
+package uk.me.candle.translations.maker;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Properties;
+import uk.me.candle.translations.Bundle;
+
+/**
+ *
+ * @author Andrew
+ */
+public abstract class BatchBundle extends Bundle {
+
+	static Properties getProperties() {
+		Properties p = new Properties();
+		p.setProperty("rowSummary", "{0}: {1,number,integer} at {2}");
+		p.setProperty("oranges", "There {0,choice,0#are no oranges|1#is one orange|1<are {0,number,integer} oranges}.");
+		p.setProperty("flags", "{0}/{1}");
+		return p;
+	}
+
+	public BatchBundle(Locale locale) {
+		super(locale);
+	}
+
+	public abstract String rowSummary(String name, int count, double value);
+	public abstract StringBuilder rowSummary(StringBuilder out, String[] names, int[] counts, double[] values, String separator);
+	public abstract void rowSummary(Appendable out, String[] names, int[] counts, double[] values) throws IOException;
+	public abstract String oranges(int count);
+	public abstract StringBuilder oranges(StringBuilder out, int[] counts, CharSequence separator);
+	public abstract Appendable flags(Appendable out, boolean[] flag, char[] c) throws IOException;
+}
@@ -1,15 +1,45 @@
 package uk.me.candle.translations.maker;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import uk.me.candle.translations.conf.BundleConfiguration.IgnoreExtra;
 import uk.me.candle.translations.conf.BundleConfiguration.IgnoreMissing;
 import uk.me.candle.translations.conf.BundleConfiguration.IgnoreParameterMisMatch;
 import uk.me.candle.translations.conf.BundleConfiguration;
 import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.Date;
 import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -32,6 +62,9 @@ public class BundleTest {
 			Field f = BundleMaker.class.getDeclaredField("bundleClassLoader");
 			f.setAccessible(true);
 			f.set(null, new BundleClassLoader());
+			Field g = BundleMaker.class.getDeclaredField("GENERATIONS");
+			g.setAccessible(true);
+			((Map<?, ?>) g.get(null)).clear();
 		} catch (IllegalArgumentException ex) {
 			LOG.error(ex.getMessage(), ex);
 		} catch (IllegalAccessException ex) {
@@ -338,6 +371,382 @@ public class BundleTest {
 		assertEquals("name version flag - profile", b.subPatternParameter("name", "version", 1, 1, "profile"));
 	}
 
+	@Test
+	public void testBatch() throws Exception {
+		Properties trns = BatchBundle.getProperties();
+		String[] names = {"a", "b", "c"};
+		int[] counts = {0, 1, 12345};
+		double[] values = {1.5, -2, 1234.25};
+		// a different locale for each configuration, so that each generates its own class.
+		Locale[] locales = {Locale.GERMANY, Locale.GERMAN, new Locale("de", "LU")};
+		BundleConfiguration[] configurations = {configuration,
+				new BundleConfigurationBuilder().lazyTranslation(BundleConfiguration.LazyTranslation.YES).build(),
+				new BundleConfigurationBuilder().instrumentation(BundleConfiguration.Instrumentation.YES)
+						.keyUsageTracking(BundleConfiguration.KeyUsageTracking.YES).build()};
+		for (int c = 0; c < locales.length; ++c) {
+			BatchBundle b = BundleMaker.load(BatchBundle.class, locales[c], trns, configurations[c]);
+			if (c == 1) {
+				assertEquals(0, b.getClass().getDeclaredFields().length); // every row is formatted lazily.
+			}
+			StringBuilder expected = new StringBuilder();
+			for (int i = 0; i < names.length; ++i) {
+				expected.append(i == 0 ? "" : "\n").append(b.rowSummary(names[i], counts[i], values[i]));
+			}
+			assertEquals("a: 0 at 1,5\nb: 1 at -2\nc: 12.345 at 1.234,25", expected.toString());
+			StringBuilder sb = new StringBuilder("rows:");
+			assertSame(sb, b.rowSummary(sb, names, counts, values, "\n"));
+			assertEquals("rows:" + expected, sb.toString());
+			StringBuilder appendable = new StringBuilder();
+			b.rowSummary((Appendable) appendable, names, counts, values);
+			assertEquals(expected.toString().replace("\n", ""), appendable.toString());
+
+			// MessageFormat with a choice.
+			int[] oranges = {0, 1, 2, 1000};
+			sb = new StringBuilder();
+			for (int count : oranges) {
+				sb.append(b.oranges(count)).append(", ");
+			}
+			assertEquals(sb.toString(), b.oranges(new StringBuilder(), oranges, ", ").append(", ").toString());
+			assertEquals("There are 1.000 oranges.", b.oranges(1000));
+			// a batch method does not need a method for a single row.
+			assertEquals("true/xfalse/y", b.flags(new StringBuilder(), new boolean[] {true, false}, new char[] {'x', 'y'}).toString());
+			assertEquals("", b.oranges(new StringBuilder(), new int[0], ", ").toString());
+			try {
+				b.rowSummary(new StringBuilder(), names, new int[2], values, "");
+				fail("the columns have different lengths");
+			} catch (IllegalArgumentException ex) {
+				// expected
+			}
+		}
+		assertTrue(KeyUsage.forBundle(BatchBundle.class).getUsedKeys().contains("flags"));
+		assertTrue(BundleMetrics.getMethodMetrics(BatchBundle.class.getName(), "flags", locales[2]).getCallCount() > 0);
+	}
+
+	@Test
+	public void testOutput() throws Exception {
+		Properties trns = OutputBundle.getProperties();
+		// a different locale for each configuration, so that each generates its own class.
+		Locale[] locales = {Locale.GERMANY, Locale.GERMAN, new Locale("de", "LU")};
+		BundleConfiguration[] configurations = {configuration,
+				new BundleConfigurationBuilder().lazyTranslation(BundleConfiguration.LazyTranslation.YES).build(),
+				new BundleConfigurationBuilder().instrumentation(BundleConfiguration.Instrumentation.YES)
+						.keyUsageTracking(BundleConfiguration.KeyUsageTracking.YES).build()};
+		for (int c = 0; c < locales.length; ++c) {
+			OutputBundle b = BundleMaker.load(OutputBundle.class, locales[c], trns, configurations[c]);
+			if (c == 0) {
+				int encoded = 0;
+				for (Field field : b.getClass().getDeclaredFields()) {
+					encoded += field.getType() == byte[].class ? 1 : 0;
+				}
+				assertEquals(7, encoded); // bar, and the literals of pony, count and oranges.
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(256);
+			b.bar(buffer);
+			assertEquals(b.bar(), utf8(buffer));
+			assertEquals("x" + b.bar(), b.bar(new StringBuilder("x")).toString());
+			StringWriter writer = new StringWriter();
+			assertSame(writer, b.bar(writer));
+			assertEquals(b.bar(), writer.toString());
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			b.bar(Channels.newChannel(bytes));
+			assertEquals(b.bar(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+
+			assertSame(buffer, b.pony(buffer, "Sparky \u00E9"));
+			assertEquals("my horsie's name is Sparky \u00E9", utf8(buffer));
+			b.pony(buffer, null);
+			assertEquals(b.pony(null), utf8(buffer));
+			assertEquals(b.pony("a"), b.pony((Appendable) new StringBuilder(), "a").toString());
+			bytes.reset();
+			b.pony(Channels.newChannel(bytes), "\uD83D\uDE00");
+			assertEquals(b.pony("\uD83D\uDE00"), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+
+			assertEquals("Gr\u00F6\u00DFe -12.345, true / q.", b.count(-12345, true, 'q'));
+			b.count(buffer, -12345, true, 'q');
+			assertEquals(b.count(-12345, true, 'q'), utf8(buffer));
+			assertEquals(b.count(7, false, '\u00FC'), b.count(new StringBuilder(), 7, false, '\u00FC').toString());
+
+			for (int i : new int[] {0, 1, 1000}) {
+				b.oranges(buffer, i);
+				assertEquals(b.oranges(i), utf8(buffer));
+				writer = new StringWriter();
+				b.oranges(writer, i);
+				assertEquals(b.oranges(i), writer.toString());
+			}
+			try {
+				b.bar(ByteBuffer.allocate(4));
+				fail("the buffer is too small");
+			} catch (BufferOverflowException ex) {
+				// expected
+			}
+		}
+		// unpaired surrogates are replaced, as String.getBytes replaces them.
+		String unpaired = "a\uD800b\uDC00";
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		Utf8.put(buffer, unpaired);
+		assertEquals(new String(unpaired.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), utf8(buffer));
+	}
+
+	/**
+	 * @return the UTF-8 text that has been put into the buffer, which is cleared.
+	 */
+	private static String utf8(ByteBuffer buffer) {
+		String s = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+		buffer.clear();
+		return s;
+	}
+
+	@Test
+	public void testDates() throws Exception {
+		Properties trns = DateBundle.getProperties();
+		Date date = new Date(1700000000000L);
+		LocalDate day = LocalDate.of(2024, 2, 29);
+		ZonedDateTime time = ZonedDateTime.of(2024, 2, 29, 13, 45, 30, 0, ZoneId.of("Europe/Paris"));
+		Instant instant = time.toInstant();
+		// a different locale for each configuration, so that each generates its own class.
+		Locale[] locales = {Locale.GERMANY, Locale.GERMAN, new Locale("de", "LU")};
+		BundleConfiguration[] configurations = {configuration,
+				new BundleConfigurationBuilder().lazyTranslation(BundleConfiguration.LazyTranslation.YES).build(),
+				new BundleConfigurationBuilder().instrumentation(BundleConfiguration.Instrumentation.YES).build()};
+		for (int c = 0; c < locales.length; ++c) {
+			Locale locale = locales[c];
+			DateBundle b = BundleMaker.load(DateBundle.class, locale, trns, configurations[c]);
+			if (c == 0) {
+				for (Field f : b.getClass().getDeclaredFields()) {
+					assertFalse(f.getName(), f.getType().equals(MessageFormat.class));
+				}
+				// the formatters are shared by the bundles.
+				assertSame(DateFormatter.getInstance(locale, "date,long"), DateFormatter.getInstance(locale, "date,long"));
+				assertSame(NumberFormatter.getInstance(locale, "percent"), NumberFormatter.getInstance(locale, "percent"));
+			}
+			// a Date is formatted as MessageFormat formats it.
+			assertEquals(new MessageFormat(trns.getProperty("sent"), locale).format(new Object[] {date}), b.sent(date));
+			assertEquals(new MessageFormat(trns.getProperty("sent"), locale).format(new Object[] {null}), b.sent(null));
+			assertEquals(new MessageFormat(trns.getProperty("progress"), locale).format(new Object[] {0.25, 1234.5, 1234567L}),
+					b.progress(0.25, 1234.5, 1234567L));
+			// the java.time classes with a DateTimeFormatter.
+			String due = "Due " + DateTimeFormatter.ofLocalizedDate(FormatStyle.LONG).withLocale(locale).format(day) + ".";
+			assertEquals(due, b.due(day));
+			ByteBuffer buffer = ByteBuffer.allocate(64);
+			b.due(buffer, day);
+			assertEquals(due, utf8(buffer));
+			assertEquals(due + "|" + due, b.due(new StringBuilder(), new LocalDate[] {day, day}, "|").toString());
+			assertEquals("null", b.day(null));
+			assertEquals("2024-02-29", b.day(day));
+			assertEquals(DateTimeFormatter.ofLocalizedDate(FormatStyle.FULL).withLocale(locale).format(time) + ", "
+					+ DateTimeFormatter.ofLocalizedTime(FormatStyle.SHORT).withLocale(locale).format(time), b.meeting(time));
+			assertEquals("2024-02-29 13:45", b.logged(time.toLocalDateTime()));
+			ZonedDateTime local = instant.atZone(ZoneId.systemDefault());
+			assertEquals(DateTimeFormatter.ofLocalizedDate(FormatStyle.MEDIUM).withLocale(locale).format(local) + " "
+					+ DateTimeFormatter.ofLocalizedTime(FormatStyle.LONG).withLocale(locale).format(local), b.published(instant));
+		}
+	}
+
+	@Test
+	public void testDefaultTimeZone() throws Exception {
+		Properties trns = DateBundle.getProperties();
+		Instant instant = Instant.ofEpochSecond(1700000000L);
+		Date date = Date.from(instant);
+		Locale locale = new Locale("de", "BE");
+		TimeZone zone = TimeZone.getDefault();
+		try {
+			TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+			DateBundle before = BundleMaker.load(DateBundle.class, locale, trns, configuration);
+			String sent = new MessageFormat(trns.getProperty("sent"), locale).format(new Object[] {date});
+			String published = before.published(instant);
+			TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+			// the bundle keeps the time zone it was created in, as a MessageFormat does.
+			assertEquals(sent, before.sent(date));
+			assertEquals(published, before.published(instant));
+			DateBundle after = BundleMaker.load(DateBundle.class, locale, trns, configuration);
+			assertEquals(new MessageFormat(trns.getProperty("sent"), locale).format(new Object[] {date}), after.sent(date));
+			assertFalse(sent.equals(after.sent(date)));
+			assertFalse(published.equals(after.published(instant)));
+		} finally {
+			TimeZone.setDefault(zone);
+		}
+	}
+
+	@Test
+	public void testPatternParsedOnce() throws Exception {
+		Locale locale = Locale.ENGLISH;
+		Properties trns = TranslationBundle.getProperties();
+		TranslationBundle b = BundleMaker.load(TranslationBundle.class, locale, trns, configuration);
+		int formats = 0;
+		for (Field f : b.getClass().getDeclaredFields()) {
+			if (f.getType().equals(MessageFormat.class)) {
+				formats++;
+			}
+		}
+		// only the methods with a choice of an object or with reference type arguments that
+		// may be numbers or dates use MessageFormat, the rest are concatenated.
+		assertEquals(7, formats);
+		assertEquals("There are 54 elements.", b.integerObject(Integer.valueOf(54)));
+		assertEquals("There is one element.", b.integerObject(Integer.valueOf(1)));
+		assertEquals("There are 3 elements.", b.integerObject(Integer.valueOf(3)));
+	}
+
+	@Test
+	public void testConcurrentFormatting() throws Exception {
+		Locale locale = Locale.ENGLISH;
+		Properties trns = TranslationBundle.getProperties();
+		final TranslationBundle b = BundleMaker.load(TranslationBundle.class, locale, trns, configuration);
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; ++t) {
+			final int offset = t;
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000; ++i) {
+						int n = offset * 1000 + i;
+						if (!("There are " + NumberFormat.getIntegerInstance(Locale.ENGLISH).format(n + 2) + " elements.").equals(b.integerObject(Integer.valueOf(n + 2)))) {
+							failures.incrementAndGet();
+						}
+						if (!("two more params: " + n + " x").equals(b.twoParams(String.valueOf(n), "x"))) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertEquals(0, failures.get());
+	}
+
+	@Test
+	public void testConcatenationMatchesMessageFormat() throws Exception {
+		String[] patterns = new String[] {
+			"{0}",
+			"it''s {0}",
+			"'{0}' is {0}",
+			"'it''s' {0}",
+			"{0}{0}",
+			"{0}''{0}",
+			"a '{' b {0} '}'",
+			"{1} and {0}",
+			"no parameters",
+			"'unterminated {0}",
+			"",
+		};
+		Locale locale = Locale.ENGLISH;
+		for (String pattern : patterns) {
+			setup();
+			Properties trns = TranslationBundle.getProperties();
+			trns.setProperty("nonObject", pattern);
+			trns.setProperty("primitiveChar", pattern);
+			BundleConfiguration conf = new BundleConfigurationBuilder()
+				.ignoreParameterMisMatch(IgnoreParameterMisMatch.YES)
+				.build();
+			TranslationBundle b = BundleMaker.load(TranslationBundle.class, locale, trns, conf);
+			assertEquals(pattern, new MessageFormat(pattern, locale).format(new Object[]{"aa"}), b.nonObject("aa"));
+			assertEquals(pattern, new MessageFormat(pattern, locale).format(new Object[]{null}), b.nonObject(null));
+			assertEquals(pattern, new MessageFormat(pattern, locale).format(new Object[]{Character.valueOf('c')}), b.primitiveChar('c'));
+		}
+	}
+
+	@Test
+	public void testConcatenationNotUsedForNumbers() throws Exception {
+		Locale locale = Locale.ENGLISH;
+		Properties trns = TranslationBundle.getProperties();
+		TranslationBundle b = BundleMaker.load(TranslationBundle.class, locale, trns, configuration);
+		// plain placeholders for numbers are still formatted with the locale.
+		assertEquals("int: 1,234", b.primitiveInt(1234));
+		assertEquals("overloaded 1,234", b.overload(1234));
+		assertEquals("overloaded 1,234.5", b.overload((Object) Double.valueOf(1234.5)));
+	}
+
+	@Test
+	public void testPrimitivesMatchMessageFormat() throws Exception {
+		Locale[] locales = new Locale[] {
+			Locale.ENGLISH, Locale.FRENCH, Locale.GERMANY, new Locale("de", "CH"),
+			new Locale("hi", "IN"), new Locale("ar", "EG"), new Locale("th", "TH", "TH")
+		};
+		String[] patterns = new String[] {"{0}", "{0,number}", "{0,number,integer}", "''{0}'' and {0,number,integer}"};
+		long[] longs = new long[] {0, 7, -7, 1234, -98765, 1234567890123L, Long.MIN_VALUE, Long.MAX_VALUE};
+		double[] doubles = new double[] {0, -0.0, 1.5, 2.5, -1234.5678, 1e20, Double.NaN, Double.NEGATIVE_INFINITY};
+		for (Locale locale : locales) {
+			for (String pattern : patterns) {
+				setup();
+				Properties trns = TranslationBundle.getProperties();
+				trns.setProperty("primitiveInt", pattern);
+				trns.setProperty("primitiveLong", pattern);
+				trns.setProperty("primitiveDouble", pattern);
+				trns.setProperty("primitiveFloat", pattern);
+				TranslationBundle b = BundleMaker.load(TranslationBundle.class, locale, trns, configuration);
+				for (long l : longs) {
+					String message = locale + " " + pattern + " " + l;
+					assertEquals(message, new MessageFormat(pattern, locale).format(new Object[]{Long.valueOf(l)}), b.primitiveLong(l));
+					assertEquals(message, new MessageFormat(pattern, locale).format(new Object[]{Integer.valueOf((int) l)}), b.primitiveInt((int) l));
+				}
+				for (double d : doubles) {
+					String message = locale + " " + pattern + " " + d;
+					assertEquals(message, new MessageFormat(pattern, locale).format(new Object[]{Double.valueOf(d)}), b.primitiveDouble(d));
+					assertEquals(message, new MessageFormat(pattern, locale).format(new Object[]{Float.valueOf((float) d)}), b.primitiveFloat((float) d));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testChoiceMatchesMessageFormat() throws Exception {
+		Locale[] locales = new Locale[] {Locale.ENGLISH, Locale.GERMANY, new Locale("ar", "EG")};
+		String[] patterns = new String[] {
+			"There {0,choice,0#are no oranges|1#is one orange|1<are {0,number,integer} oranges}.",
+			"{0,choice,-1#negative|0#zero or fraction|1#one|1<{0} ({0,number,integer})}",
+			"{0,choice,0#none|1#{0} is {0,choice,'1#one|2#two|2<many: {0}'}}",
+			"{0,choice,0#none|1#'''{0}''' is {0,number}}",
+			"{0,choice,1#it''s one|1<it''s {0,number} or ''{0}''}",
+			"{0,choice,0#|1# flag}",
+		};
+		long[] longs = new long[] {0, 1, 2, 3, -1, -7, 1234, Long.MIN_VALUE, Long.MAX_VALUE};
+		double[] doubles = new double[] {0, -0.0, 0.5, 1, 1.5, 2, -1, -1.5, 1234.5678, Double.NaN,
+				Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Math.nextUp(1.0), Math.nextDown(1.0)};
+		for (Locale locale : locales) {
+			for (String pattern : patterns) {
+				setup();
+				Properties trns = TranslationBundle.getProperties();
+				trns.setProperty("primitiveInt", pattern);
+				trns.setProperty("primitiveLong", pattern);
+				trns.setProperty("primitiveDouble", pattern);
+				trns.setProperty("primitiveFloat", pattern);
+				TranslationBundle b = BundleMaker.load(TranslationBundle.class, locale, trns, configuration);
+				for (long l : longs) {
+					String message = locale + " " + pattern + " " + l;
+					assertEquals(message, new MessageFormat(pattern, locale).format(new Object[]{Long.valueOf(l)}), b.primitiveLong(l));
+					assertEquals(message, new MessageFormat(pattern, locale).format(new Object[]{Integer.valueOf((int) l)}), b.primitiveInt((int) l));
+				}
+				for (double d : doubles) {
+					String message = locale + " " + pattern + " " + d;
+					assertEquals(message, new MessageFormat(pattern, locale).format(new Object[]{Double.valueOf(d)}), b.primitiveDouble(d));
+					assertEquals(message, new MessageFormat(pattern, locale).format(new Object[]{Float.valueOf((float) d)}), b.primitiveFloat((float) d));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testChoiceConcatenated() throws Exception {
+		Locale locale = Locale.ENGLISH;
+		Properties trns = SubPatternBundle.getProperties();
+		SubPatternBundle b = BundleMaker.load(SubPatternBundle.class, locale, trns, configuration);
+		for (Field f : b.getClass().getDeclaredFields()) {
+			assertFalse(f.getName(), f.getType().equals(MessageFormat.class));
+		}
+		String pattern = trns.getProperty("subPatternParameter");
+		for (int portable = -1; portable <= 2; ++portable) {
+			for (int profiles = -1; profiles <= 2; ++profiles) {
+				assertEquals(new MessageFormat(pattern, locale).format(new Object[] {"name", "version", portable, profiles, "profile"}),
+						b.subPatternParameter("name", "version", portable, profiles, "profile"));
+			}
+		}
+		// a choice of an object is formatted by MessageFormat, the object may not be a number.
+		TranslationBundle t = BundleMaker.load(TranslationBundle.class, locale, TranslationBundle.getProperties(), configuration);
+		assertEquals("There is one element.", t.integerObject(Integer.valueOf(1)));
+	}
+
 	// tests to see if it is picking up the default language
 
 	Locale getLocale(String language, String country, String varient) {
@@ -547,6 +956,329 @@ public class BundleTest {
 		assertEquals(ssb1.getClass(), ssb2.getClass());
 	}
 
+	@Test
+	public void testConcurrentLoad() throws Exception {
+		final Locale[] locales = new Locale[] {
+			Locale.ENGLISH, Locale.GERMAN, new Locale("de", "DE"), new Locale("bg"),
+			new Locale("ja"), new Locale("ja", "JP"), Locale.KOREAN, Locale.ITALIAN
+		};
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicInteger failures = new AtomicInteger();
+		final SimpleSmallBundle[][] results = new SimpleSmallBundle[4][locales.length];
+		Thread[] threads = new Thread[results.length * locales.length];
+		for (int i = 0; i < threads.length; ++i) {
+			final int row = i / locales.length;
+			final int column = i % locales.length;
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						results[row][column] = BundleMaker.load(SimpleSmallBundle.class, locales[column], configuration);
+					} catch (Exception ex) {
+						LOG.error(ex.getMessage(), ex);
+						failures.incrementAndGet();
+					} catch (LinkageError ex) {
+						LOG.error(ex.getMessage(), ex);
+						failures.incrementAndGet();
+					}
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertEquals(0, failures.get());
+		for (int column = 0; column < locales.length; ++column) {
+			for (int row = 0; row < results.length; ++row) {
+				assertEquals(results[0][column].getClass(), results[row][column].getClass());
+			}
+		}
+		assertEquals("de_de simple", results[0][2].simple());
+	}
+
+	@Test
+	public void testPrecompiledClassIsUsed() throws Exception {
+		Locale locale = Locale.GERMAN;
+		byte[] b = BundleMaker.generateClass(PrecompiledBundle.class, locale, configuration);
+		String name = BundleMaker.getClassNameFor(PrecompiledBundle.class, locale);
+		File bundleClassFile = new File(PrecompiledBundle.class.getResource("PrecompiledBundle.class").toURI());
+		File classFile = new File(bundleClassFile.getParentFile(), name.substring(name.lastIndexOf('.') + 1) + ".class");
+		FileOutputStream out = new FileOutputStream(classFile);
+		try {
+			out.write(b);
+		} finally {
+			out.close();
+		}
+		try {
+			PrecompiledBundle bundle = BundleMaker.load(PrecompiledBundle.class, locale, configuration);
+			assertEquals(name, bundle.getClass().getName());
+			assertSame(PrecompiledBundle.class.getClassLoader(), bundle.getClass().getClassLoader());
+			assertEquals("hallo Welt", bundle.greeting("Welt"));
+			assertEquals("es gibt 1.234", bundle.count(1234));
+			// the checks that are made do not change the class.
+			BundleConfiguration ignoring = new BundleConfigurationBuilder().ignoreExtra(BundleConfiguration.IgnoreExtra.YES).build();
+			assertEquals(name, BundleMaker.load(PrecompiledBundle.class, locale, ignoring, new BundleClassLoader()).getClass().getName());
+			// the class is generated for a configuration with other generation options.
+			BundleConfiguration instrumented = new BundleConfigurationBuilder().instrumentation(BundleConfiguration.Instrumentation.YES).build();
+			PrecompiledBundle generated = BundleMaker.load(PrecompiledBundle.class, locale, instrumented, new BundleClassLoader());
+			assertTrue(generated.getClass().getClassLoader() instanceof BundleClassLoader);
+			assertEquals("hallo Welt", generated.greeting("Welt"));
+			// without a precompiled class the bundle is generated.
+			PrecompiledBundle english = BundleMaker.load(PrecompiledBundle.class, Locale.ENGLISH, configuration);
+			assertTrue(english.getClass().getClassLoader() instanceof BundleClassLoader);
+			assertEquals("hello world", english.greeting("world"));
+		} finally {
+			assertTrue(classFile.delete());
+		}
+	}
+
+	@Test
+	public void testCatalogIsUsed() throws Exception {
+		Map<String, String> translations = new HashMap<String, String>();
+		translations.put("greeting", "bonjour {0}");
+		translations.put("count", "il y a {0,number,integer}");
+		File bundleClassFile = new File(PrecompiledBundle.class.getResource("PrecompiledBundle.class").toURI());
+		// there is no PrecompiledBundle_fr.properties, only the catalog.
+		File catalogFile = new File(bundleClassFile.getParentFile(), "PrecompiledBundle_fr.translations");
+		FileOutputStream out = new FileOutputStream(catalogFile);
+		try {
+			out.write(CatalogCompiler.compile(translations));
+		} finally {
+			out.close();
+		}
+		try {
+			PrecompiledBundle bundle = BundleMaker.load(PrecompiledBundle.class, Locale.FRENCH, configuration);
+			assertEquals("bonjour monde", bundle.greeting("monde"));
+			assertEquals(new MessageFormat("il y a {0,number,integer}", Locale.FRENCH).format(new Object[]{1234}), bundle.count(1234));
+		} finally {
+			assertTrue(catalogFile.delete());
+		}
+	}
+
+	@Test
+	public void testLocaleInheritance() throws Exception {
+		BundleConfiguration inheriting = new BundleConfigurationBuilder().localeInheritance(BundleConfiguration.LocaleInheritance.YES).build();
+		BundleClassLoader loader = new BundleClassLoader();
+		Locale japan = new Locale("ja", "JP");
+		SimpleSmallBundle full = BundleMaker.load(SimpleSmallBundle.class, japan, configuration, new BundleClassLoader());
+		SimpleSmallBundle inherited = BundleMaker.load(SimpleSmallBundle.class, japan, inheriting, loader);
+		assertEquals(BundleMaker.getClassNameFor(SimpleSmallBundle.class, Locale.JAPANESE), inherited.getClass().getSuperclass().getName());
+		assertEquals(SimpleSmallBundle.class, inherited.getClass().getSuperclass().getSuperclass());
+		assertEquals(japan, inherited.getLocale());
+		// only the keys of SimpleSmallBundle_ja_jp.properties are implemented.
+		assertEquals(new HashSet<String>(Arrays.asList("simple", "simpleOne", "defaultBgJaJp", "defaultBgJaJpJp")), getDeclaredMethodNames(inherited.getClass()));
+		assertEquals(full.simple(), inherited.simple());
+		assertEquals(full.simpleOne(1234), inherited.simpleOne(1234));
+		assertEquals(full.defaultOnly(), inherited.defaultOnly());
+		assertEquals(full.defaultBg(), inherited.defaultBg());
+		assertEquals(full.defaultBgJa(), inherited.defaultBgJa());
+		assertEquals(full.defaultBgJaJp(), inherited.defaultBgJaJp());
+		assertEquals(full.defaultBgJaJpJp(), inherited.defaultBgJaJpJp());
+
+		// the variant extends the country, which is shared.
+		SimpleSmallBundle variant = BundleMaker.load(SimpleSmallBundle.class, new Locale("ja", "JP", "JP"), inheriting, loader);
+		assertSame(inherited.getClass(), variant.getClass().getSuperclass());
+		assertEquals(new HashSet<String>(Arrays.asList("simple", "simpleOne", "defaultBgJaJpJp")), getDeclaredMethodNames(variant.getClass()));
+		assertEquals("ja_jp_jp simple", variant.simple());
+		assertEquals("Japanese sub-varient", variant.defaultBgJaJpJp());
+		assertEquals("Japanese varient", variant.defaultBgJaJp());
+		assertEquals(full.defaultOnly(), variant.defaultOnly());
+	}
+
+	private static Set<String> getDeclaredMethodNames(Class<?> cls) {
+		Set<String> names = new HashSet<String>();
+		for (Method method : cls.getDeclaredMethods()) {
+			names.add(method.getName());
+		}
+		return names;
+	}
+
+	@Test
+	public void testInstrumentation() throws Exception {
+		BundleConfiguration instrumented = new BundleConfigurationBuilder().instrumentation(BundleConfiguration.Instrumentation.YES).build();
+		SimpleSmallBundle plain = BundleMaker.load(SimpleSmallBundle.class, Locale.GERMAN, configuration, new BundleClassLoader());
+		for (Field field : plain.getClass().getDeclaredFields()) {
+			assertFalse(field.getType() == MethodMetrics.class);
+		}
+		SimpleSmallBundle bundle = BundleMaker.load(SimpleSmallBundle.class, Locale.GERMAN, instrumented, new BundleClassLoader());
+		MethodMetrics simple = BundleMetrics.getMethodMetrics(SimpleSmallBundle.class.getName(), "simple", Locale.GERMAN);
+		MethodMetrics simpleOne = BundleMetrics.getMethodMetrics(SimpleSmallBundle.class.getName(), "simpleOne", Locale.GERMAN);
+		long simpleCalls = simple.getCallCount();
+		long simpleOneCalls = simpleOne.getCallCount();
+		assertEquals("de simple", bundle.simple());
+		assertEquals("de simple", bundle.simple());
+		assertEquals("de simple int 5.", bundle.simpleOne(5));
+		assertEquals(simpleCalls + 2, simple.getCallCount());
+		assertEquals(simpleOneCalls + 1, simpleOne.getCallCount());
+		assertTrue(simpleOne.getFormatTime(TimeUnit.NANOSECONDS) > 0);
+		assertTrue(BundleMetrics.getMethodMetrics(SimpleSmallBundle.class).contains(simpleOne));
+		// the same metrics are shared by every class generated for the bundle and locale.
+		BundleConfiguration lazy = new BundleConfigurationBuilder().instrumentation(BundleConfiguration.Instrumentation.YES)
+				.lazyTranslation(BundleConfiguration.LazyTranslation.YES).build();
+		assertEquals("de simple int 6.", BundleMaker.load(SimpleSmallBundle.class, Locale.GERMAN, lazy, new BundleClassLoader()).simpleOne(6));
+		assertEquals(simpleOneCalls + 2, simpleOne.getCallCount());
+		// a bundle that shares the class of another locale records to the metrics of that locale.
+		Locale swiss = new Locale("de", "CH");
+		assertEquals("de simple", BundleMaker.load(SimpleSmallBundle.class, swiss, Locale.GERMAN, instrumented, new BundleClassLoader()).simple());
+		assertEquals(simpleCalls + 3, simple.getCallCount());
+		for (MethodMetrics m : BundleMetrics.getMethodMetrics(SimpleSmallBundle.class)) {
+			assertFalse(m.getLocale().equals(swiss));
+		}
+	}
+
+	@Test
+	public void testKeyUsageTracking() throws Exception {
+		BundleConfiguration tracked = new BundleConfigurationBuilder().keyUsageTracking(BundleConfiguration.KeyUsageTracking.YES).build();
+		KeyUsage usage = KeyUsage.forBundle(SimpleSmallBundle.class);
+		usage.reset();
+		SimpleSmallBundle de = BundleMaker.load(SimpleSmallBundle.class, Locale.GERMAN, tracked, new BundleClassLoader());
+		assertEquals(7, usage.getUnusedKeys().size());
+		assertEquals("de simple", de.simple());
+		assertEquals("de simple", de.simple());
+		// the keys are merged across the locales, and lazy classes are tracked too.
+		BundleConfiguration lazy = new BundleConfigurationBuilder().keyUsageTracking(BundleConfiguration.KeyUsageTracking.YES)
+				.lazyTranslation(BundleConfiguration.LazyTranslation.YES).build();
+		SimpleSmallBundle en = BundleMaker.load(SimpleSmallBundle.class, Locale.ENGLISH, lazy, new BundleClassLoader());
+		en.simpleOne(1);
+		assertEquals(new TreeSet<String>(Arrays.asList("simple", "simpleOne")), usage.getUsedKeys());
+		assertEquals(5, usage.getUnusedKeys().size());
+		assertTrue(KeyUsage.getKeyUsages().contains(usage));
+		StringBuilder unused = new StringBuilder();
+		KeyUsage.writeUnusedKeys(unused);
+		assertTrue(unused.indexOf(SimpleSmallBundle.class.getName() + ".defaultOnly\n") >= 0);
+		assertTrue(unused.indexOf(SimpleSmallBundle.class.getName() + ".simple\n") < 0);
+		// bundles without tracking do not mark their keys.
+		BundleMaker.load(SimpleSmallBundle.class, Locale.GERMAN, configuration, new BundleClassLoader()).defaultOnly();
+		assertTrue(usage.getUnusedKeys().contains("defaultOnly"));
+	}
+
+	@Test
+	public void testHiddenClasses() throws Exception {
+		Assume.assumeTrue(HiddenClassDefiner.isAvailable());
+		BundleConfiguration hidden = new BundleConfigurationBuilder().hiddenClasses(BundleConfiguration.HiddenClasses.YES).build();
+		BundleClassLoader loader = new BundleClassLoader();
+		String name = BundleMaker.getClassNameFor(SimpleSmallBundle.class, Locale.GERMAN);
+		SimpleSmallBundle bundle = BundleMaker.load(SimpleSmallBundle.class, Locale.GERMAN, hidden, loader);
+		assertEquals("de simple", bundle.simple());
+		assertEquals("de simple int 5.", bundle.simpleOne(5));
+		// defined in the bundle's class loader, and not found by name.
+		assertSame(SimpleSmallBundle.class.getClassLoader(), bundle.getClass().getClassLoader());
+		assertTrue(bundle.getClass().getName().startsWith(name + "/"));
+		assertTrue(loader.isClassDefined(name));
+		assertSame(bundle.getClass(), BundleMaker.load(SimpleSmallBundle.class, Locale.GERMAN, hidden, loader).getClass());
+		// the class is unloaded once it is not used, though the class loader is.
+		WeakReference<Class<?>> cls = new WeakReference<Class<?>>(bundle.getClass());
+		bundle = null;
+		for (int i = 0; i < 50 && cls.get() != null; ++i) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(cls.get());
+		assertFalse(loader.isClassDefined(name));
+		// and forgotten, once the reference is enqueued.
+		for (int i = 0; i < 50 && loader.getHiddenClassCount() != 0; ++i) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertEquals(0, loader.getHiddenClassCount());
+		assertEquals("de simple", BundleMaker.load(SimpleSmallBundle.class, Locale.GERMAN, hidden, loader).simple());
+		assertEquals(1, loader.getHiddenClassCount());
+
+		BundleConfiguration lazy = new BundleConfigurationBuilder().hiddenClasses(BundleConfiguration.HiddenClasses.YES)
+				.lazyTranslation(BundleConfiguration.LazyTranslation.YES).instrumentation(BundleConfiguration.Instrumentation.YES).build();
+		SimpleSmallBundle lazyBundle = BundleMaker.load(SimpleSmallBundle.class, Locale.GERMAN, lazy, new BundleClassLoader());
+		assertTrue(lazyBundle.getClass().getName().startsWith(name + "/"));
+		assertEquals("de simple int 6.", lazyBundle.simpleOne(6));
+		// hidden classes are generated in full.
+		BundleConfiguration inherited = new BundleConfigurationBuilder().hiddenClasses(BundleConfiguration.HiddenClasses.YES)
+				.localeInheritance(BundleConfiguration.LocaleInheritance.YES).build();
+		SimpleSmallBundle japan = BundleMaker.load(SimpleSmallBundle.class, Locale.JAPAN, inherited, new BundleClassLoader());
+		assertSame(SimpleSmallBundle.class, japan.getClass().getSuperclass());
+	}
+
+	@Test(expected=MissingResourceException.class)
+	public void testGenerateClassValidates() throws Exception {
+		BundleMaker.generateClass(TranslationBundle.class, Locale.ENGLISH, configuration); // there is no properties file
+	}
+
+	@Test
+	public void testLazyTranslation() throws Exception {
+		BundleConfiguration lazy = new BundleConfigurationBuilder().lazyTranslation(BundleConfiguration.LazyTranslation.YES).build();
+		Locale locale = Locale.ENGLISH;
+		Properties trns = TranslationBundle.getProperties();
+		TranslationBundle b = BundleMaker.load(TranslationBundle.class, locale, trns, lazy);
+		assertEquals(0, b.getClass().getDeclaredFields().length);
+		assertEquals("there are no parameters", b.noParams());
+		assertEquals("one parameter, and it is 1", b.oneParam(1));
+		assertEquals("There are 54 elements.", b.integerObject(Integer.valueOf(54)));
+		assertEquals("There is one element.", b.integerObject(Integer.valueOf(1)));
+		Object o = new Object();
+		assertEquals(new MessageFormat(trns.getProperty("types"), locale).format(new Object[]{o, true, (byte) 4, 'q', (short) 6, 1, 9999L, 9.5f, 4.4d}),
+				b.types(o, true, (byte) 4, 'q', (short) 6, 1, 9999L, 9.5f, 4.4d));
+		assertEquals("overloaded 12,345", b.overload(12345));
+		assertEquals("overloaded text", b.overload("text"));
+	}
+
+	@Test
+	public void testLazyTranslationMissing() throws Exception {
+		BundleConfiguration lazy = new BundleConfigurationBuilder().lazyTranslation(BundleConfiguration.LazyTranslation.YES).build();
+		Properties trns = new Properties();
+		trns.setProperty("noParams", "there are no parameters");
+		trns.setProperty("oneParam", "one parameter");
+		TranslationBundle b = BundleMaker.load(TranslationBundle.class, Locale.ENGLISH, trns, lazy);
+		assertEquals("there are no parameters", b.noParams());
+		for (int i = 0; i < 2; ++i) {
+			try {
+				b.twoParams("a", "b");
+				fail("the translation is missing");
+			} catch (MissingResourceException ex) {
+				assertEquals("twoParams", ex.getKey());
+			}
+			try {
+				b.oneParam("a");
+				fail("the parameters do not match");
+			} catch (MissingResourceException ex) {
+				assertEquals("oneParam", ex.getKey());
+			}
+		}
+	}
+
+	@Test(expected=MissingResourceException.class)
+	public void testValidate() throws Exception {
+		BundleConfiguration conf = new BundleConfigurationBuilder()
+			.allowDefaultLanguage(BundleConfiguration.AllowDefaultLanguage.NO)
+			.lazyTranslation(BundleConfiguration.LazyTranslation.YES)
+			.build();
+		// the Bulgarian translation is incomplete; that is only found when the methods are used.
+		SimpleSmallBundle ssb = BundleMaker.load(SimpleSmallBundle.class, getLocale("bg", "", ""), conf);
+		assertNotNull(ssb);
+		BundleMaker.validate(SimpleSmallBundle.class, getLocale("bg", "", ""), conf);
+	}
+
+	@Test
+	public void testPropertiesLayersAreShared() throws Exception {
+		ClassLoader loader = SimpleSmallBundle.class.getClassLoader();
+		PropertiesCache cache = PropertiesCache.get(loader);
+		String base = "uk/me/candle/translations/maker/SimpleSmallBundle";
+		assertSame(cache.getFile(loader, base), cache.getFile(loader, base));
+		assertNull(cache.getFile(loader, base + "_xx"));
+		Translations root = cache.getLayer(loader, base, null);
+		Translations de = cache.getLayer(loader, base + "_de", root);
+		assertSame(de, cache.getLayer(loader, base + "_de", root));
+		assertSame(de, cache.getLayer(loader, base + "_de_", de)); // no file, so the same layer
+		assertEquals(5, de.size()); // only the German keys are held
+		assertEquals("de simple", de.get("simple"));
+		assertEquals("default, Bulgarian and japanese variant", de.get("defaultBgJaJp"));
+		assertEquals(root.getKeys(), de.getKeys());
+
+		SimpleSmallBundle ssb = BundleMaker.load(SimpleSmallBundle.class, Locale.GERMAN, configuration);
+		assertEquals("de simple", ssb.simple());
+		assertEquals("default, Bulgarian and japanese variant", ssb.defaultBgJaJp());
+	}
+
 	@Test
 	public void checkThatHelperMethodIsNotChanged() throws Exception {
 		BundleWithHelperMethod bundle = BundleMaker.load(BundleWithHelperMethod.class, getLocale("en", "", ""), configuration);
@@ -554,6 +1286,46 @@ public class BundleTest {
 		assertEquals("SOMETHING", bundle.thisIsAHelperMethod(bundle.something()));
 	}
 
+	@Test
+	public void testTranslationLocale() throws Exception {
+		Locale swiss = new Locale("de", "CH");
+		String expected = new MessageFormat("de simple int {0}.", swiss).format(new Object[] {1234567});
+		assertFalse(expected.equals(new MessageFormat("de simple int {0}.", Locale.GERMAN).format(new Object[] {1234567})));
+		BundleConfiguration[] configurations = {configuration,
+				new BundleConfigurationBuilder().lazyTranslation(BundleConfiguration.LazyTranslation.YES).build()};
+		for (BundleConfiguration conf : configurations) {
+			BundleClassLoader loader = new BundleClassLoader();
+			SimpleSmallBundle german = BundleMaker.load(SimpleSmallBundle.class, Locale.GERMAN, conf, loader);
+			SimpleSmallBundle bundle = BundleMaker.load(SimpleSmallBundle.class, swiss, Locale.GERMAN, conf, loader);
+			assertSame(german.getClass(), bundle.getClass());
+			assertEquals(swiss, bundle.getLocale());
+			assertEquals("de simple", bundle.simple());
+			// the numbers of each instance are formatted for its own locale.
+			assertEquals(expected, bundle.simpleOne(1234567));
+			assertEquals(new MessageFormat("de simple int {0}.", Locale.GERMAN).format(new Object[] {1234567}), german.simpleOne(1234567));
+			assertEquals(expected, BundleMaker.reload(SimpleSmallBundle.class, swiss, Locale.GERMAN, conf, new BundleClassLoader()).simpleOne(1234567));
+		}
+	}
+
+	@Test
+	public void testFormattersDiscarded() throws Exception {
+		Locale monaco = new Locale("fr", "MC");
+		SimpleSmallBundle bundle = BundleMaker.load(SimpleSmallBundle.class, monaco, Locale.GERMAN, configuration, new BundleClassLoader());
+		assertEquals(new MessageFormat("de simple int {0}.", monaco).format(new Object[] {1234567}), bundle.simpleOne(1234567));
+		// the formatter of the locale is kept while the bundle refers to it.
+		WeakReference<NumberFormatter> number = new WeakReference<NumberFormatter>(NumberFormatter.getInstance(monaco));
+		WeakReference<DateFormatter> date = new WeakReference<DateFormatter>(DateFormatter.getInstance(monaco, "date,short"));
+		System.gc();
+		assertSame(number.get(), NumberFormatter.getInstance(monaco));
+		bundle = null;
+		for (int i = 0; i < 50 && (number.get() != null || date.get() != null); ++i) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(number.get());
+		assertNull(date.get());
+	}
+
 	@Test(expected=BundleCreationException.class)
 	public void badMethodReturnValue() throws Exception {
 		BundleConfiguration conf = new BundleConfigurationBuilder()
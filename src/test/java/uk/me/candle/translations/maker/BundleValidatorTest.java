@@ -0,0 +1,97 @@
+package uk.me.candle.translations.maker;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import uk.me.candle.translations.Bundle;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.conf.BundleConfigurationBuilder;
+import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrew
+ */
+public class BundleValidatorTest {
+
+	@Test
+	public void testDiscover() throws Exception {
+		File directory = new File(SimpleSmallBundle.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		Map<Class<? extends Bundle>, List<Locale>> bundles = BundleValidator.discover(directory, getClass().getClassLoader());
+		assertEquals(Arrays.asList(Locale.ROOT, new Locale("bg"), Locale.GERMAN, Locale.GERMANY, Locale.JAPANESE, Locale.JAPAN, new Locale("ja", "JP", "jp")),
+				bundles.get(SimpleSmallBundle.class));
+		assertEquals(Arrays.asList(Locale.ROOT, Locale.GERMAN), bundles.get(ValidatedBundle.class));
+		assertFalse(bundles.containsKey(FailBundle.class)); // there are no translations
+		assertFalse(bundles.containsKey(BundleValidatorTest.class));
+	}
+
+	@Test
+	public void testEveryProblemIsReported() throws Exception {
+		String thrown = null;
+		try {
+			BundleMaker.validate(ValidatedBundle.class, Locale.ENGLISH, new DefaultBundleConfiguration());
+			fail("the bundle is not valid");
+		} catch (MissingResourceException ex) {
+			// only the first problem.
+			thrown = ex.getMessage();
+		}
+		Map<Class<? extends Bundle>, List<Locale>> bundles = new LinkedHashMap<Class<? extends Bundle>, List<Locale>>();
+		bundles.put(ValidatedBundle.class, Arrays.asList(Locale.ENGLISH, Locale.GERMAN));
+		bundles.put(SimpleSmallBundle.class, Arrays.asList(Locale.ENGLISH, Locale.GERMAN, Locale.JAPAN));
+		ValidationReport report = BundleValidator.validate(bundles, new DefaultBundleConfiguration(), new ForkJoinPool(4));
+		assertFalse(report.isSuccessful());
+		assertEquals(5, report.getEntries().size());
+		assertEquals(2, report.getFailures().size());
+		ValidationReport.Entry english = report.getEntries().get(0);
+		assertEquals(ValidatedBundle.class, english.getBundleClass());
+		assertEquals(Locale.ENGLISH, english.getLocale());
+		List<String> problems = english.getProblems();
+		assertEquals(problems.toString(), 6, problems.size());
+		String missing = "The translation file for " + ValidatedBundle.class.getName() + " in the language: en is missing a key: ";
+		assertTrue(problems.contains(missing + "missingOne"));
+		assertTrue(problems.contains(missing + "missingTwo"));
+		// the problems are reported as generating the class reports them.
+		assertTrue(problems.toString(), problems.contains(thrown));
+		assertTrue(problems.contains("Extra keys in the bundle: extra"));
+		assertTrue(problems.contains("The method notString is abstract yet it's return type is not a String."));
+		assertTrue(problems.toString().contains("The parameter lengths did not match method mismatch"));
+		assertTrue(problems.toString().contains("The translation of invalid for " + ValidatedBundle.class.getName() + " in the language: en is not a valid pattern"));
+		// the German translations override the broken ones, the extra key is in the default file.
+		ValidationReport.Entry german = report.getEntries().get(1);
+		assertEquals(Arrays.asList("The method notString is abstract yet it's return type is not a String.", "Extra keys in the bundle: extra"),
+				german.getProblems());
+		assertTrue(report.getEntries().get(2).isSuccessful());
+		assertTrue(report.getElapsed(SimpleSmallBundle.class, TimeUnit.NANOSECONDS) > 0);
+		assertTrue(report.toString().contains("[en]: " + missing + "missingOne"));
+
+		BundleConfiguration ignoring = new BundleConfigurationBuilder()
+				.ignoreMissing(BundleConfiguration.IgnoreMissing.YES)
+				.ignoreExtra(BundleConfiguration.IgnoreExtra.YES)
+				.ignoreParameterMisMatch(BundleConfiguration.IgnoreParameterMisMatch.YES)
+				.build();
+		problems = BundleValidator.validate(bundles, ignoring).getEntries().get(0).getProblems();
+		assertEquals(problems.toString(), 2, problems.size());
+		assertTrue(problems.toString().contains("The translation of invalid for " + ValidatedBundle.class.getName() + " in the language: en is not a valid pattern"));
+	}
+
+	@Test
+	public void testNoClassesAreDefined() throws Exception {
+		Map<Class<? extends Bundle>, List<Locale>> bundles = new LinkedHashMap<Class<? extends Bundle>, List<Locale>>();
+		bundles.put(ReloadBundle.class, Arrays.asList(Locale.ITALIAN));
+		assertTrue(BundleValidator.validate(bundles, new DefaultBundleConfiguration()).isSuccessful());
+		try {
+			Class.forName(BundleMaker.getClassNameFor(ReloadBundle.class, Locale.ITALIAN), false, getClass().getClassLoader());
+			fail("no class is generated");
+		} catch (ClassNotFoundException ex) {
+			// expected
+		}
+	}
+}
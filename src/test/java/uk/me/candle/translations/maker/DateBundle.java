@@ -0,0 +1,44 @@
+package uk.me.candle.translations.maker;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Properties;
+import uk.me.candle.translations.Bundle;
+
+/**
+ *
+ * @author Andrew
+ */
+public abstract class DateBundle extends Bundle {
+
+	static Properties getProperties() {
+		Properties p = new Properties();
+		p.setProperty("sent", "Sent {0,date,short} at {0,time} ({0}).");
+		p.setProperty("due", "Due {0,date,long}.");
+		p.setProperty("day", "{0}");
+		p.setProperty("meeting", "{0,date,full}, {0,time,short}");
+		p.setProperty("logged", "{0,date,yyyy-MM-dd HH:mm}");
+		p.setProperty("published", "{0,date,medium} {0,time,long}");
+		p.setProperty("progress", "{0,number,percent} of {1,number,currency}, {2,number,#,##0.00} each");
+		return p;
+	}
+
+	public DateBundle(Locale locale) {
+		super(locale);
+	}
+
+	public abstract String sent(Date date);
+	public abstract String due(LocalDate date);
+	public abstract void due(ByteBuffer out, LocalDate date);
+	public abstract StringBuilder due(StringBuilder out, LocalDate[] dates, String separator);
+	public abstract String day(LocalDate date);
+	public abstract String meeting(ZonedDateTime time);
+	public abstract String logged(LocalDateTime time);
+	public abstract String published(Instant time);
+	public abstract String progress(double done, double price, long each);
+}
@@ -0,0 +1,45 @@
+package uk.me.candle.translations.maker;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Locale;
+import java.util.Properties;
+import uk.me.candle.translations.Bundle;
+
+/**
+ *
+ * @author Andrew
+ */
+public abstract class OutputBundle extends Bundle {
+
+	static Properties getProperties() {
+		Properties p = new Properties();
+		p.setProperty("bar", "Gr\u00FC\u00DFe aus Moe's Tavern \u20AC \uD83D\uDE00");
+		p.setProperty("pony", "my horsie''s name is {0}");
+		p.setProperty("count", "Gr\u00F6\u00DFe {0,number,integer}, {1} / {2}.");
+		p.setProperty("oranges", "I have {0,choice,0#no oranges|1#one orange|1<{0,number,integer} oranges}.");
+		return p;
+	}
+
+	public OutputBundle(Locale locale) {
+		super(locale);
+	}
+
+	public abstract String bar();
+	public abstract void bar(ByteBuffer out);
+	public abstract StringBuilder bar(StringBuilder out);
+	public abstract Writer bar(Writer out) throws IOException;
+	public abstract void bar(WritableByteChannel out) throws IOException;
+	public abstract String pony(String s);
+	public abstract ByteBuffer pony(ByteBuffer out, String s);
+	public abstract Appendable pony(Appendable out, String s) throws IOException;
+	public abstract void pony(WritableByteChannel out, String s) throws IOException;
+	public abstract String count(long n, boolean z, char c);
+	public abstract void count(ByteBuffer out, long n, boolean z, char c);
+	public abstract StringBuilder count(StringBuilder out, long n, boolean z, char c);
+	public abstract String oranges(int i);
+	public abstract void oranges(ByteBuffer out, int i);
+	public abstract void oranges(Writer out, int i) throws IOException;
+}
@@ -0,0 +1,17 @@
+package uk.me.candle.translations.maker;
+
+import java.util.Locale;
+import uk.me.candle.translations.Bundle;
+
+/**
+ *
+ * @author Andrew
+ */
+public abstract class PrecompiledBundle extends Bundle {
+	public PrecompiledBundle(Locale locale) {
+		super(locale);
+	}
+
+	public abstract String greeting(String name);
+	public abstract String count(int i);
+}
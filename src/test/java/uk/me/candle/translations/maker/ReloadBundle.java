@@ -0,0 +1,17 @@
+package uk.me.candle.translations.maker;
+
+import java.util.Locale;
+import uk.me.candle.translations.Bundle;
+
+/**
+ * The translations of this bundle are modified by the reload tests.
+ * @author Andrew
+ */
+public abstract class ReloadBundle extends Bundle {
+
+	public ReloadBundle(Locale locale) {
+		super(locale);
+	}
+
+	public abstract String greeting(String name);
+}
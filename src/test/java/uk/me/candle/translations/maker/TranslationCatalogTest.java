@@ -0,0 +1,153 @@
+package uk.me.candle.translations.maker;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrew
+ */
+public class TranslationCatalogTest {
+	private static final Locale[] LOCALES = {Locale.ENGLISH, Locale.GERMAN, new Locale("hi", "IN"), new Locale("ar", "EG")};
+
+	private static Map<String, String> getTranslations() {
+		Map<String, String> m = new LinkedHashMap<String, String>();
+		m.put("empty", "");
+		m.put("text", "no placeholders");
+		m.put("plain", "my horsie''s name is {0}");
+		m.put("quoted", "a '{' b {0} '}' c '{1}' d");
+		m.put("adjacent", "{0}{1}");
+		m.put("numbers", "{0,number,integer} x {1,number} {2}");
+		m.put("spaces", "{0, number , integer} {1,NUMBER}");
+		m.put("other", "{0,number,#,##0.00} {1,number,percent} {2,date,short}");
+		m.put("choice", "{0,choice,0#none|1#{1}|1<{0,number,integer} {1}s}");
+		m.put("unicode", "\\u00e9t\\u00e9 été {0} 中");
+		m.put("invalid", "{0");
+		return m;
+	}
+
+	@Test
+	public void testKeysAndValues() throws Exception {
+		Map<String, String> translations = getTranslations();
+		TranslationCatalog catalog = new TranslationCatalog(ByteBuffer.wrap(CatalogCompiler.compile(translations)));
+		assertEquals(translations, catalog.asMap());
+		assertNull(catalog.asMap().get("missing"));
+		assertFalse(catalog.asMap().containsKey("missing"));
+		for (Map.Entry<String, String> e : translations.entrySet()) {
+			assertEquals(e.getValue(), catalog.asMap().get(e.getKey()));
+		}
+	}
+
+	@Test
+	public void testFieldCounts() throws Exception {
+		Map<String, String> translations = getTranslations();
+		TranslationCatalog catalog = new TranslationCatalog(ByteBuffer.wrap(CatalogCompiler.compile(translations)));
+		assertEquals(-1, catalog.getFieldCount("invalid"));
+		assertEquals(-1, catalog.getFieldCount("missing"));
+		for (Map.Entry<String, String> e : translations.entrySet()) {
+			if (!e.getKey().equals("invalid")) {
+				assertEquals(e.getKey(), ImplementMethodsAdapter.countFields(new MessageFormat(e.getValue())), catalog.getFieldCount(e.getKey()));
+			}
+		}
+	}
+
+	@Test
+	public void testParsedPatterns() throws Exception {
+		Map<String, String> translations = getTranslations();
+		TranslationCatalog catalog = new TranslationCatalog(ByteBuffer.wrap(CatalogCompiler.compile(translations)));
+		assertNull(catalog.getParsedPattern("invalid", Locale.ENGLISH, 1));
+		for (Locale locale : LOCALES) {
+			for (Map.Entry<String, String> e : translations.entrySet()) {
+				if (e.getKey().equals("invalid")) {
+					continue;
+				}
+				int argumentCount = 3;
+				ParsedPattern expected = ParsedPattern.parse(e.getValue(), locale, argumentCount);
+				ParsedPattern actual = catalog.getParsedPattern(e.getKey(), locale, argumentCount);
+				assertNotNull(e.getKey(), actual);
+				assertEquals(e.getKey(), expected.getLiterals(), actual.getLiterals());
+				assertEquals(e.getKey(), expected.getPlaceholders().size(), actual.getPlaceholders().size());
+				for (int i = 0; i < expected.getPlaceholders().size(); ++i) {
+					ParsedPattern.Placeholder p = expected.getPlaceholders().get(i);
+					ParsedPattern.Placeholder a = actual.getPlaceholders().get(i);
+					assertEquals(p.getArgumentIndex(), a.getArgumentIndex());
+					if (a.getFormat() == null) {
+						assertNull(e.getKey(), p.getFormat());
+					} else if (a.getFormat() instanceof NumberFormat) {
+						assertEquals(e.getKey(), p.getFormat(), a.getFormat());
+					} else {
+						// not appended directly
+						assertNotNull(e.getKey(), p.getFormat());
+						assertFalse(a.getFormat().equals(NumberFormat.getInstance(locale)));
+						assertFalse(a.getFormat().equals(NumberFormat.getIntegerInstance(locale)));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFewerArguments() throws Exception {
+		TranslationCatalog catalog = new TranslationCatalog(ByteBuffer.wrap(CatalogCompiler.compile(getTranslations())));
+		// {2} is text when there are two arguments, the pattern is parsed at runtime.
+		assertNull(catalog.getParsedPattern("numbers", Locale.ENGLISH, 2));
+		assertNotNull(catalog.getParsedPattern("numbers", Locale.ENGLISH, 3));
+	}
+
+	@Test
+	public void testOtherFormats() throws Exception {
+		TranslationCatalog catalog = new TranslationCatalog(ByteBuffer.wrap(CatalogCompiler.compile(getTranslations())));
+		// the formats that are not recorded are parsed when the method is generated.
+		assertTrue(TranslationCatalog.hasOtherFormat(catalog.getParsedPattern("other", Locale.ENGLISH, 3)));
+		assertTrue(TranslationCatalog.hasOtherFormat(catalog.getParsedPattern("choice", Locale.ENGLISH, 2)));
+		assertFalse(TranslationCatalog.hasOtherFormat(catalog.getParsedPattern("numbers", Locale.ENGLISH, 3)));
+		assertFalse(TranslationCatalog.hasOtherFormat(catalog.getParsedPattern("plain", Locale.ENGLISH, 1)));
+	}
+
+	@Test
+	public void testRecompileMapped() throws Exception {
+		File directory = File.createTempFile("catalog", "");
+		assertTrue(directory.delete());
+		assertTrue(directory.mkdir());
+		File properties = new File(directory, "Foo_en.properties");
+		File file = CatalogCompiler.getCatalogFile(properties);
+		try {
+			write(properties, "a=first\n");
+			CatalogCompiler.compile(properties, file);
+			TranslationCatalog mapped = TranslationCatalog.read(file.toURI().toURL());
+			write(properties, "a=second value that is longer\nb=more\n");
+			CatalogCompiler.compile(properties, file);
+			// the old mapping is of the replaced file, which is unchanged.
+			assertEquals("first", mapped.asMap().get("a"));
+			assertEquals(1, mapped.asMap().size());
+			TranslationCatalog read = TranslationCatalog.read(file.toURI().toURL());
+			assertEquals("second value that is longer", read.asMap().get("a"));
+			assertEquals(2, read.asMap().size());
+			assertEquals(2, directory.listFiles().length);
+		} finally {
+			for (File f : directory.listFiles()) {
+				f.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	private static void write(File file, String content) throws Exception {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes(StandardCharsets.ISO_8859_1));
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package uk.me.candle.translations.maker;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrew
+ */
+public class TranslationFileParserTest {
+	private static final Logger LOG = LoggerFactory.getLogger(TranslationFileParserTest.class);
+	private static final String[] SAMPLES = {
+		"a=b",
+		"a = b\nc:d\ne f\n",
+		"  # comment\n! comment\n\n\t\fkey=value",
+		"a=b\\\n   c\\\r\n d\\\re",
+		"key\\ with\\=escapes\\:=v\\tal\\nue\\u0041\\\\",
+		"a=\\",
+		"a=b\\\\\n",
+		"a=b\\\\\\\n  c",
+		"#comment\\\nnot=continued",
+		"empty\nempty2=\n=novalue\n:x",
+		"a==b\na::b\na  =  = b",
+		"a=first\na=second",
+		"r\rs\r\nt\n",
+		"a=b\\\n\nc=d",
+		"a=éÿ",
+		"a\\u00e9=1",
+		"a=b\\",
+	};
+
+	@Test
+	public void testSamplesMatchProperties() throws Exception {
+		for (String sample : SAMPLES) {
+			assertSame(sample, sample.getBytes(StandardCharsets.ISO_8859_1));
+		}
+	}
+
+	@Test
+	public void testRandomMatchesProperties() throws Exception {
+		Random random = new Random(42);
+		char[] alphabet = {'a', 'b', ' ', '\t', '\f', '\r', '\n', '\\', '=', ':', '#', '!', 'u', '0', 'n', 't', 'é'};
+		for (int i = 0; i < 20000; ++i) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(40);
+			for (int j = 0; j < length; ++j) {
+				sb.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			byte[] b = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+			Map<String, String> expected;
+			try {
+				expected = load(b);
+			} catch (IllegalArgumentException ex) {
+				// malformed \\u escape
+				try {
+					parse(b);
+					fail("expected a malformed escape: " + sb);
+				} catch (IllegalArgumentException expectedEx) {
+					LOG.trace("malformed", expectedEx);
+				}
+				continue;
+			}
+			assertEquals(sb.toString(), expected, parse(b));
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testMalformedUnicode() throws Exception {
+		parse("a=\\u00g1".getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	@Test
+	public void testMappedFile() throws Exception {
+		File file = File.createTempFile("translations", ".properties");
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 10000; ++i) {
+				sb.append("key").append(i).append(" = value {0} \\u00e9 ").append(i).append('\n');
+			}
+			byte[] b = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+			OutputStream out = new FileOutputStream(file);
+			try {
+				out.write(b);
+			} finally {
+				out.close();
+			}
+			final Map<String, String> actual = new HashMap<String, String>();
+			TranslationFileParser.parse(file.toURI().toURL(), new TranslationFileParser.Handler() {
+				@Override
+				public void translation(String key, String value) {
+					actual.put(key, value);
+				}
+			});
+			assertEquals(load(b), actual);
+		} finally {
+			assertTrue(file.delete());
+		}
+	}
+
+	private void assertSame(String sample, byte[] b) throws IOException {
+		assertEquals(sample, load(b), parse(b));
+		final Map<String, String> buffered = new HashMap<String, String>();
+		TranslationFileParser.parse(ByteBuffer.wrap(b), new TranslationFileParser.Handler() {
+			@Override
+			public void translation(String key, String value) {
+				buffered.put(key, value);
+			}
+		});
+		assertEquals(sample, load(b), buffered);
+	}
+
+	private static Map<String, String> load(byte[] b) throws IOException {
+		Properties p = new Properties();
+		p.load(new ByteArrayInputStream(b));
+		Map<String, String> m = new HashMap<String, String>();
+		for (String key : p.stringPropertyNames()) {
+			m.put(key, p.getProperty(key));
+		}
+		return m;
+	}
+
+	private static Map<String, String> parse(byte[] b) throws IOException {
+		final Map<String, String> m = new HashMap<String, String>();
+		TranslationFileParser.parse(new ByteArrayInputStream(b), new TranslationFileParser.Handler() {
+			@Override
+			public void translation(String key, String value) {
+				m.put(key, value);
+			}
+		});
+		return m;
+	}
+}
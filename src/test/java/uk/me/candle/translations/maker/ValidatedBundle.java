@@ -0,0 +1,20 @@
+package uk.me.candle.translations.maker;
+
+import java.util.Locale;
+import uk.me.candle.translations.Bundle;
+
+/**
+ * Has a problem with every key, for BundleValidator.
+ * @author Andrew
+ */
+public abstract class ValidatedBundle extends Bundle {
+	public ValidatedBundle(Locale locale) {
+		super(locale);
+	}
+	public abstract String present();
+	public abstract String missingOne();
+	public abstract String missingTwo();
+	public abstract String mismatch(int i);
+	public abstract String invalid(int i);
+	public abstract Integer notString();
+}
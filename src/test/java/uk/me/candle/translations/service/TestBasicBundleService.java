@@ -1,9 +1,23 @@
 package uk.me.candle.translations.service;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.Test;
 import static org.junit.Assert.*;
+import uk.me.candle.translations.Bundle;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.conf.BundleConfigurationBuilder;
 import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+import uk.me.candle.translations.maker.BundleMaker;
+import uk.me.candle.translations.maker.BundleMetrics;
+import uk.me.candle.translations.maker.BundleWithHelperMethod;
+import uk.me.candle.translations.maker.FailBundle;
+import uk.me.candle.translations.maker.KeyUsage;
+import uk.me.candle.translations.maker.MethodMetrics;
+import uk.me.candle.translations.maker.ReloadBundle;
 import uk.me.candle.translations.maker.SimpleSmallBundle;
 
 /**
@@ -37,4 +51,101 @@ public class TestBasicBundleService {
 		SimpleSmallBundle bundle2 = bbs.get(SimpleSmallBundle.class, Locale.GERMAN);
 		assertTrue("The cache was not used, a different instance was returned.", bundle == bundle2);
 	}
+	@Test
+	public void testPreload() throws Exception {
+		BasicBundleService bbs = new BasicBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			PreloadReport report = bbs.preload(Arrays.asList(SimpleSmallBundle.class, FailBundle.class),
+					Arrays.asList(Locale.ENGLISH, Locale.GERMAN), pool, true);
+			assertEquals(4, report.getEntries().size());
+			assertFalse(report.isSuccessful());
+			assertEquals(2, report.getFailures().size());
+			for (PreloadReport.Entry entry : report.getFailures()) {
+				assertEquals(FailBundle.class, entry.getBundleClass());
+				assertNotNull(entry.getFailure());
+			}
+			SimpleSmallBundle german = bbs.get(SimpleSmallBundle.class, Locale.GERMAN);
+			assertEquals("de simple", german.simple());
+			assertSame(report.getEntries().get(1).getBundle(), german);
+		} finally {
+			pool.shutdown();
+		}
+	}
+	@Test
+	public void testPreloadNotTracked() throws Exception {
+		BundleConfiguration configuration = new BundleConfigurationBuilder().instrumentation(BundleConfiguration.Instrumentation.YES)
+				.keyUsageTracking(BundleConfiguration.KeyUsageTracking.YES).build();
+		BasicBundleService bbs = new BasicBundleService(configuration, Locale.FRENCH);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			assertTrue(bbs.preload(Arrays.asList(BundleWithHelperMethod.class), Arrays.asList(Locale.FRENCH), pool, true).isSuccessful());
+		} finally {
+			pool.shutdown();
+		}
+		// exercising the methods is not a use of the keys.
+		KeyUsage usage = KeyUsage.forBundle(BundleWithHelperMethod.class);
+		MethodMetrics metrics = BundleMetrics.getMethodMetrics(BundleWithHelperMethod.class.getName(), "something", Locale.FRENCH);
+		assertEquals(Collections.singleton("something"), usage.getUnusedKeys());
+		assertEquals(0, metrics.getCallCount());
+		assertEquals("something", bbs.get(BundleWithHelperMethod.class).something());
+		assertEquals(Collections.singleton("something"), usage.getUsedKeys());
+		assertEquals(1, metrics.getCallCount());
+	}
+	@Test
+	public void testCacheStats() throws Exception {
+		BasicBundleService bbs = new BasicBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH, CachePolicy.unbounded().recordHits());
+		bbs.get(SimpleSmallBundle.class);
+		bbs.get(SimpleSmallBundle.class);
+		bbs.get(SimpleSmallBundle.class, Locale.GERMAN);
+		CacheStats stats = bbs.getCacheStats();
+		assertEquals(1, stats.getHitCount());
+		assertEquals(2, stats.getMissCount());
+		assertEquals(0, stats.getEvictionCount());
+	}
+
+	@Test
+	public void testReload() throws Exception {
+		BasicBundleService bbs = new BasicBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		ReloadBundle before = bbs.get(ReloadBundle.class);
+		assertEquals("hello x", before.greeting("x"));
+		assertTrue(bbs.reload().getEntries().isEmpty());
+		File file = new File(ReloadBundle.class.getResource("ReloadBundle.properties").toURI());
+		long lastModified = file.lastModified();
+		try {
+			TestTlsBundleService.write(file, "greeting=hi {0}\n");
+			PreloadReport report = bbs.reload();
+			assertTrue(report.isSuccessful());
+			assertEquals(1, report.getEntries().size());
+			assertEquals("hi x", bbs.get(ReloadBundle.class).greeting("x"));
+			assertEquals("hello x", before.greeting("x"));
+		} finally {
+			TestTlsBundleService.restore(file, lastModified, bbs);
+		}
+	}
+
+	@Test
+	public void testOtherImplementation() throws Exception {
+		// an implementation written before preload, reload and getCacheStats were added.
+		BundleService service = new BundleService() {
+			@Override
+			public <T extends Bundle> T get(Class<T> bundleClass) {
+				return get(bundleClass, Locale.ENGLISH);
+			}
+			@Override
+			public <T extends Bundle> T get(Class<T> bundleClass, Locale locale) {
+				return BundleMaker.load(bundleClass, locale, new DefaultBundleConfiguration());
+			}
+		};
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			PreloadReport report = service.preload(Arrays.asList(SimpleSmallBundle.class), Arrays.asList(Locale.ENGLISH, Locale.GERMAN), pool, true);
+			assertTrue(report.isSuccessful());
+			assertEquals(2, report.getEntries().size());
+		} finally {
+			pool.shutdown();
+		}
+		assertTrue(service.reload().getEntries().isEmpty());
+		assertEquals(0, service.getCacheStats().getMissCount());
+	}
 }
@@ -0,0 +1,178 @@
+package uk.me.candle.translations.service;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+import uk.me.candle.translations.maker.SimpleSmallBundle;
+
+/**
+ *
+ * @author Andrew
+ */
+public class TestScopedBundleService {
+	@Test
+	public void testDefault() throws Exception {
+		ScopedBundleService service = new ScopedBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		assertFalse(service.isBound());
+		assertEquals(Locale.ENGLISH, service.getLocale());
+		assertEquals("simple", service.get(SimpleSmallBundle.class).simple());
+		assertEquals("de simple", service.get(SimpleSmallBundle.class, Locale.GERMAN).simple());
+	}
+	@Test
+	public void testRun() throws Exception {
+		final ScopedBundleService service = new ScopedBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		final AtomicReference<String> inner = new AtomicReference<String>();
+		service.run(Locale.GERMAN, new Runnable() {
+			@Override
+			public void run() {
+				assertTrue(service.isBound());
+				assertEquals("de simple", service.get(SimpleSmallBundle.class).simple());
+				service.run(Locale.ENGLISH, new Runnable() {
+					@Override
+					public void run() {
+						inner.set(service.get(SimpleSmallBundle.class).simple());
+					}
+				});
+				// the outer binding is restored.
+				assertEquals(Locale.GERMAN, service.getLocale());
+			}
+		});
+		assertEquals("simple", inner.get());
+		assertFalse(service.isBound());
+		assertEquals("de simple", service.call(Locale.GERMAN, new Callable<String>() {
+			@Override
+			public String call() {
+				return service.get(SimpleSmallBundle.class).simple();
+			}
+		}));
+		try {
+			service.run(Locale.GERMAN, new Runnable() {
+				@Override
+				public void run() {
+					throw new IllegalStateException("failed");
+				}
+			});
+			fail("the exception is thrown");
+		} catch (IllegalStateException ex) {
+			assertFalse(service.isBound());
+		}
+	}
+	@Test
+	public void testNotInherited() throws Exception {
+		final ScopedBundleService service = new ScopedBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		final AtomicReference<Locale> locale = new AtomicReference<Locale>();
+		service.run(Locale.GERMAN, new Runnable() {
+			@Override
+			public void run() {
+				Thread t = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						locale.set(service.getLocale());
+					}
+				});
+				t.start();
+				try {
+					t.join();
+				} catch (InterruptedException ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+		});
+		assertEquals(Locale.ENGLISH, locale.get());
+	}
+	@Test
+	public void testExecutor() throws Exception {
+		final ScopedBundleService service = new ScopedBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		final ExecutorService pool = Executors.newSingleThreadExecutor();
+		final Callable<Locale> getLocale = new Callable<Locale>() {
+			@Override
+			public Locale call() {
+				return service.getLocale();
+			}
+		};
+		try {
+			// the worker thread exists before any locale is bound.
+			assertEquals(Locale.ENGLISH, pool.submit(getLocale).get());
+			final AtomicReference<String> translated = new AtomicReference<String>();
+			service.run(Locale.GERMAN, new Runnable() {
+				@Override
+				public void run() {
+					service.executor(pool).execute(new Runnable() {
+						@Override
+						public void run() {
+							translated.set(service.get(SimpleSmallBundle.class).simple());
+						}
+					});
+				}
+			});
+			// the task has completed, and the worker is not left with its locale.
+			assertEquals(Locale.ENGLISH, pool.submit(getLocale).get());
+			assertEquals("de simple", translated.get());
+			assertEquals(Locale.GERMAN, service.call(Locale.GERMAN, new Callable<Future<Locale>>() {
+				@Override
+				public Future<Locale> call() {
+					return pool.submit(service.wrap(getLocale));
+				}
+			}).get());
+		} finally {
+			pool.shutdown();
+			pool.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+	@Test
+	public void testCompletableFuture() throws Exception {
+		final ScopedBundleService service = new ScopedBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			CompletableFuture<String> future = service.call(Locale.GERMAN, new Callable<CompletableFuture<String>>() {
+				@Override
+				public CompletableFuture<String> call() {
+					return service.supplyAsync(new Supplier<String>() {
+						@Override
+						public String get() {
+							return service.get(SimpleSmallBundle.class).simple();
+						}
+					}, pool).thenApplyAsync(new Function<String, String>() {
+						@Override
+						public String apply(String s) {
+							return s + ", " + service.get(SimpleSmallBundle.class).simpleOne(1);
+						}
+					}, service.executor(pool));
+				}
+			});
+			assertEquals("de simple, de simple int 1.", future.get());
+			final AtomicReference<Locale> locale = new AtomicReference<Locale>();
+			service.call(Locale.JAPANESE, new Callable<CompletableFuture<Void>>() {
+				@Override
+				public CompletableFuture<Void> call() {
+					return service.runAsync(new Runnable() {
+						@Override
+						public void run() {
+							locale.set(service.getLocale());
+						}
+					}, pool);
+				}
+			}).get();
+			assertEquals(Locale.JAPANESE, locale.get());
+			assertEquals(Locale.ENGLISH, CompletableFuture.supplyAsync(new Supplier<Locale>() {
+				@Override
+				public Locale get() {
+					return service.getLocale();
+				}
+			}, pool).get());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -1,10 +1,25 @@
 package uk.me.candle.translations.service;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import static org.junit.Assert.*;
+import uk.me.candle.translations.conf.BundleConfiguration;
+import uk.me.candle.translations.conf.BundleConfigurationBuilder;
 import uk.me.candle.translations.conf.DefaultBundleConfiguration;
+import uk.me.candle.translations.maker.BundleMaker;
+import uk.me.candle.translations.maker.FailBundle;
+import uk.me.candle.translations.maker.ReloadBundle;
 import uk.me.candle.translations.maker.SimpleSmallBundle;
 
 /**
@@ -55,6 +70,37 @@ public class TestTlsBundleService {
 		SimpleSmallBundle bundle2 = bbs.get(SimpleSmallBundle.class, Locale.GERMAN);
 		assertTrue("The cache was not used, a different instance was returned.", bundle == bundle2);
 	}
+	@Test
+	public void testConcurrentGetCreatesOneInstance() throws Exception {
+		final TlsBundleService bbs = new TlsBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		final Locale locale = new Locale("de", "DE");
+		final CountDownLatch start = new CountDownLatch(1);
+		final SimpleSmallBundle[] results = new SimpleSmallBundle[16];
+		Thread[] threads = new Thread[results.length];
+		for (int i = 0; i < threads.length; ++i) {
+			final int idx = i;
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+					results[idx] = bbs.get(SimpleSmallBundle.class, locale);
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread t : threads) {
+			t.join();
+		}
+		for (SimpleSmallBundle b : results) {
+			assertSame(results[0], b);
+		}
+		assertEquals("de_de simple", results[0].simple());
+	}
 
 	private static class Runner implements Runnable {
 		private final AtomicInteger integer;
@@ -71,4 +117,201 @@ public class TestTlsBundleService {
 		}
 		
 	}
+	@Test
+	public void testPreload() throws Exception {
+		TlsBundleService bbs = new TlsBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			PreloadReport report = bbs.preload(Arrays.asList(SimpleSmallBundle.class, FailBundle.class),
+					Arrays.asList(Locale.ENGLISH, Locale.GERMAN), pool, true);
+			assertEquals(4, report.getEntries().size());
+			assertFalse(report.isSuccessful());
+			assertEquals(2, report.getFailures().size());
+			for (PreloadReport.Entry entry : report.getFailures()) {
+				assertEquals(FailBundle.class, entry.getBundleClass());
+				assertNotNull(entry.getFailure());
+			}
+			SimpleSmallBundle german = bbs.get(SimpleSmallBundle.class, Locale.GERMAN);
+			assertEquals("de simple", german.simple());
+			assertSame(report.getEntries().get(1).getBundle(), german);
+		} finally {
+			pool.shutdown();
+		}
+	}
+	@Test
+	public void testBoundedWithInheritance() throws Exception {
+		BundleConfiguration configuration = new BundleConfigurationBuilder().localeInheritance(BundleConfiguration.LocaleInheritance.YES).build();
+		TlsBundleService bbs = new TlsBundleService(configuration, Locale.ENGLISH, CachePolicy.unbounded().maximumSize(2));
+		SimpleSmallBundle german = bbs.get(SimpleSmallBundle.class, Locale.GERMAN);
+		SimpleSmallBundle germany = bbs.get(SimpleSmallBundle.class, Locale.GERMANY);
+		// each class is in its own class loader, so the class for de_DE does not extend the class for de.
+		assertEquals(SimpleSmallBundle.class, germany.getClass().getSuperclass());
+		assertNotSame(german.getClass().getClassLoader(), germany.getClass().getClassLoader());
+		assertEquals("de simple", german.simple());
+		assertEquals("de_de simple", germany.simple());
+		assertEquals(Locale.GERMANY, germany.getLocale());
+	}
+	@Test
+	public void testCachePolicy() throws Exception {
+		TlsBundleService bbs = new TlsBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH, CachePolicy.unbounded().maximumSize(1).recordHits());
+		SimpleSmallBundle english = bbs.get(SimpleSmallBundle.class);
+		assertSame(english, bbs.get(SimpleSmallBundle.class));
+		WeakReference<ClassLoader> classLoader = new WeakReference<ClassLoader>(english.getClass().getClassLoader());
+		english = null;
+		assertEquals("de simple", bbs.get(SimpleSmallBundle.class, Locale.GERMAN).simple());
+		CacheStats stats = bbs.getCacheStats();
+		assertEquals(1, stats.getHitCount());
+		assertEquals(2, stats.getMissCount());
+		assertEquals(1, stats.getEvictionCount());
+		// the evicted class is unloaded.
+		for (int i = 0; i < 50 && classLoader.get() != null; ++i) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(classLoader.get());
+		assertEquals("simple", bbs.get(SimpleSmallBundle.class).simple());
+		assertEquals(3, bbs.getCacheStats().getMissCount());
+		assertEquals(2, bbs.getCacheStats().getEvictionCount());
+	}
+
+	@Test
+	public void testResolveLocales() throws Exception {
+		TlsBundleService bbs = new TlsBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH, CachePolicy.unbounded().resolveLocales());
+		SimpleSmallBundle german = bbs.get(SimpleSmallBundle.class, Locale.GERMAN);
+		SimpleSmallBundle swiss = bbs.get(SimpleSmallBundle.class, new Locale("de", "CH"));
+		assertSame(german.getClass(), swiss.getClass());
+		assertSame(german.getClass(), bbs.get(SimpleSmallBundle.class, new Locale("de", "AT", "x")).getClass());
+		assertEquals(Locale.GERMAN, german.getLocale());
+		assertEquals(new Locale("de", "CH"), swiss.getLocale());
+		assertEquals("de simple", swiss.simple());
+		assertNotSame(german.getClass(), bbs.get(SimpleSmallBundle.class, Locale.GERMANY).getClass());
+		assertEquals(new Locale("de", "DE"), bbs.get(SimpleSmallBundle.class, Locale.GERMANY).getLocale());
+		assertEquals(new Locale("ja", "JP", "JP"), bbs.get(SimpleSmallBundle.class, new Locale("ja", "JP", "JP")).getLocale());
+		// only the default file exists for english, the class is generated for the language.
+		SimpleSmallBundle english = bbs.get(SimpleSmallBundle.class);
+		assertEquals(Locale.ENGLISH, english.getLocale());
+		assertEquals("simple", english.simple());
+		assertSame(english.getClass(), bbs.get(SimpleSmallBundle.class, Locale.UK).getClass());
+		assertEquals(Locale.UK, bbs.get(SimpleSmallBundle.class, Locale.UK).getLocale());
+		assertSame(english.getClass(), bbs.get(SimpleSmallBundle.class, Locale.US).getClass());
+		SimpleSmallBundle unknown = bbs.get(SimpleSmallBundle.class, new Locale("zz", "ZZ"));
+		assertEquals(new Locale("zz", "ZZ"), unknown.getLocale());
+		assertEquals(BundleMaker.getClassNameFor(SimpleSmallBundle.class, Locale.ROOT), unknown.getClass().getName());
+		assertEquals(9, bbs.getCacheStats().getMissCount());
+		assertTrue(bbs.reload().getEntries().isEmpty());
+		assertSame(swiss, bbs.get(SimpleSmallBundle.class, new Locale("de", "CH")));
+		assertEquals(9, bbs.getCacheStats().getMissCount());
+	}
+
+	@Test
+	public void testResolveLocalesFormat() throws Exception {
+		TlsBundleService bbs = new TlsBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH, CachePolicy.unbounded().resolveLocales());
+		Locale swiss = new Locale("de", "CH");
+		SimpleSmallBundle german = bbs.get(SimpleSmallBundle.class, Locale.GERMAN);
+		assertEquals(new MessageFormat("de simple int {0}.", Locale.GERMAN).format(new Object[] {1234567}), german.simpleOne(1234567));
+		// the swiss bundle shares the german class, and its numbers are formatted for switzerland.
+		SimpleSmallBundle bundle = bbs.get(SimpleSmallBundle.class, swiss);
+		assertSame(german.getClass(), bundle.getClass());
+		assertEquals(new MessageFormat("de simple int {0}.", swiss).format(new Object[] {1234567}), bundle.simpleOne(1234567));
+		assertFalse(german.simpleOne(1234567).equals(bundle.simpleOne(1234567)));
+	}
+
+	@Test
+	public void testReload() throws Exception {
+		TlsBundleService bbs = new TlsBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH);
+		ReloadBundle before = bbs.get(ReloadBundle.class);
+		assertEquals("hello x", before.greeting("x"));
+		assertTrue(bbs.reload().getEntries().isEmpty());
+		File file = new File(ReloadBundle.class.getResource("ReloadBundle.properties").toURI());
+		long lastModified = file.lastModified();
+		try {
+			write(file, "greeting=hi {0}\n");
+			PreloadReport report = bbs.reload();
+			assertTrue(report.isSuccessful());
+			assertEquals(1, report.getEntries().size());
+			ReloadBundle after = bbs.get(ReloadBundle.class);
+			assertEquals("hi x", after.greeting("x"));
+			assertEquals("hello x", before.greeting("x")); // the replaced instance still works.
+			assertNotSame(before.getClass(), after.getClass());
+
+			// the classes of a replaced generation are unloaded once they are not used.
+			WeakReference<ClassLoader> generation = new WeakReference<ClassLoader>(after.getClass().getClassLoader());
+			after = null;
+			report = null;
+			write(file, "greeting=hey {0}\n");
+			assertEquals(1, bbs.reload().getEntries().size());
+			assertEquals("hey x", bbs.get(ReloadBundle.class).greeting("x"));
+			for (int i = 0; i < 50 && generation.get() != null; ++i) {
+				System.gc();
+				Thread.sleep(10);
+			}
+			assertNull(generation.get());
+		} finally {
+			restore(file, lastModified, bbs);
+		}
+	}
+
+	@Test
+	public void testReloadFirstRequest() throws Exception {
+		TlsBundleService bbs = new TlsBundleService(new DefaultBundleConfiguration(), Locale.ENGLISH, CachePolicy.unbounded().resolveLocales());
+		Locale irish = new Locale("en", "IE");
+		assertEquals("hello x", bbs.get(ReloadBundle.class, irish).greeting("x"));
+		File file = new File(ReloadBundle.class.getResource("ReloadBundle.properties").toURI());
+		long lastModified = file.lastModified();
+		try {
+			write(file, "greeting=hi {0}\n");
+			assertEquals(1, bbs.reload().getEntries().size());
+			assertEquals("hi x", bbs.get(ReloadBundle.class, irish).greeting("x"));
+			// locales that are first requested after the reload, and other services, have the new translations.
+			assertEquals("hi x", bbs.get(ReloadBundle.class, Locale.US).greeting("x"));
+			assertEquals("hi x", new TlsBundleService(new DefaultBundleConfiguration(), irish).get(ReloadBundle.class).greeting("x"));
+			assertEquals("hi x", new TlsBundleService(new DefaultBundleConfiguration(), Locale.GERMAN).get(ReloadBundle.class).greeting("x"));
+		} finally {
+			restore(file, lastModified, bbs);
+		}
+	}
+
+	@Test
+	public void testReloadWithInheritance() throws Exception {
+		BundleConfiguration configuration = new BundleConfigurationBuilder()
+				.localeInheritance(BundleConfiguration.LocaleInheritance.YES)
+				.build();
+		TlsBundleService bbs = new TlsBundleService(configuration, Locale.ENGLISH);
+		assertEquals("hello x", bbs.get(ReloadBundle.class).greeting("x"));
+		File file = new File(ReloadBundle.class.getResource("ReloadBundle.properties").toURI());
+		long lastModified = file.lastModified();
+		try {
+			write(file, "greeting=hi {0}\n");
+			assertEquals(1, bbs.reload().getEntries().size());
+			ReloadBundle english = bbs.get(ReloadBundle.class);
+			assertEquals("hi x", english.greeting("x"));
+			// the class of a more specific locale extends the reloaded class.
+			ReloadBundle british = bbs.get(ReloadBundle.class, Locale.UK);
+			assertSame(english.getClass(), british.getClass().getSuperclass());
+			assertEquals("hi x", british.greeting("x"));
+		} finally {
+			restore(file, lastModified, bbs);
+		}
+	}
+
+	/**
+	 * Restores the translation file, and reloads the bundles so that the
+	 * bundles created later have the restored translations.
+	 */
+	static void restore(File file, long lastModified, BundleService service) throws IOException {
+		write(file, "greeting=hello {0}\n");
+		assertTrue(service.reload().isSuccessful());
+		file.setLastModified(lastModified);
+	}
+
+	static void write(File file, String content) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes(StandardCharsets.ISO_8859_1));
+		} finally {
+			out.close();
+		}
+		// the modification time may be truncated to the second.
+		file.setLastModified(System.currentTimeMillis() + 1000);
+	}
 }